@@ -0,0 +1,141 @@
+package com.yourcompany.batch.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.yourcompany.batch.service.dto.TransactionApiRequest;
+import com.yourcompany.batch.service.dto.TransactionBatchApiRequest;
+import com.yourcompany.batch.service.dto.TransactionBatchApiResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh codec của ExternalApiService: cách cũ (HashMap body, HttpHeaders mới mỗi lần gọi,
+ * serialize ra byte[], parse response thành Map) với cách hiện tại (record, ObjectWriter ghi thẳng
+ * vào body stream, bỏ qua response body khi chỉ cần status).
+ *
+ * Chạy: mvn -Pbenchmark compile exec:exec -Dbenchmark.includes=ExternalApiCodecBenchmark
+ * (profiler gc của JMH cho biết số byte cấp phát mỗi lời gọi).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExternalApiCodecBenchmark {
+
+    private static final String IDEMPOTENCY_KEY = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+    private static final int BATCH_SIZE = 100;
+
+    private ObjectMapper objectMapper;
+    private HttpHeaders jsonHeaders;
+    private ObjectWriter transactionRequestWriter;
+    private ObjectWriter batchRequestWriter;
+    private ObjectReader batchResponseReader;
+    private byte[] singleResponse;
+    private byte[] batchResponse;
+    private OutputStream requestBody;
+    private long id;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        jsonHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+        transactionRequestWriter = objectMapper.writerFor(TransactionApiRequest.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        batchRequestWriter = objectMapper.writerFor(TransactionBatchApiRequest.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        batchResponseReader = objectMapper.readerFor(TransactionBatchApiResponse.class);
+        // Body của HTTP request: byte ghi vào socket không được giữ lại
+        requestBody = OutputStream.nullOutputStream();
+
+        singleResponse = "{\"id\":12345,\"status\":\"ACCEPTED\",\"message\":\"Transaction accepted\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        StringBuilder results = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            results.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"success\":true}");
+        }
+        batchResponse = results.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void singleLegacy(Blackhole blackhole) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("id", ++id);
+        body.put("branch", "HN001");
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(jsonHeaders);
+        headers.set("Idempotency-Key", IDEMPOTENCY_KEY);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        objectMapper.writeValue(buffer, body);
+        blackhole.consume(headers);
+        blackhole.consume(buffer.toByteArray());
+        blackhole.consume(objectMapper.readValue(singleResponse, MAP_TYPE));
+    }
+
+    @Benchmark
+    public void singleTyped(Blackhole blackhole) throws IOException {
+        transactionRequestWriter.writeValue(requestBody, new TransactionApiRequest(++id, "HN001"));
+        // Response body không được parse, chỉ đọc status
+        blackhole.consume(singleResponse.length);
+    }
+
+    @Benchmark
+    public void batchLegacy(Blackhole blackhole) throws IOException {
+        List<Map<String, Object>> items = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", (long) i);
+            item.put("branch", "HN001");
+            item.put("idempotencyKey", IDEMPOTENCY_KEY);
+            // Ước lượng kích thước bằng cách serialize từng item
+            blackhole.consume(objectMapper.writeValueAsBytes(item).length);
+            items.add(item);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", items);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        objectMapper.writeValue(buffer, body);
+        blackhole.consume(buffer.toByteArray());
+        blackhole.consume(objectMapper.readValue(batchResponse, MAP_TYPE));
+    }
+
+    @Benchmark
+    public void batchTyped(Blackhole blackhole) throws IOException {
+        List<TransactionApiRequest> items = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            items.add(new TransactionApiRequest((long) i, "HN001", IDEMPOTENCY_KEY));
+        }
+        batchRequestWriter.writeValue(requestBody, new TransactionBatchApiRequest(items));
+        TransactionBatchApiResponse response = batchResponseReader.readValue(batchResponse);
+        blackhole.consume(response);
+    }
+}
@@ -0,0 +1,158 @@
+package com.yourcompany.batch.batch.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ItemProcessor xử lý song song các item của chunk trên virtual threads (tương tự AsyncItemProcessor
+ * của Spring Batch Integration nhưng không đổi kiểu item của writer).
+ *
+ * Ngay khi item được đọc (afterRead), việc xử lý được đẩy sang một virtual thread, tối đa concurrency
+ * item chạy cùng lúc (reader chờ khi đã đủ). Khi Spring Batch gọi process(item) thì chỉ chờ kết quả
+ * của item đó, nên thời gian xử lý một chunk xấp xỉ thời gian của item chậm nhất thay vì tổng thời gian.
+ * Exception của delegate được ném lại từ process() nên skip / retry / rollback vẫn như xử lý tuần tự.
+ * Khi chunk được xử lý lại (rollback, scan từng item) item không còn kết quả sẵn thì được xử lý tuần tự.
+ *
+ * Delegate phải thread-safe và không dựa vào transaction của chunk (chạy ngoài thread của step).
+ * Được đăng ký tự động làm listener của step vì được truyền vào processor() của StepBuilder.
+ */
+public class ConcurrentItemProcessor<I, O> implements ItemProcessor<I, O>, ItemReadListener<I>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentItemProcessor.class);
+
+    private final ItemProcessor<I, O> delegate;
+    private final int concurrency;
+    private final String name;
+    private final Semaphore permits;
+
+    // Kết quả đang chờ theo từng item (so sánh theo identity), truy cập trong synchronized (inFlight)
+    private final Map<I, Deque<Future<O>>> inFlight = new IdentityHashMap<>();
+
+    // Nhiều partition có thể dùng chung một processor: executor sống đến khi step cuối cùng kết thúc
+    private int activeSteps = 0;
+    private volatile ExecutorService executor;
+
+    public ConcurrentItemProcessor(ItemProcessor<I, O> delegate, int concurrency, String name) {
+        this.delegate = delegate;
+        this.concurrency = concurrency;
+        this.name = name;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        if (activeSteps++ == 0) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-process-", 0).factory());
+            log.info("Processing items of step {} concurrently on virtual threads, concurrency: {}", name, concurrency);
+        }
+    }
+
+    @Override
+    public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+        if (--activeSteps == 0) {
+            int cancelled = 0;
+            synchronized (inFlight) {
+                for (Deque<Future<O>> futures : inFlight.values()) {
+                    for (Future<O> future : futures) {
+                        if (future.cancel(true)) {
+                            cancelled++;
+                        }
+                    }
+                }
+                inFlight.clear();
+            }
+            if (cancelled > 0) {
+                log.warn("Cancelled {} unfinished item processing tasks of step {}", cancelled, name);
+            }
+            executor.shutdownNow();
+            executor = null;
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    @Override
+    public void afterRead(I item) {
+        ExecutorService currentExecutor = executor;
+        if (currentExecutor == null || item == null) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        Future<O> future;
+        try {
+            future = currentExecutor.submit(() -> {
+                try {
+                    return delegate.process(item);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Step đang kết thúc: item sẽ được xử lý tuần tự nếu process() vẫn được gọi
+            permits.release();
+            return;
+        }
+        synchronized (inFlight) {
+            inFlight.computeIfAbsent(item, key -> new ArrayDeque<>()).add(future);
+        }
+    }
+
+    @Override
+    public O process(I item) throws Exception {
+        Future<O> future = takeFuture(item);
+        if (future == null) {
+            return delegate.process(item);
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private Future<O> takeFuture(I item) {
+        synchronized (inFlight) {
+            Deque<Future<O>> futures = inFlight.get(item);
+            if (futures == null) {
+                return null;
+            }
+            Future<O> future = futures.poll();
+            if (futures.isEmpty()) {
+                inFlight.remove(item);
+            }
+            return future;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.yourcompany.batch.batch.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemProcessor;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * ItemProcessor xử lý cả chunk dưới dạng Flux với flatMap(concurrency), không chiếm thread cho mỗi lời gọi.
+ *
+ * Các item được gom lại khi đọc (afterRead); lần gọi process() đầu tiên của chunk khởi chạy
+ * Flux.fromIterable(items).flatMap(function, concurrency) cho tất cả item đã đọc, sau đó mỗi process(item)
+ * chỉ chờ kết quả của item đó, nên writer chỉ chạy khi cả chunk đã có kết quả.
+ * Mono rỗng tương đương processor trả về null (item bị lọc). Lỗi của Mono được ném lại từ process()
+ * nên skip / rollback vẫn như processor thường; item được xử lý lại (scan sau rollback) chạy riêng lẻ.
+ *
+ * chunkPreparer được gọi với các item của chunk trước khi khởi chạy Flux (trên thread của step, được block),
+ * ví dụ để tra DB một lần cho cả chunk, và trả về hàm xử lý các item của chunk đó: dữ liệu đã chuẩn bị chỉ
+ * sống trong hàm này nên không dùng chung giữa các chunk, thread hay lần chạy step.
+ *
+ * Function không được block: phần blocking (DB...) phải chạy trên Schedulers.boundedElastic().
+ * Được đăng ký tự động làm listener của step vì được truyền vào processor() của StepBuilder.
+ */
+public class ReactiveItemProcessor<I, O> implements ItemProcessor<I, O>, ItemReadListener<I>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveItemProcessor.class);
+
+    private final Function<I, Mono<O>> function;
+    private final Function<List<I>, Function<I, Mono<O>>> chunkPreparer;
+    private final int concurrency;
+    private final String name;
+
+    // Các item đã đọc nhưng chưa khởi chạy, và kết quả đang chờ theo item (identity); truy cập trong synchronized (this)
+    private final List<I> pending = new ArrayList<>();
+    private final Map<I, Deque<CompletableFuture<O>>> inFlight = new IdentityHashMap<>();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private int activeSteps = 0;
+
+    public ReactiveItemProcessor(Function<I, Mono<O>> function, Function<List<I>, Function<I, Mono<O>>> chunkPreparer,
+                                 int concurrency, String name) {
+        this.function = function;
+        this.chunkPreparer = chunkPreparer;
+        this.concurrency = Math.max(1, concurrency);
+        this.name = name;
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        if (activeSteps++ == 0) {
+            log.info("Processing chunks of step {} reactively, concurrency: {}", name, concurrency);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        synchronized (this) {
+            if (--activeSteps > 0) {
+                return stepExecution.getExitStatus();
+            }
+            subscriptions.forEach(Disposable::dispose);
+            subscriptions.clear();
+            int cancelled = 0;
+            for (Deque<CompletableFuture<O>> futures : inFlight.values()) {
+                for (CompletableFuture<O> future : futures) {
+                    if (future.cancel(true)) {
+                        cancelled++;
+                    }
+                }
+            }
+            inFlight.clear();
+            pending.clear();
+            if (cancelled > 0) {
+                log.warn("Cancelled {} unfinished reactive processing of step {}", cancelled, name);
+            }
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    @Override
+    public void afterRead(I item) {
+        if (item == null) {
+            return;
+        }
+        synchronized (this) {
+            pending.add(item);
+        }
+    }
+
+    @Override
+    public O process(I item) throws Exception {
+        launchPending();
+        CompletableFuture<O> future = takeFuture(item);
+        if (future == null) {
+            // Item không được đọc qua afterRead (xử lý lại sau rollback): chạy riêng item này
+            future = Mono.defer(() -> function.apply(item)).toFuture();
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Khởi chạy các item đã đọc dưới dạng một Flux với flatMap(concurrency)
+     */
+    private void launchPending() {
+        List<I> items;
+        List<CompletableFuture<O>> futures = new ArrayList<>();
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            items = new ArrayList<>(pending);
+            pending.clear();
+            for (I item : items) {
+                CompletableFuture<O> future = new CompletableFuture<>();
+                futures.add(future);
+                inFlight.computeIfAbsent(item, key -> new ArrayDeque<>()).add(future);
+            }
+        }
+
+        Function<I, Mono<O>> chunkFunction = function;
+        try {
+            Function<I, Mono<O>> prepared = chunkPreparer.apply(items);
+            if (prepared != null) {
+                chunkFunction = prepared;
+            }
+        } catch (RuntimeException e) {
+            // Không chuẩn bị được thì function tự xử lý từng item như khi chạy lại riêng lẻ
+            log.warn("Error preparing chunk of {} items of step {}: {}", items.size(), name, e.getMessage());
+        }
+        Function<I, Mono<O>> itemFunction = chunkFunction;
+
+        Disposable subscription = Flux.range(0, items.size())
+            .flatMap(index -> {
+                CompletableFuture<O> future = futures.get(index);
+                return Mono.defer(() -> itemFunction.apply(items.get(index)))
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnNext(result -> future.complete(result.orElse(null)))
+                    .onErrorResume(e -> {
+                        future.completeExceptionally(e);
+                        return Mono.empty();
+                    });
+            }, concurrency)
+            .subscribe();
+        synchronized (this) {
+            subscriptions.removeIf(Disposable::isDisposed);
+            subscriptions.add(subscription);
+        }
+    }
+
+    private synchronized CompletableFuture<O> takeFuture(I item) {
+        Deque<CompletableFuture<O>> futures = inFlight.get(item);
+        if (futures == null) {
+            return null;
+        }
+        CompletableFuture<O> future = futures.poll();
+        if (futures.isEmpty()) {
+            inFlight.remove(item);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,118 @@
+package com.yourcompany.batch.batch.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ItemProcessor thử lại từng item khi delegate ném exception thuộc danh sách retryable,
+ * thay vì để Spring Batch rollback cả chunk và tính item là skip.
+ *
+ * - Tối đa maxAttempts lần gọi cho mỗi item, chờ giữa các lần theo exponential backoff
+ *   (initialBackoff * 2^(n-1), tối đa maxBackoff) với jitter: chờ ngẫu nhiên trong [delay/2, delay].
+ * - Retry budget: tổng số lần thử lại của cả step (mọi item, mọi partition) không vượt quá retryBudget,
+ *   để khi downstream lỗi diện rộng thì không nhân số lời gọi lên maxAttempts lần.
+ * - Hết số lần thử hoặc hết budget với exception retryable: gọi recoverer (mặc định ném lại exception).
+ *
+ * Việc chờ chặn thread đang xử lý item đó: khi bọc bởi ConcurrentItemProcessor, item chạy
+ * trên virtual thread riêng nên các item khác của chunk vẫn được xử lý bình thường. Khi không bọc,
+ * đó là thread của chunk (đang giữ transaction, connection DB), nên AbstractStepBuilder khi đó chỉ
+ * dùng maxAttempts = 1.
+ */
+public class RetryingItemProcessor<I, O> implements ItemProcessor<I, O> {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryingItemProcessor.class);
+    private static final double BACKOFF_MULTIPLIER = 2.0;
+
+    /**
+     * Xử lý item khi đã hết số lần thử lại (trả về kết quả thay thế, null để lọc item, hoặc ném exception)
+     */
+    @FunctionalInterface
+    public interface Recoverer<I, O> {
+        O recover(I item, Exception exception) throws Exception;
+    }
+
+    private final ItemProcessor<I, O> delegate;
+    private final List<Class<? extends Throwable>> retryableExceptions;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final AtomicInteger remainingBudget;
+    private final Recoverer<I, O> recoverer;
+    private final String name;
+
+    public RetryingItemProcessor(ItemProcessor<I, O> delegate, List<Class<? extends Throwable>> retryableExceptions,
+                                 int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, int retryBudget,
+                                 Recoverer<I, O> recoverer, String name) {
+        this.delegate = delegate;
+        this.retryableExceptions = List.copyOf(retryableExceptions);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.remainingBudget = new AtomicInteger(Math.max(0, retryBudget));
+        this.recoverer = recoverer;
+        this.name = name;
+    }
+
+    @Override
+    public O process(I item) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return delegate.process(item);
+            } catch (Exception e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    return recoverer.recover(item, e);
+                }
+                if (remainingBudget.getAndUpdate(budget -> Math.max(0, budget - 1)) <= 0) {
+                    log.warn("Retry budget of step {} is exhausted, not retrying: {}", name, e.getMessage());
+                    return recoverer.recover(item, e);
+                }
+
+                long backoffMillis = backoffMillis(attempt);
+                log.warn("Attempt {}/{} of step {} failed, retrying in {} ms: {}",
+                    attempt, maxAttempts, name, backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Số lần thử lại còn lại của step
+     */
+    public int getRemainingBudget() {
+        return remainingBudget.get();
+    }
+
+    private long backoffMillis(int attempt) {
+        double delay = initialBackoffMillis * Math.pow(BACKOFF_MULTIPLIER, attempt - 1);
+        long cappedDelay = (long) Math.min(maxBackoffMillis, delay);
+        if (cappedDelay <= 1) {
+            return cappedDelay;
+        }
+        long half = cappedDelay / 2;
+        return half + ThreadLocalRandom.current().nextLong(cappedDelay - half + 1);
+    }
+
+    private boolean isRetryable(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            for (Class<? extends Throwable> retryable : retryableExceptions) {
+                if (retryable.isInstance(t)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
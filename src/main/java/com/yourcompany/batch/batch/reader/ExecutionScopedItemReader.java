@@ -0,0 +1,76 @@
+package com.yourcompany.batch.batch.reader;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * ItemReader tạo một reader riêng cho mỗi StepExecution (ví dụ mỗi partition của step),
+ * để nhiều execution của cùng một Step chạy song song không dùng chung trạng thái reader.
+ * Reader được tạo khi open() và bỏ đi khi close().
+ */
+public class ExecutionScopedItemReader<T> implements ItemStreamReader<T> {
+
+    private final Supplier<ItemReader<T>> readerFactory;
+    private final Map<Long, ItemReader<T>> readers = new ConcurrentHashMap<>();
+
+    public ExecutionScopedItemReader(Supplier<ItemReader<T>> readerFactory) {
+        this.readerFactory = readerFactory;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        ItemReader<T> reader = readerFactory.get();
+        readers.put(currentStepExecutionId(), reader);
+        if (reader instanceof ItemStream itemStream) {
+            itemStream.open(executionContext);
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        return currentReader().read();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        ItemReader<T> reader = readers.get(currentStepExecutionId());
+        if (reader instanceof ItemStream itemStream) {
+            itemStream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        ItemReader<T> reader = readers.remove(currentStepExecutionId());
+        if (reader instanceof ItemStream itemStream) {
+            itemStream.close();
+        }
+    }
+
+    private ItemReader<T> currentReader() {
+        ItemReader<T> reader = readers.get(currentStepExecutionId());
+        if (reader == null) {
+            throw new IllegalStateException("Reader is not opened for the current step execution");
+        }
+        return reader;
+    }
+
+    private static Long currentStepExecutionId() {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context == null) {
+            throw new IllegalStateException("No step execution is registered for the current thread");
+        }
+        StepExecution stepExecution = context.getStepExecution();
+        return stepExecution.getId();
+    }
+}
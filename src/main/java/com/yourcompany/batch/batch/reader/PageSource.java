@@ -0,0 +1,22 @@
+package com.yourcompany.batch.batch.reader;
+
+import java.util.List;
+
+/**
+ * Nguồn dữ liệu theo trang, dùng cho PrefetchingItemReader
+ * Mỗi trang được "claim" (đánh dấu đã lấy) khi đọc ra, các item chưa xử lý phải được release lại.
+ */
+public interface PageSource<T> {
+
+    /**
+     * Claim trang tiếp theo
+     *
+     * @return danh sách item, rỗng nếu đã hết data
+     */
+    List<T> nextPage();
+
+    /**
+     * Trả lại các item đã claim nhưng chưa được xử lý
+     */
+    void release(List<T> items);
+}
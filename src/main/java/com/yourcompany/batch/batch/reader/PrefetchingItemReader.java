@@ -0,0 +1,192 @@
+package com.yourcompany.batch.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.NonTransientResourceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemReader decorator claim trang N+1 trên background thread trong khi trang N đang được xử lý,
+ * để che phần lớn latency claim phía sau thời gian xử lý.
+ *
+ * Số trang đã claim nhưng chưa được giao cho step bị giới hạn bởi maxPrefetchPages: permit được trả khi trang
+ * được lấy ra để đọc (không phải khi đọc hết), nên với maxPrefetchPages = 1 trang kế tiếp vẫn được claim
+ * trong khi trang hiện tại đang được xử lý.
+ *
+ * Khi step kết thúc (thành công hoặc lỗi), các item đã claim nhưng chưa đọc, và các item đã đọc nhưng chunk
+ * chứa chúng chưa commit (chunk lỗi làm step dừng), được release lại qua PageSource thay vì chờ hết lease.
+ * Chunk được coi là commit khi update() được gọi trên thread của chunk (trong transaction của chunk).
+ * Chunk rollback nhưng step vẫn chạy tiếp thì Spring Batch xử lý lại chính các item đó, nên không release.
+ */
+public class PrefetchingItemReader<T> implements ItemStreamReader<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefetchingItemReader.class);
+    private static final long POLL_TIMEOUT_MILLIS = 200;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+    private final PageSource<T> pageSource;
+    private final int maxPrefetchPages;
+    private final String name;
+
+    private final BlockingQueue<List<T>> pages = new LinkedBlockingQueue<>();
+    private Semaphore pagePermits;
+    private Thread prefetchThread;
+    private volatile boolean running = false;
+    private volatile boolean finished = false;
+    private volatile Throwable failure;
+    private boolean failureReported = false;
+
+    private List<T> currentPage;
+    private int currentIndex = 0;
+
+    // Item đã đọc theo thread xử lý chunk, chưa commit
+    private final Map<Thread, List<T>> uncommitted = new ConcurrentHashMap<>();
+
+    public PrefetchingItemReader(PageSource<T> pageSource, int maxPrefetchPages, String name) {
+        this.pageSource = pageSource;
+        this.maxPrefetchPages = Math.max(1, maxPrefetchPages);
+        this.name = name;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (pageSource instanceof ItemStream itemStream) {
+            itemStream.open(executionContext);
+        }
+        pages.clear();
+        pagePermits = new Semaphore(maxPrefetchPages);
+        currentPage = null;
+        currentIndex = 0;
+        uncommitted.clear();
+        failure = null;
+        failureReported = false;
+        finished = false;
+        running = true;
+
+        prefetchThread = new Thread(this::prefetchLoop, name + "-prefetch");
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+        log.info("PrefetchingItemReader {} started with maxPrefetchPages: {}", name, maxPrefetchPages);
+    }
+
+    @Override
+    public synchronized T read() throws Exception {
+        while (currentPage == null || currentIndex >= currentPage.size()) {
+            currentPage = null;
+
+            List<T> page = pages.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (page != null) {
+                // Trang đã được giao cho step, cho phép claim thêm một trang trong lúc trang này được xử lý
+                pagePermits.release();
+                currentPage = page;
+                currentIndex = 0;
+                continue;
+            }
+
+            if (finished && pages.isEmpty()) {
+                if (failure != null && !failureReported) {
+                    failureReported = true;
+                    throw new NonTransientResourceException("Error prefetching page for " + name, failure);
+                }
+                return null;
+            }
+        }
+
+        T item = currentPage.get(currentIndex++);
+        uncommitted.computeIfAbsent(Thread.currentThread(), thread -> new ArrayList<>()).add(item);
+        return item;
+    }
+
+    private void prefetchLoop() {
+        try {
+            while (running) {
+                if (!pagePermits.tryAcquire(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+
+                List<T> page = pageSource.nextPage();
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                if (!running) {
+                    // Reader đã đóng trong lúc đang claim
+                    pageSource.release(page);
+                    break;
+                }
+                pages.add(page);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            log.error("Error prefetching page for {}: {}", name, t.getMessage(), t);
+            failure = t;
+        } finally {
+            finished = true;
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        // Chunk của thread này đang commit: các item đã đọc không cần release nữa
+        uncommitted.remove(Thread.currentThread());
+        if (pageSource instanceof ItemStream itemStream) {
+            itemStream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+        if (prefetchThread != null) {
+            try {
+                prefetchThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (prefetchThread.isAlive()) {
+                log.warn("Prefetch thread of {} is still claiming, its page will be released when the claim returns", name);
+            }
+            prefetchThread = null;
+        }
+
+        List<T> unread = new ArrayList<>();
+        synchronized (this) {
+            if (currentPage != null && currentIndex < currentPage.size()) {
+                unread.addAll(currentPage.subList(currentIndex, currentPage.size()));
+            }
+            currentPage = null;
+            currentIndex = 0;
+            for (List<T> items : uncommitted.values()) {
+                unread.addAll(items);
+            }
+            uncommitted.clear();
+        }
+        List<T> page;
+        while ((page = pages.poll()) != null) {
+            unread.addAll(page);
+        }
+
+        try {
+            if (!unread.isEmpty()) {
+                log.info("Releasing {} claimed but unprocessed items of {}", unread.size(), name);
+                pageSource.release(unread);
+            }
+        } finally {
+            if (pageSource instanceof ItemStream itemStream) {
+                itemStream.close();
+            }
+        }
+    }
+}
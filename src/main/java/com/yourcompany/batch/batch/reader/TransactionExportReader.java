@@ -0,0 +1,116 @@
+package com.yourcompany.batch.batch.reader;
+
+import com.yourcompany.batch.repository.dto.TransactionExportRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader đọc các transaction cần export (theo status, tăng dần theo id) qua một JDBC cursor forward-only
+ * với fetchSize lớn, map thẳng ResultSet sang TransactionExportRow (không hydrate entity).
+ *
+ * Id lớn nhất đã đọc được lưu vào ExecutionContext mỗi lần commit chunk; khi chạy lại step execution bị lỗi
+ * cursor được mở lại với id > id đó (dùng primary key, không phải bỏ qua lại các rows đã export).
+ */
+public class TransactionExportReader implements ItemStreamReader<TransactionExportRow> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionExportReader.class);
+    private static final String LAST_ID_KEY = "transactionExportReader.lastId";
+
+    private static final String SELECT_SQL = """
+        SELECT t.id, t.branch, t.name, t.amount, t.create_date, t.status
+        FROM transaction t
+        WHERE t.status IN (%s)
+        AND t.id > ?
+        ORDER BY t.id
+        """;
+
+    private final DataSource dataSource;
+    private final List<String> statuses;
+    private final long fromId;
+    private final int fetchSize;
+
+    private JdbcCursorItemReader<TransactionExportRow> cursor;
+    private long lastId;
+
+    /**
+     * @param fromId chỉ export các transaction có id > fromId (0 = từ đầu)
+     */
+    public TransactionExportReader(DataSource dataSource, List<String> statuses, long fromId, int fetchSize) {
+        this.dataSource = dataSource;
+        this.statuses = List.copyOf(statuses);
+        this.fromId = fromId;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        lastId = executionContext.getLong(LAST_ID_KEY, fromId);
+        if (lastId > fromId) {
+            log.info("Resuming transaction export after id {}", lastId);
+        }
+        long startAfter = lastId;
+        cursor = new JdbcCursorItemReader<>();
+        cursor.setName("transactionExportCursor");
+        cursor.setDataSource(dataSource);
+        cursor.setSql(SELECT_SQL.formatted(String.join(", ", Collections.nCopies(statuses.size(), "?"))));
+        cursor.setPreparedStatementSetter(statement -> {
+            for (int i = 0; i < statuses.size(); i++) {
+                statement.setString(i + 1, statuses.get(i));
+            }
+            statement.setLong(statuses.size() + 1, startAfter);
+        });
+        cursor.setRowMapper((resultSet, rowNum) -> new TransactionExportRow(
+            resultSet.getLong(1),
+            resultSet.getString(2),
+            resultSet.getString(3),
+            resultSet.getBigDecimal(4),
+            resultSet.getTimestamp(5),
+            resultSet.getString(6)));
+        cursor.setFetchSize(fetchSize);
+        // Vị trí restart là id, không phải số rows đã đọc
+        cursor.setSaveState(false);
+        try {
+            cursor.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new ItemStreamException("Invalid transaction export cursor", e);
+        }
+        cursor.open(new ExecutionContext());
+    }
+
+    @Override
+    public TransactionExportRow read() throws Exception {
+        TransactionExportRow row = cursor.read();
+        if (row != null) {
+            lastId = row.id();
+        }
+        return row;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(LAST_ID_KEY, lastId);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    /**
+     * Id lớn nhất đã đọc
+     */
+    public long getLastId() {
+        return lastId;
+    }
+}
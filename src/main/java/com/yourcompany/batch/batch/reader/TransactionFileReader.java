@@ -0,0 +1,672 @@
+package com.yourcompany.batch.batch.reader;
+
+import com.yourcompany.batch.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reader đọc transaction từ file CSV hoặc NDJSON (một JSON object mỗi dòng) để bulk load vào bảng transaction.
+ *
+ * - File được đọc qua FileChannel vào một buffer bytes cố định, các dòng được parse trực tiếp trên buffer:
+ *   amount và create_date được parse từ bytes (không tạo String), branch được lấy từ cache theo bytes
+ *   (số branch ít), chỉ name tạo String mới cho mỗi dòng.
+ * - CSV: các cột branch,name,amount,create_date theo thứ tự đó; dòng header (cột đầu là "branch") được bỏ qua;
+ *   giá trị có dấu phẩy được đặt trong dấu nháy kép ("" là một dấu nháy).
+ * - NDJSON: các key branch, name, amount (số hoặc chuỗi), createDate / create_date; key khác được bỏ qua.
+ * - create_date theo ISO-8601 (yyyy-MM-dd'T'HH:mm:ss[.SSS][Z|+hh:mm], chấp nhận dấu cách thay cho 'T');
+ *   không có offset thì theo time zone của JVM, để trống thì lấy thời điểm mở file.
+ *
+ * Vị trí (byte offset, số dòng) của dòng kế tiếp được lưu vào ExecutionContext mỗi lần commit chunk,
+ * khi chạy lại step execution bị lỗi reader đọc tiếp từ vị trí đó. Lưu ý AbstractJob.run luôn tạo job instance
+ * mới (param JobID), nên chạy lại qua runAsync / API sẽ đọc lại từ đầu file; muốn đọc tiếp phải restart
+ * job execution bị lỗi (JobOperator.restart).
+ *
+ * Dòng sai định dạng (kể cả dòng dài hơn MAX_LINE_LENGTH, được bỏ qua đến hết dòng) ném FlatFileParseException
+ * (được skip theo skipLimit của step). Reader không thread-safe.
+ */
+public class TransactionFileReader implements ItemStreamReader<Transaction> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionFileReader.class);
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Format theo tên (không phân biệt hoa thường), để trống thì theo phần mở rộng của file (.ndjson / .jsonl)
+         */
+        public static Format of(String name, Path file) {
+            if (name != null && !name.isBlank()) {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            }
+            String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_LINE_LENGTH = 16 << 20;
+    private static final String OFFSET_KEY = "transactionFileReader.offset";
+    private static final String LINE_KEY = "transactionFileReader.line";
+
+    private final Path file;
+    private final Format format;
+    private final int bufferSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final BranchCache branches = new BranchCache();
+
+    private FileChannel channel;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bufferOffset; // Offset trong file của buffer[0]
+    private boolean endOfFile;
+    private long lineNumber;
+    private Instant defaultCreateDate;
+
+    // Vị trí các field của dòng hiện tại: [start, end), escaped = cần giải mã (CSV "" hoặc JSON \)
+    private final int[] fieldStart = new int[Field.values().length];
+    private final int[] fieldEnd = new int[Field.values().length];
+    private final boolean[] fieldEscaped = new boolean[Field.values().length];
+
+    private enum Field { BRANCH, NAME, AMOUNT, CREATE_DATE }
+
+    public TransactionFileReader(Path file, Format format, int bufferSize) {
+        this.file = file;
+        this.format = format;
+        this.bufferSize = Math.max(4096, bufferSize);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long offset = executionContext.getLong(OFFSET_KEY, 0L);
+            lineNumber = executionContext.getLong(LINE_KEY, 0L);
+            if (offset > 0) {
+                channel.position(offset);
+                log.info("Resuming {} at byte {} (line {})", file, offset, lineNumber);
+            }
+            buffer = new byte[bufferSize];
+            position = 0;
+            limit = 0;
+            bufferOffset = offset;
+            endOfFile = false;
+            defaultCreateDate = Instant.now();
+            log.info("Reading {} transactions from {} ({} bytes)", format, file, channel.size());
+        } catch (IOException e) {
+            throw new ItemStreamException("Cannot open transaction file " + file, e);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(OFFSET_KEY, bufferOffset + position);
+        executionContext.putLong(LINE_KEY, lineNumber);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing transaction file {}: {}", file, e.getMessage());
+            }
+            channel = null;
+        }
+        buffer = null;
+    }
+
+    @Override
+    public Transaction read() throws Exception {
+        while (true) {
+            int end = nextLineEnd();
+            if (end < 0) {
+                return null;
+            }
+            int start = position;
+            position = end < limit ? end + 1 : end;
+            lineNumber++;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (isBlank(start, end)) {
+                continue;
+            }
+            if (format == Format.CSV) {
+                splitCsv(start, end);
+                if (lineNumber == 1 && equalsIgnoreCase(Field.BRANCH, "branch")) {
+                    continue;
+                }
+            } else {
+                splitJson(start, end);
+            }
+            return toTransaction(start, end);
+        }
+    }
+
+    /**
+     * Vị trí ký tự '\n' kết thúc dòng kế tiếp (hoặc cuối dữ liệu ở dòng cuối không có '\n'), đọc thêm từ file khi cần
+     *
+     * @return -1 khi hết file
+     */
+    private int nextLineEnd() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            if (endOfFile) {
+                return position < limit ? limit : -1;
+            }
+            scanFrom = limit - position;
+            fill();
+        }
+    }
+
+    /**
+     * Dồn phần chưa đọc về đầu buffer (tăng kích thước nếu một dòng dài hơn buffer) và đọc thêm từ file
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            if (buffer.length >= MAX_LINE_LENGTH) {
+                skipLine();
+                throw new FlatFileParseException("Line longer than " + MAX_LINE_LENGTH + " bytes", "", (int) lineNumber);
+            }
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            bufferOffset += position;
+            position = 0;
+            limit = remaining;
+        }
+        int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        if (read < 0) {
+            endOfFile = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Bỏ qua phần còn lại của dòng hiện tại (đến sau ký tự '\n' kế tiếp hoặc hết file), để lần read() sau
+     * đọc từ dòng kế tiếp thay vì gặp lại cùng một dòng quá dài
+     */
+    private void skipLine() throws IOException {
+        buffer = new byte[bufferSize];
+        while (true) {
+            bufferOffset += limit;
+            position = 0;
+            limit = 0;
+            int read = channel.read(ByteBuffer.wrap(buffer));
+            if (read < 0) {
+                endOfFile = true;
+                break;
+            }
+            limit = read;
+            int newline = -1;
+            for (int i = 0; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            if (newline >= 0) {
+                position = newline + 1;
+                break;
+            }
+        }
+        lineNumber++;
+    }
+
+    private void splitCsv(int start, int end) {
+        Arrays.fill(fieldStart, -1);
+        int field = 0;
+        int i = start;
+        while (i <= end && field < fieldStart.length) {
+            boolean escaped = false;
+            int valueStart;
+            int valueEnd;
+            if (i < end && buffer[i] == '"') {
+                valueStart = ++i;
+                while (true) {
+                    if (i >= end) {
+                        throw parseError("Unterminated quoted field", start, end);
+                    }
+                    if (buffer[i] == '"') {
+                        if (i + 1 < end && buffer[i + 1] == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                valueEnd = i++;
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+            } else {
+                valueStart = i;
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            fieldStart[field] = valueStart;
+            fieldEnd[field] = valueEnd;
+            fieldEscaped[field] = escaped;
+            field++;
+            i++;
+        }
+    }
+
+    private void splitJson(int start, int end) {
+        Arrays.fill(fieldStart, -1);
+        int i = skipWhitespace(start, end);
+        if (i >= end || buffer[i] != '{') {
+            throw parseError("Expected a JSON object", start, end);
+        }
+        i = skipWhitespace(i + 1, end);
+        if (i < end && buffer[i] == '}') {
+            return;
+        }
+        while (true) {
+            if (i >= end || buffer[i] != '"') {
+                throw parseError("Expected a JSON key", start, end);
+            }
+            int keyStart = i + 1;
+            i = skipString(keyStart, start, end);
+            Field field = jsonField(keyStart, i - 1);
+            i = skipWhitespace(i, end);
+            if (i >= end || buffer[i] != ':') {
+                throw parseError("Expected ':' after JSON key", start, end);
+            }
+            i = skipWhitespace(i + 1, end);
+            if (i >= end) {
+                throw parseError("Missing JSON value", start, end);
+            }
+            int valueStart;
+            int valueEnd;
+            boolean escaped = false;
+            if (buffer[i] == '"') {
+                valueStart = i + 1;
+                i = skipString(valueStart, start, end);
+                valueEnd = i - 1;
+                for (int j = valueStart; j < valueEnd; j++) {
+                    if (buffer[j] == '\\') {
+                        escaped = true;
+                        break;
+                    }
+                }
+            } else if (buffer[i] == '{' || buffer[i] == '[') {
+                valueStart = -1;
+                valueEnd = -1;
+                i = skipNested(i, start, end);
+            } else {
+                valueStart = i;
+                while (i < end && buffer[i] != ',' && buffer[i] != '}' && !isWhitespace(buffer[i])) {
+                    i++;
+                }
+                valueEnd = i;
+                if (valueEnd - valueStart == 4 && buffer[valueStart] == 'n') {
+                    valueStart = -1; // null
+                }
+            }
+            if (field != null && valueStart >= 0) {
+                fieldStart[field.ordinal()] = valueStart;
+                fieldEnd[field.ordinal()] = valueEnd;
+                fieldEscaped[field.ordinal()] = escaped;
+            }
+            i = skipWhitespace(i, end);
+            if (i < end && buffer[i] == ',') {
+                i = skipWhitespace(i + 1, end);
+            } else if (i < end && buffer[i] == '}') {
+                return;
+            } else {
+                throw parseError("Expected ',' or '}'", start, end);
+            }
+        }
+    }
+
+    private Field jsonField(int start, int end) {
+        if (bytesEqual(start, end, "branch")) {
+            return Field.BRANCH;
+        }
+        if (bytesEqual(start, end, "name")) {
+            return Field.NAME;
+        }
+        if (bytesEqual(start, end, "amount")) {
+            return Field.AMOUNT;
+        }
+        if (bytesEqual(start, end, "createDate") || bytesEqual(start, end, "create_date")) {
+            return Field.CREATE_DATE;
+        }
+        return null;
+    }
+
+    /**
+     * @return vị trí ngay sau dấu nháy đóng của chuỗi JSON bắt đầu tại from (sau dấu nháy mở)
+     */
+    private int skipString(int from, int lineStart, int lineEnd) {
+        int i = from;
+        while (i < lineEnd) {
+            byte b = buffer[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw parseError("Unterminated JSON string", lineStart, lineEnd);
+    }
+
+    private int skipNested(int from, int lineStart, int lineEnd) {
+        int depth = 0;
+        int i = from;
+        while (i < lineEnd) {
+            byte b = buffer[i];
+            if (b == '"') {
+                i = skipString(i + 1, lineStart, lineEnd);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        throw parseError("Unterminated JSON value", lineStart, lineEnd);
+    }
+
+    private Transaction toTransaction(int lineStart, int lineEnd) {
+        Transaction transaction = new Transaction();
+        if (fieldStart[Field.BRANCH.ordinal()] >= 0) {
+            int start = fieldStart[Field.BRANCH.ordinal()];
+            int end = fieldEnd[Field.BRANCH.ordinal()];
+            transaction.setBranch(fieldEscaped[Field.BRANCH.ordinal()]
+                ? decode(Field.BRANCH) : branches.get(buffer, start, end));
+        }
+        if (fieldStart[Field.NAME.ordinal()] >= 0) {
+            transaction.setName(decode(Field.NAME));
+        }
+        if (fieldStart[Field.AMOUNT.ordinal()] >= 0) {
+            transaction.setAmount(parseDecimal(fieldStart[Field.AMOUNT.ordinal()], fieldEnd[Field.AMOUNT.ordinal()],
+                lineStart, lineEnd));
+        }
+        int dateStart = fieldStart[Field.CREATE_DATE.ordinal()];
+        transaction.setCreateDate(dateStart >= 0 && fieldEnd[Field.CREATE_DATE.ordinal()] > dateStart
+            ? parseInstant(dateStart, fieldEnd[Field.CREATE_DATE.ordinal()], lineStart, lineEnd)
+            : defaultCreateDate);
+        return transaction;
+    }
+
+    private String decode(Field field) {
+        int start = fieldStart[field.ordinal()];
+        int end = fieldEnd[field.ordinal()];
+        if (!fieldEscaped[field.ordinal()]) {
+            return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        }
+        String raw = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        return format == Format.CSV ? raw.replace("\"\"", "\"") : unescapeJson(raw);
+    }
+
+    private static String unescapeJson(String raw) {
+        StringBuilder result = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                result.append(c);
+                continue;
+            }
+            char next = raw.charAt(++i);
+            switch (next) {
+                case 'n' -> result.append('\n');
+                case 'r' -> result.append('\r');
+                case 't' -> result.append('\t');
+                case 'b' -> result.append('\b');
+                case 'f' -> result.append('\f');
+                case 'u' -> {
+                    if (i + 4 < raw.length()) {
+                        result.append((char) Integer.parseInt(raw, i + 1, i + 5, 16));
+                        i += 4;
+                    }
+                }
+                default -> result.append(next);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Parse số thập phân (dấu, phần nguyên, phần lẻ) trực tiếp từ bytes, quá 18 chữ số thì parse qua String
+     */
+    private BigDecimal parseDecimal(int start, int end, int lineStart, int lineEnd) {
+        int i = start;
+        while (i < end && isWhitespace(buffer[i])) {
+            i++;
+        }
+        while (end > i && isWhitespace(buffer[end - 1])) {
+            end--;
+        }
+        if (i == end) {
+            return null;
+        }
+        boolean negative = false;
+        if (buffer[i] == '-' || buffer[i] == '+') {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits == 0 || digits > 18) {
+            try {
+                return new BigDecimal(new String(buffer, start, end - start, StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException e) {
+                throw parseError("Invalid amount", lineStart, lineEnd);
+            }
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(0, scale));
+    }
+
+    /**
+     * Parse ISO-8601 date time trực tiếp từ bytes
+     */
+    private Instant parseInstant(int start, int end, int lineStart, int lineEnd) {
+        try {
+            if (end - start < 10) {
+                throw parseError("Invalid create_date", lineStart, lineEnd);
+            }
+            int year = digits(start, 4, lineStart, lineEnd);
+            int month = digits(start + 5, 2, lineStart, lineEnd);
+            int day = digits(start + 8, 2, lineStart, lineEnd);
+            int hour = 0;
+            int minute = 0;
+            int second = 0;
+            int nanos = 0;
+            int i = start + 10;
+            if (i < end && (buffer[i] == 'T' || buffer[i] == ' ') && end - i >= 6) {
+                hour = digits(i + 1, 2, lineStart, lineEnd);
+                minute = digits(i + 4, 2, lineStart, lineEnd);
+                i += 6;
+                if (i < end && buffer[i] == ':') {
+                    second = digits(i + 1, 2, lineStart, lineEnd);
+                    i += 3;
+                }
+                if (i < end && buffer[i] == '.') {
+                    int fractionDigits = 0;
+                    i++;
+                    while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                        if (fractionDigits < 9) {
+                            nanos = nanos * 10 + (buffer[i] - '0');
+                            fractionDigits++;
+                        }
+                        i++;
+                    }
+                    for (; fractionDigits < 9; fractionDigits++) {
+                        nanos *= 10;
+                    }
+                }
+            }
+            LocalDateTime dateTime = LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+            if (i >= end) {
+                return dateTime.atZone(zone).toInstant();
+            }
+            if (buffer[i] == 'Z' && i + 1 == end) {
+                return dateTime.toInstant(ZoneOffset.UTC);
+            }
+            if ((buffer[i] == '+' || buffer[i] == '-') && end - i >= 3) {
+                int sign = buffer[i] == '-' ? -1 : 1;
+                int offsetHours = digits(i + 1, 2, lineStart, lineEnd);
+                int offsetMinutes = end - i >= 5 ? digits(end - 2, 2, lineStart, lineEnd) : 0;
+                return dateTime.toInstant(ZoneOffset.ofHoursMinutes(sign * offsetHours, sign * offsetMinutes));
+            }
+            throw parseError("Invalid create_date", lineStart, lineEnd);
+        } catch (DateTimeException e) {
+            throw parseError("Invalid create_date: " + e.getMessage(), lineStart, lineEnd);
+        }
+    }
+
+    private int digits(int from, int count, int lineStart, int lineEnd) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9') {
+                throw parseError("Invalid create_date", lineStart, lineEnd);
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private FlatFileParseException parseError(String message, int lineStart, int lineEnd) {
+        String line = new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        return new FlatFileParseException(message + " at line " + lineNumber + " of " + file, line, (int) lineNumber);
+    }
+
+    private boolean equalsIgnoreCase(Field field, String value) {
+        int start = fieldStart[field.ordinal()];
+        int end = fieldEnd[field.ordinal()];
+        if (start < 0 || end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.toLowerCase((char) buffer[start + i]) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean bytesEqual(int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBlank(int start, int end) {
+        return skipWhitespace(start, end) >= end;
+    }
+
+    private int skipWhitespace(int from, int end) {
+        int i = from;
+        while (i < end && isWhitespace(buffer[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Cache String của branch theo bytes (open addressing, không xóa): các dòng cùng branch dùng chung một String
+     */
+    private static final class BranchCache {
+
+        private static final int CAPACITY = 1024;
+
+        private final byte[][] keys = new byte[CAPACITY][];
+        private final String[] values = new String[CAPACITY];
+        private int size;
+
+        String get(byte[] bytes, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int index = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+            for (int probe = 0; probe < CAPACITY; probe++) {
+                byte[] key = keys[index];
+                if (key == null) {
+                    String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                    // Giữ tối đa nửa dung lượng để probe ngắn, quá thì không cache thêm
+                    if (size < CAPACITY / 2) {
+                        keys[index] = Arrays.copyOfRange(bytes, start, end);
+                        values[index] = value;
+                        size++;
+                    }
+                    return value;
+                }
+                if (Arrays.equals(key, 0, key.length, bytes, start, end)) {
+                    return values[index];
+                }
+                index = (index + 1) & (CAPACITY - 1);
+            }
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,92 +1,278 @@
 package com.yourcompany.batch.batch.reader;
 
+import com.yourcompany.batch.batch.step.GridPartitioner;
 import com.yourcompany.batch.domain.Transaction;
 import com.yourcompany.batch.repository.TransactionRepository;
+import com.yourcompany.batch.service.TransactionIdempotencyService;
+import com.yourcompany.batch.service.TransactionLeaseService;
+import com.yourcompany.batch.service.resilience.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 /**
- * Reader để đọc Transaction trực tiếp từ database thông qua JPA repository
- * Mỗi lần đọc sẽ lấy tối đa 10 rows có status IS NULL, đồng thời cập nhật status = 'PENDING'
+ * Reader để đọc Transaction trực tiếp từ database thông qua repository (claim một round trip)
+ * Mỗi lần đọc sẽ lấy tối đa pageSize rows có status IS NULL, đồng thời cập nhật status = 'PENDING'
  * nhằm tránh các job khác lấy trùng data.
+ *
+ * Mặc định chỉ lấy một trang cho mỗi lần chạy job. Ở chế độ draining (drainMode = true),
+ * reader tiếp tục lấy trang kế tiếp cho đến khi hết data, đạt giới hạn số rows (maxRows)
+ * hoặc hết thời gian cho phép (maxDurationSeconds).
+ *
+ * Reader cũng là PageSource để có thể bọc bởi PrefetchingItemReader (prefetchPages > 0).
+ * Các transaction đã claim nhưng chưa đọc sẽ được trả lại status IS NULL khi step kết thúc.
+ * Transaction được claim kèm lease (claimed_by, lease_expires_at) do TransactionLeaseService gia hạn
+ * trong lúc reader còn mở; nếu node chết, sweeper trả các transaction hết lease về hàng đợi.
+ *
+ * Khi chạy trong partitioned step, reader đọc partition index / partition count từ ExecutionContext
+ * (GridPartitioner) và chỉ claim các transaction thuộc partition đó. Reader có scope prototype
+ * để mỗi partition có một instance riêng.
+ *
+ * Reader không claim thêm khi circuit breaker của external API đang mở: ở chế độ draining
+ * reader chờ breaker cho phép gọi thử lại (trong giới hạn maxDurationSeconds), ở chế độ thường thì dừng.
+ *
+ * Ghi nhận idempotency của mỗi trang vừa claim được nạp trước vào cache của TransactionIdempotencyService
+ * (một query cho cả trang) thay vì một query cho từng item ở processor.
+ *
+ * read(), nextPage(), close() và reset() được đồng bộ để reader dùng được trong step xử lý chunk
+ * trên nhiều thread (param threads của step).
  */
 @Component
-public class TransactionReader implements ItemReader<Transaction> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class TransactionReader implements ItemStreamReader<Transaction>, PageSource<Transaction> {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionReader.class);
-    private static final int FETCH_LIMIT = 10;
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    /**
+     * Các key params trong JobSetting của step (do TransactionJobController ghi vào)
+     */
+    public static final String PARAM_PAGE_SIZE = "pageSize";
+    public static final String PARAM_DRAIN_MODE = "drainMode";
+    public static final String PARAM_MAX_ROWS = "maxRows";
+    public static final String PARAM_MAX_DURATION_SECONDS = "maxDurationSeconds";
+    public static final String PARAM_PREFETCH_PAGES = "prefetchPages";
 
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionLeaseService transactionLeaseService;
+
+    @Autowired
+    private CircuitBreaker externalApiCircuitBreaker;
+
+    @Autowired
+    private TransactionIdempotencyService transactionIdempotencyService;
+
     private List<Transaction> currentPageData;
     private int currentIndex = 0;
     private boolean initialized = false;
-    private boolean hasLoadedData = false; // Flag để đảm bảo chỉ load một lần 10 items
+    private boolean hasLoadedData = false; // Flag để biết đã load trang đầu tiên hay chưa
+    private boolean exhausted = false; // Hết data hoặc hết budget, không lấy thêm trang nào nữa
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private boolean drainMode = false;
+    private long maxRows = 0; // 0 = không giới hạn
+    private long maxDurationMillis = 0; // 0 = không giới hạn
+
+    private long claimedRows = 0;
+    private long startedAtMillis;
+
+    private int partitionIndex = 0;
+    private int partitionCount = 1; // 1 = không chia partition
+
+    private volatile String leaseOwner;
+
+    /**
+     * Cấu hình reader cho lần chạy tiếp theo
+     *
+     * @param pageSize số rows lấy mỗi trang (<= 0 thì dùng mặc định)
+     * @param drainMode true để tiếp tục lấy trang mới cho đến khi hết data hoặc hết budget
+     * @param maxRows giới hạn tổng số rows lấy trong một lần chạy (0 = không giới hạn)
+     * @param maxDurationMillis giới hạn thời gian lấy trang mới (0 = không giới hạn)
+     */
+    public void configure(int pageSize, boolean drainMode, long maxRows, long maxDurationMillis) {
+        this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        this.drainMode = drainMode;
+        this.maxRows = Math.max(0, maxRows);
+        this.maxDurationMillis = Math.max(0, maxDurationMillis);
+    }
 
     /**
      * Khởi tạo reader
      */
     public void initialize() {
         reset();
-        log.info("TransactionReader initialized - Using JPA repository with fetch limit: {}", FETCH_LIMIT);
+        startedAtMillis = System.currentTimeMillis();
+        log.info("TransactionReader initialized - pageSize: {}, drainMode: {}, maxRows: {}, maxDurationMillis: {}",
+            pageSize, drainMode, maxRows, maxDurationMillis);
     }
 
     @Override
-    public Transaction read() throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
-        if (!initialized) {
-            initialize();
-            initialized = true;
-        }
-
-        // Chỉ load data một lần duy nhất (10 items)
-        // Sau đó return null để dừng việc đọc thêm
-        if (!hasLoadedData) {
-            currentPageData = loadNextPage();
-            hasLoadedData = true;
+    public synchronized Transaction read() throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
+        // Hết trang hiện tại thì lấy trang tiếp theo (nếu còn)
+        if (currentPageData == null || currentIndex >= currentPageData.size()) {
+            currentPageData = nextPage();
             currentIndex = 0;
-            
+
             // Nếu không còn data, return null để kết thúc reading
-            if (currentPageData == null || currentPageData.isEmpty()) {
-                log.info("No more transactions to read (status IS NULL)");
+            if (currentPageData.isEmpty()) {
+                log.info("Finished reading {} transactions for this job execution", claimedRows);
                 return null;
             }
         }
 
-        // Nếu đã hết data trong trang hiện tại, return null để kết thúc
-        if (currentIndex >= currentPageData.size()) {
-            log.info("Finished reading {} transactions for this job execution", currentPageData.size());
-            return null;
-        }
-
         // Lấy transaction tiếp theo từ trang hiện tại
         Transaction transaction = currentPageData.get(currentIndex);
         currentIndex++;
-        
-        log.debug("Reading transaction from repository: id={}, branch={}, name={}, amount={}", 
+
+        log.debug("Reading transaction from repository: id={}, branch={}, name={}, amount={}",
             transaction.getId(), transaction.getBranch(), transaction.getName(), transaction.getAmount());
-        
+
         return transaction;
     }
 
+    /**
+     * Claim trang tiếp theo: ở chế độ thường chỉ load một trang duy nhất,
+     * ở chế độ draining thì load trang tiếp theo nếu còn budget
+     */
+    @Override
+    public synchronized List<Transaction> nextPage() {
+        if (!initialized) {
+            initialize();
+            initialized = true;
+        }
+        if (exhausted || (hasLoadedData && !drainMode)) {
+            return List.of();
+        }
+
+        List<Transaction> page = loadNextPage();
+        hasLoadedData = true;
+        if (page == null || page.isEmpty()) {
+            exhausted = true;
+            log.info("No more transactions to claim (status IS NULL), total claimed: {}", claimedRows);
+            return List.of();
+        }
+        return page;
+    }
+
+    /**
+     * Trả các transaction đã claim nhưng chưa xử lý về lại hàng đợi (status IS NULL)
+     */
+    @Override
+    public void release(List<Transaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+        int released = transactionRepository.releaseTransactions(ids);
+        log.info("Released {} unprocessed transactions back to the queue", released);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        // Không cần khôi phục trạng thái: các transaction đã claim được đánh dấu PENDING trong DB
+        if (executionContext.containsKey(GridPartitioner.PARTITION_COUNT_KEY)) {
+            partitionIndex = executionContext.getInt(GridPartitioner.PARTITION_INDEX_KEY);
+            partitionCount = executionContext.getInt(GridPartitioner.PARTITION_COUNT_KEY);
+            log.info("TransactionReader claims partition {}/{}", partitionIndex, partitionCount);
+        }
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        registerLeaseOwner(stepContext != null ? stepContext.getStepExecution().getId() : null);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        // Không lưu trạng thái vào ExecutionContext
+    }
+
+    /**
+     * Khi step kết thúc (kể cả khi lỗi), release phần còn lại của trang hiện tại chưa được đọc
+     */
+    @Override
+    public synchronized void close() throws ItemStreamException {
+        if (currentPageData != null && currentIndex < currentPageData.size()) {
+            try {
+                release(new ArrayList<>(currentPageData.subList(currentIndex, currentPageData.size())));
+            } catch (Exception e) {
+                log.error("Error releasing unprocessed transactions: {}", e.getMessage(), e);
+            }
+        }
+        currentPageData = null;
+        currentIndex = 0;
+
+        // Không gia hạn lease nữa: các transaction chưa được ghi status (nếu có) sẽ hết lease và được sweeper trả lại
+        if (leaseOwner != null) {
+            transactionLeaseService.unregister(leaseOwner);
+            leaseOwner = null;
+        }
+    }
+
+    private void registerLeaseOwner(Long stepExecutionId) {
+        if (leaseOwner != null) {
+            transactionLeaseService.unregister(leaseOwner);
+        }
+        leaseOwner = transactionLeaseService.newOwner(stepExecutionId);
+        transactionLeaseService.register(leaseOwner);
+        log.info("TransactionReader claims transactions with lease owner {}", leaseOwner);
+    }
+
     /**
      * Load trang tiếp theo từ database thông qua repository
-     * Mỗi lần gọi sẽ lock tối đa 10 rows có status IS NULL, cập nhật status = 'PENDING'
+     * Mỗi lần gọi sẽ lock tối đa pageSize rows có status IS NULL, cập nhật status = 'PENDING'
      * nhằm đảm bảo không job nào khác lấy trùng dữ liệu.
+     * Trả về null khi đã hết budget (số rows hoặc thời gian).
      */
     private List<Transaction> loadNextPage() {
+        int limit = pageSize;
+        if (maxRows > 0) {
+            long remaining = maxRows - claimedRows;
+            if (remaining <= 0) {
+                log.info("Row budget reached ({} rows), stop claiming transactions", maxRows);
+                return null;
+            }
+            limit = (int) Math.min(limit, remaining);
+        }
+        if (maxDurationMillis > 0 && System.currentTimeMillis() - startedAtMillis >= maxDurationMillis) {
+            log.info("Time budget reached ({} ms), stop claiming transactions", maxDurationMillis);
+            return null;
+        }
+
+        if (!awaitExternalApiAvailable()) {
+            return null;
+        }
+
+        // Reader được dùng ngoài step (không qua open()): vẫn cần owner để claim có lease
+        if (leaseOwner == null) {
+            registerLeaseOwner(null);
+        }
+
         try {
-            List<Transaction> transactions = transactionRepository.fetchAndMarkTransactions(FETCH_LIMIT);
+            List<Transaction> transactions = transactionRepository.claimTransactions(limit, partitionIndex, partitionCount,
+                leaseOwner, transactionLeaseService.getLeaseSeconds());
 
             if (transactions != null && !transactions.isEmpty()) {
-                log.info("Loaded {} transactions via JPA repository (status updated to PENDING)", transactions.size());
+                claimedRows += transactions.size();
+                log.info("Claimed {} transactions (status updated to PENDING), total claimed: {}",
+                    transactions.size(), claimedRows);
+                transactionIdempotencyService.preload(transactions);
                 return transactions;
             } else {
                 log.info("No more transactions to load (no rows with status IS NULL)");
@@ -98,28 +284,59 @@ public class TransactionReader implements ItemReader<Transaction> {
         }
     }
 
+    /**
+     * Tạm dừng claim khi circuit breaker của external API đang mở
+     *
+     * @return false nếu không claim tiếp (không ở chế độ draining, hết thời gian cho phép hoặc bị interrupt)
+     */
+    private boolean awaitExternalApiAvailable() {
+        while (!externalApiCircuitBreaker.isCallPermitted()) {
+            long waitMillis = Math.max(100, externalApiCircuitBreaker.getRemainingOpenMillis());
+            if (!drainMode) {
+                log.warn("External API circuit breaker is open, stop claiming transactions");
+                return false;
+            }
+            if (maxDurationMillis > 0
+                    && System.currentTimeMillis() + waitMillis - startedAtMillis >= maxDurationMillis) {
+                log.warn("External API circuit breaker is open until after the time budget, stop claiming transactions");
+                return false;
+            }
+            log.warn("External API circuit breaker is open, pause claiming transactions for {} ms", waitMillis);
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Reset reader để có thể đọc lại từ đầu
      */
-    public void reset() {
+    public synchronized void reset() {
         log.info("Resetting TransactionReader");
         currentIndex = 0;
         currentPageData = null;
         initialized = false;
         hasLoadedData = false; // Reset flag để có thể load lại trong lần chạy job tiếp theo
-    }
-
-    /**
-     * Get total count của transactions còn chưa xử lý (status IS NULL)
-     */
-    public long getTotalCount() {
-        return transactionRepository.countByStatusIsNull();
+        exhausted = false;
+        claimedRows = 0;
     }
 
     /**
      * Get fetch limit
      */
     public int getPageSize() {
-        return FETCH_LIMIT;
+        return pageSize;
+    }
+
+    public boolean isDrainMode() {
+        return drainMode;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
     }
 }
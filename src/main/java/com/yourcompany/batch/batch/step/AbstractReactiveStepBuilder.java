@@ -0,0 +1,78 @@
+package com.yourcompany.batch.batch.step;
+
+import com.yourcompany.batch.batch.processor.ReactiveItemProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Step builder cho các step gọi API non-blocking: processor trả về Mono, mỗi chunk được xử lý
+ * dưới dạng Flux với flatMap(reactiveConcurrency) (ReactiveItemProcessor), nên hàng nghìn lời gọi
+ * có thể đồng thời trên vài thread event loop, không cần virtual threads.
+ *
+ * reactiveConcurrency mặc định bằng số connection của WebClient (external.api.reactive.max-connections):
+ * lời gọi vượt quá số connection chỉ chờ connection và bị RETRY khi hết external.api.pool.acquire-timeout,
+ * nên muốn nhiều lời gọi đồng thời hơn thì tăng max-connections.
+ *
+ * prepareChunk được gọi một lần cho các item của chunk trước khi xử lý (trên thread của step, được phép
+ * block), dùng để tra DB cho cả chunk thay vì cho từng item. Builder là singleton nên kết quả tra không được
+ * giữ trong field: prepareChunk trả về hàm xử lý các item của chunk, giữ kết quả đó trong closure.
+ *
+ * processorConcurrency và RetryingItemProcessor không áp dụng cho step reactive:
+ * retry / timeout được khai báo trực tiếp trên Mono (retryWhen, timeout...).
+ */
+public abstract class AbstractReactiveStepBuilder<I, O> extends AbstractStepBuilder<I, O> {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractReactiveStepBuilder.class);
+
+    public static final String PARAM_REACTIVE_CONCURRENCY = "reactiveConcurrency";
+
+    @Value("${external.api.reactive.max-connections:${external.api.pool.max-total:200}}")
+    private int maxConnections;
+
+    /**
+     * Xử lý một item, không được block (Mono rỗng = lọc item); dùng cho item không được prepareChunk
+     * (xử lý lại riêng lẻ sau rollback) và mặc định cho mọi item
+     */
+    protected abstract Mono<O> processReactive(I item);
+
+    /**
+     * Chuẩn bị cho các item của chunk, trả về hàm xử lý các item của chunk đó (mặc định processReactive)
+     */
+    protected Function<I, Mono<O>> prepareChunk(List<I> items) {
+        return this::processReactive;
+    }
+
+    /**
+     * Số item được xử lý đồng thời trong một chunk (param reactiveConcurrency trong JobSetting của step),
+     * mặc định bằng số connection tối đa của WebClient
+     */
+    protected int getReactiveConcurrency() {
+        return Math.max(1, getIntParameter(PARAM_REACTIVE_CONCURRENCY, maxConnections));
+    }
+
+    @Override
+    protected final ItemProcessor<I, O> processor() {
+        int concurrency = getReactiveConcurrency();
+        if (concurrency > maxConnections) {
+            log.warn("Step {} reactiveConcurrency {} exceeds the WebClient connection pool ({}), "
+                + "calls beyond the pool wait for a connection", getStepName(), concurrency, maxConnections);
+        }
+        return new ReactiveItemProcessor<>(this::processReactive, this::prepareChunk, concurrency, getStepName());
+    }
+
+    @Override
+    protected final int getProcessorConcurrency() {
+        return 1;
+    }
+
+    @Override
+    protected final List<Class<? extends Throwable>> retryableExceptions() {
+        return List.of();
+    }
+}
@@ -1,28 +1,48 @@
 package com.yourcompany.batch.batch.step;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.*;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
+import com.yourcompany.batch.batch.processor.ConcurrentItemProcessor;
+import com.yourcompany.batch.batch.processor.RetryingItemProcessor;
+import com.yourcompany.batch.batch.reader.ExecutionScopedItemReader;
 import com.yourcompany.batch.domain.JobLog;
 import com.yourcompany.batch.domain.JobLogResult;
 import com.yourcompany.batch.domain.enumeration.LogTypeEnum;
-import com.yourcompany.batch.repository.JobLogRepository;
 import com.yourcompany.batch.repository.JobLogResultRepository;
+import com.yourcompany.batch.service.JobLogSink;
+import com.yourcompany.batch.service.JobSettingService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractStepBuilder<I, O> {
@@ -31,18 +51,37 @@ public abstract class AbstractStepBuilder<I, O> {
     private static final int CHUNK_SIZE = 1000;
     private static final int SKIP_LIMIT = 99;
     private static final int CHUNK_PROCESS_LOG_SIZE = 1000;
+    private static final String LAST_WRITE_COUNT_KEY = "abstractStepBuilder.lastWriteCount";
+
+    public static final String PARAM_GRID_SIZE = "gridSize";
+    public static final String PARAM_PROCESSOR_CONCURRENCY = "processorConcurrency";
+    public static final String PARAM_SKIP_LIMIT = "skipLimit";
+    public static final String PARAM_RETRY_MAX_ATTEMPTS = "retryMaxAttempts";
+    public static final String PARAM_RETRY_BACKOFF_MS = "retryBackoffMs";
+    public static final String PARAM_RETRY_MAX_BACKOFF_MS = "retryMaxBackoffMs";
+    public static final String PARAM_RETRY_BUDGET = "retryBudget";
+    public static final String PARAM_CHUNK_SIZE = "chunkSize";
+    public static final String PARAM_ADAPTIVE_CHUNK = "adaptiveChunk";
+    public static final String PARAM_CHUNK_TARGET_MS = "chunkTargetMs";
+    public static final String PARAM_CHUNK_MIN_SIZE = "chunkMinSize";
+    public static final String PARAM_CHUNK_MAX_SIZE = "chunkMaxSize";
+    public static final String PARAM_THREADS = "threads";
+
+    private static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_BACKOFF_MS = 200;
+    private static final long DEFAULT_RETRY_MAX_BACKOFF_MS = 5000;
+    private static final int DEFAULT_RETRY_BUDGET = 1000;
+    private static final long DEFAULT_CHUNK_TARGET_MS = 5000;
+    private static final int DEFAULT_CHUNK_MIN_SIZE = 10;
+    private static final int DEFAULT_CHUNK_MAX_SIZE = 5000;
 
-    private AtomicInteger numberOfProcessed = new AtomicInteger(-1);
-    private AtomicInteger numberOfFailures = new AtomicInteger(-1);
-    private int totalItems = -1;
-    private Instant startTime;
-    private Instant endTime;
     final Class<I> inputClass;
-    private String jobName;
-    private Long stepExecutionId;
-    private Long jobExecutionId;
-    private String noteResult;
+    // Trạng thái của các lần chạy step đang diễn ra, theo JobExecution (xem StepRunContext)
+    private final Map<Long, StepRunContext> runContexts = new ConcurrentHashMap<>();
     private LinkedHashMap<String, Object> parameters;
+    private LinkedHashMap<String, Object> stepSettings = new LinkedHashMap<>();
+    // Chunk size hiện tại (metric batch.chunk.size), cùng một object cho mọi lần build step
+    private final AtomicInteger currentChunkSize = new AtomicInteger();
 
     @Autowired
     protected org.springframework.batch.core.repository.JobRepository jobRepository;
@@ -51,11 +90,20 @@ public abstract class AbstractStepBuilder<I, O> {
     protected PlatformTransactionManager transactionManager;
 
     @Autowired
-    private JobLogRepository jobLogRepository;
+    private JobLogSink jobLogSink;
 
     @Autowired
     private JobLogResultRepository jobLogResultRepository;
 
+    @Autowired
+    private JobSettingService jobSettingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @SuppressWarnings("unchecked")
     public AbstractStepBuilder() {
         Type t = getClass().getGenericSuperclass();
@@ -74,34 +122,177 @@ public abstract class AbstractStepBuilder<I, O> {
         this.parameters = parameters;
     }
 
+    /**
+     * Params của step: params trong JobSetting (jobName = tên step) làm mặc định,
+     * params truyền qua StepFactory sẽ ghi đè. Được load lại mỗi lần build step.
+     */
+    protected Object getParameter(String key) {
+        return stepSettings.get(key);
+    }
+
+    protected int getIntParameter(String key, int defaultValue) {
+        return (int) getLongParameter(key, defaultValue);
+    }
+
+    protected long getLongParameter(String key, long defaultValue) {
+        Object value = stepSettings.get(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String str && StringUtils.isNotBlank(str)) {
+            try {
+                return Long.parseLong(str.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid number for param {} of step {}: {}", key, getStepName(), str);
+            }
+        }
+        return defaultValue;
+    }
+
+    protected boolean getBooleanParameter(String key, boolean defaultValue) {
+        Object value = stepSettings.get(key);
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof String str && StringUtils.isNotBlank(str)) {
+            return Boolean.parseBoolean(str.trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Param dạng chuỗi (đã trim), null khi không có hoặc rỗng
+     */
+    protected String getStringParameter(String key) {
+        Object value = stepSettings.get(key);
+        return value != null && StringUtils.isNotBlank(String.valueOf(value)) ? String.valueOf(value).trim() : null;
+    }
+
+    private void loadStepSettings() {
+        LinkedHashMap<String, Object> settings = new LinkedHashMap<>();
+        jobSettingService.findByJobName(getStepName()).ifPresent(jobSetting -> {
+            if (StringUtils.isNotBlank(jobSetting.getParams())) {
+                TypeReference<LinkedHashMap<String, Object>> typeRef = new TypeReference<>() {};
+                try {
+                    LinkedHashMap<String, Object> maps = objectMapper.readValue(jobSetting.getParams(), typeRef);
+                    if (maps != null) {
+                        settings.putAll(maps);
+                    }
+                } catch (IOException e) {
+                    log.error("Invalid params in job setting {}: {}", getStepName(), e.getMessage(), e);
+                }
+            }
+        });
+        if (parameters != null) {
+            settings.putAll(parameters);
+        }
+        this.stepSettings = settings;
+    }
+
+    /**
+     * Trạng thái của lần chạy step trên thread hiện tại (thread của step, thread xử lý chunk hoặc partition).
+     * Ngoài các thread đó (ví dụ virtual thread của ConcurrentItemProcessor) trả về context rỗng.
+     */
+    protected StepRunContext getRunContext() {
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepRunContext runContext = stepContext != null
+            ? runContexts.get(stepContext.getStepExecution().getJobExecutionId())
+            : null;
+        return runContext != null ? runContext : StepRunContext.detached();
+    }
+
     protected int getNumberOfProcessed() {
-        return this.numberOfProcessed.get();
+        return getRunContext().getNumberOfProcessed();
+    }
+
+    /**
+     * Thời gian và tốc độ xử lý của lần chạy step tính đến hiện tại, dạng "in {ms} ms ({items/s} rows/s)",
+     * dùng cho tóm tắt kết quả ở afterStep
+     */
+    protected String formatThroughput() {
+        Instant startTime = getRunContext().getStartTime();
+        long elapsedMillis = startTime != null ? Math.max(1, Duration.between(startTime, Instant.now()).toMillis()) : 1;
+        long rowsPerSecond = getNumberOfProcessed() * 1000L / elapsedMillis;
+        return "in " + elapsedMillis + " ms (" + rowsPerSecond + " rows/s)";
     }
 
     protected int getNumberOfFailures() {
-        return this.numberOfFailures.get();
+        return getRunContext().getNumberOfFailures();
+    }
+
+    /**
+     * Ghi nhận các item thất bại nhưng không bị skip (ví dụ kết quả lỗi từng phần của một batch call)
+     */
+    protected void addNumberOfFailures(int count) {
+        getRunContext().addNumberOfFailures(count);
     }
 
+    /**
+     * Chunk size (param chunkSize trong JobSetting của step), là chunk size ban đầu khi adaptiveChunk = true
+     */
     protected int getChunkSize() {
-        return CHUNK_SIZE;
+        return Math.max(1, getIntParameter(PARAM_CHUNK_SIZE, CHUNK_SIZE));
+    }
+
+    /**
+     * Chunk size tự điều chỉnh theo thời gian xử lý chunk (param adaptiveChunk trong JobSetting của step):
+     * chunk size thay đổi trong [chunkMinSize, chunkMaxSize] để mỗi chunk mất khoảng chunkTargetMs
+     */
+    protected boolean isAdaptiveChunkSize() {
+        return getBooleanParameter(PARAM_ADAPTIVE_CHUNK, false);
     }
 
     protected abstract int countTotalItems();
 
     public final int getTotalItems() {
-        return this.totalItems;
+        return getRunContext().getTotalItems();
     }
 
     protected abstract String getStepName();
 
     protected String getJobName() {
-        return this.jobName;
+        return getRunContext().getJobName();
     }
 
     protected void beforeStep(StepExecution stepExecution) {}
 
     protected void afterStep(StepExecution stepExecution) {}
 
+    /**
+     * Các hook khi item bị skip, được gọi trong transaction của chunk ngay trước khi commit
+     */
+    protected void onSkipInRead(Throwable t) {}
+
+    protected void onSkipInProcess(I item, Throwable t) {}
+
+    protected void onSkipInWrite(O item, Throwable t) {}
+
+    /**
+     * Các exception tạm thời được processor thử lại từng item (exponential backoff + jitter, retry budget theo step).
+     * Mặc định rỗng: không thử lại, lỗi của item được skip như bình thường.
+     *
+     * Chỉ thử lại khi processorConcurrency > 1: backoff chặn thread gọi processor, với processorConcurrency = 1
+     * đó là thread của chunk đang giữ transaction, connection DB và lease của các rows đã claim, nên khi đó
+     * item chỉ được thử một lần rồi chuyển sang onRetryExhausted (ví dụ lọc để claim lại sau).
+     */
+    protected List<Class<? extends Throwable>> retryableExceptions() {
+        return List.of();
+    }
+
+    /**
+     * Hook khi item vẫn lỗi với exception retryable sau khi đã hết số lần thử (hoặc hết retry budget).
+     * Mặc định ném lại exception (item bị skip); trả về null để lọc item (xem onProcessFiltered).
+     * Có thể được gọi ngoài thread của step khi processorConcurrency > 1.
+     */
+    protected O onRetryExhausted(I item, Exception e) throws Exception {
+        throw e;
+    }
+
+    /**
+     * Hook khi processor trả về null (item bị lọc, không ghi), được gọi trong transaction của chunk
+     */
+    protected void onProcessFiltered(I item) {}
+
     protected String getLogMessageAtStart() {
         return null;
     }
@@ -113,15 +304,15 @@ public abstract class AbstractStepBuilder<I, O> {
     protected abstract ItemWriter<O> writer();
 
     protected void setNoteResult(String note) {
-        this.noteResult = note;
+        getRunContext().setNoteResult(note);
     }
 
     protected Long getStepExecutionId() {
-        return this.stepExecutionId;
+        return getRunContext().getStepExecutionId();
     }
 
     protected Long getJobExecutionId() {
-        return this.jobExecutionId;
+        return getRunContext().getJobExecutionId();
     }
 
     protected final void addJobLog(LogTypeEnum logType, String message) {
@@ -137,27 +328,118 @@ public abstract class AbstractStepBuilder<I, O> {
     }
 
     private void addJobLog(String stepName, LogTypeEnum logType, String message, String note) {
+        StepRunContext runContext = getRunContext();
         JobLog jobLog = new JobLog();
         jobLog.setJobName(stepName);
         jobLog.setLogType(logType);
         jobLog.setMessage(message);
         jobLog.setNote(note);
-        jobLog.setStepExecutionId(stepExecutionId);
-        jobLog.setJobExecutionId(jobExecutionId);
-        jobLog.setCreatedBy(getJobName());
+        jobLog.setStepExecutionId(runContext.getStepExecutionId());
+        jobLog.setJobExecutionId(runContext.getJobExecutionId());
+        jobLog.setCreatedBy(runContext.getJobName());
         jobLog.setCreatedDate(Instant.now());
-        jobLogRepository.save(jobLog);
+        // Ghi bất đồng bộ theo lô, không chiếm thời gian / transaction của chunk
+        jobLogSink.add(jobLog);
+    }
+
+    /**
+     * Partitioner để chạy step dạng partitioned (manager + worker song song).
+     * Mặc định null: step chạy single-threaded như bình thường.
+     */
+    protected Partitioner partitioner() {
+        return null;
+    }
+
+    /**
+     * Số partition (param gridSize trong JobSetting của step), mặc định 1 = không chia partition
+     */
+    protected int getGridSize() {
+        return Math.max(1, getIntParameter(PARAM_GRID_SIZE, 1));
+    }
+
+    /**
+     * TaskExecutor chạy các worker partition, mỗi partition một thread
+     */
+    protected TaskExecutor partitionTaskExecutor(int gridSize) {
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(getStepName() + "-partition-");
+        taskExecutor.setConcurrencyLimit(gridSize);
+        return taskExecutor;
+    }
+
+    /**
+     * Số thread xử lý chunk song song trong một step execution (param threads trong JobSetting của step),
+     * mặc định 1 = các chunk chạy tuần tự trên thread của step. Reader phải thread-safe khi threads > 1.
+     */
+    protected int getThreads() {
+        return Math.max(1, getIntParameter(PARAM_THREADS, 1));
+    }
+
+    /**
+     * TaskExecutor chạy các chunk của step khi threads > 1, tối đa threads chunk cùng lúc
+     */
+    protected TaskExecutor stepTaskExecutor(int threads) {
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(getStepName() + "-chunk-");
+        taskExecutor.setConcurrencyLimit(threads);
+        return taskExecutor;
+    }
+
+    /**
+     * Số item của chunk được xử lý song song trên virtual threads (param processorConcurrency
+     * trong JobSetting của step), mặc định 1 = xử lý tuần tự trên thread của step
+     */
+    protected int getProcessorConcurrency() {
+        return Math.max(1, getIntParameter(PARAM_PROCESSOR_CONCURRENCY, 1));
     }
 
     public Step build() {
-        return new StepBuilder(this.getStepName(), jobRepository)
-            .<I, O>chunk(getChunkSize(), transactionManager)
-            .reader(reader())
-            .processor(processor())
+        loadStepSettings();
+        Partitioner partitioner = partitioner();
+        int gridSize = getGridSize();
+        if (partitioner == null || gridSize <= 1) {
+            return chunkStepBuilder(getStepName(), reader())
+                .listener(stepExecutionListener())
+                .build();
+        }
+
+        // Partitioned: mỗi worker có reader riêng (tạo lại qua reader() cho từng StepExecution),
+        // log START/END và kết quả được ghi một lần ở manager step
+        log.info("Building partitioned step {} with gridSize {}", getStepName(), gridSize);
+        String workerStepName = getStepName() + ":worker";
+        Step workerStep = chunkStepBuilder(workerStepName, new ExecutionScopedItemReader<>(this::reader)).build();
+        return new StepBuilder(getStepName(), jobRepository)
+            .partitioner(workerStepName, partitioner)
+            .step(workerStep)
+            .gridSize(gridSize)
+            .taskExecutor(partitionTaskExecutor(gridSize))
+            .listener(stepExecutionListener())
+            .build();
+    }
+
+    @SuppressWarnings("removal")
+    private FaultTolerantStepBuilder<I, O> chunkStepBuilder(String stepName, ItemReader<I> reader) {
+        AdaptiveChunkSizePolicy chunkSizePolicy = buildChunkSizePolicy();
+        SimpleStepBuilder<I, O> stepBuilder;
+        if (chunkSizePolicy == null) {
+            stepBuilder = new StepBuilder(stepName, jobRepository).<I, O>chunk(getChunkSize(), transactionManager);
+        } else {
+            // Policy đo thời gian đọc / xử lý / ghi của từng chunk (item listener) và điều chỉnh chunk size
+            stepBuilder = new StepBuilder(stepName, jobRepository).<I, O>chunk(chunkSizePolicy, transactionManager);
+            stepBuilder.listener((ItemReadListener<Object>) chunkSizePolicy);
+            stepBuilder.listener((ChunkListener) chunkSizePolicy);
+            stepBuilder.listener((StepExecutionListener) chunkSizePolicy);
+        }
+        int threads = getThreads();
+        if (threads > 1) {
+            // Các chunk chạy song song trên threads thread, throttleLimit mặc định (4) được nâng lên bằng threads
+            log.info("Step {} processes up to {} chunks in parallel", stepName, threads);
+            stepBuilder.taskExecutor(stepTaskExecutor(threads));
+            stepBuilder.throttleLimit(threads);
+        }
+        return stepBuilder
+            .reader(reader)
+            .processor(buildProcessor())
             .writer(writer())
             .listener(new org.springframework.batch.core.ChunkListener() {
-                int numItemPerLog = 0;
-
                 @Override
                 public void beforeChunk(ChunkContext context) {
                     // WebSocket notification if needed
@@ -166,12 +448,24 @@ public abstract class AbstractStepBuilder<I, O> {
                 @Override
                 public void afterChunk(ChunkContext context) {
                     try {
-                        long writeCount = context.getStepContext().getStepExecution().getWriteCount();
-                        int processed = numberOfProcessed.addAndGet((int) writeCount);
-                        numItemPerLog += (int) writeCount;
-                        if (numItemPerLog >= CHUNK_PROCESS_LOG_SIZE || writeCount < getChunkSize()) {
-                            addJobLog(LogTypeEnum.COUNT, "Count: " + processed + "/" + totalItems, String.valueOf(getParameters()));
-                            numItemPerLog = 0;
+                        // getWriteCount() là số cộng dồn của cả step, chỉ lấy phần tăng thêm của chunk này
+                        StepExecution stepExecution = context.getStepContext().getStepExecution();
+                        int chunkWriteCount;
+                        synchronized (stepExecution) {
+                            // Các chunk có thể kết thúc song song (threads > 1)
+                            long writeCount = stepExecution.getWriteCount();
+                            long lastWriteCount = stepExecution.getExecutionContext().getLong(LAST_WRITE_COUNT_KEY, 0L);
+                            stepExecution.getExecutionContext().putLong(LAST_WRITE_COUNT_KEY, writeCount);
+                            chunkWriteCount = (int) (writeCount - lastWriteCount);
+                        }
+                        StepRunContext runContext = getRunContext();
+                        int processed = runContext.addNumberOfProcessed(chunkWriteCount);
+                        int itemsSinceLastLog = runContext.addItemsSinceLastLog(chunkWriteCount);
+                        int chunkSize = chunkSizePolicy != null ? chunkSizePolicy.getChunkSize(stepExecution) : getChunkSize();
+                        if (itemsSinceLastLog >= CHUNK_PROCESS_LOG_SIZE || chunkWriteCount < chunkSize) {
+                            runContext.resetItemsSinceLastLog();
+                            addJobLog(LogTypeEnum.COUNT, "Count: " + processed + "/" + runContext.getTotalItems(),
+                                String.valueOf(getParameters()));
                         }
                     } catch (Exception ex) {
                         log.error("Error in afterChunk", ex);
@@ -184,7 +478,6 @@ public abstract class AbstractStepBuilder<I, O> {
                         ? null 
                         : context.getStepContext().getStepExecution().getFailureExceptions().get(0);
                     if (throwable != null) {
-                        numberOfFailures.incrementAndGet();
                         log.error("AbstractStepBuilder.afterChunkError", throwable);
                         String message = throwable.getMessage();
                         if (message != null && message.length() > 4000) {
@@ -194,6 +487,14 @@ public abstract class AbstractStepBuilder<I, O> {
                     }
                 }
             })
+            .listener(new org.springframework.batch.core.ItemProcessListener<I, O>() {
+                @Override
+                public void afterProcess(I item, O result) {
+                    if (result == null) {
+                        AbstractStepBuilder.this.onProcessFiltered(item);
+                    }
+                }
+            })
             .faultTolerant()
             .skipLimit(getSkipLimit())
             .skip(Exception.class)
@@ -202,108 +503,177 @@ public abstract class AbstractStepBuilder<I, O> {
                 @Override
                 public void onSkipInRead(Throwable t) {
                     log.error("AbstractStepBuilder.onSkipInRead", t);
+                    getRunContext().addNumberOfFailures(1);
                     String message = t.getMessage();
                     if (message != null && message.length() > 4000) {
                         message = message.substring(0, 4000);
                     }
                     addJobError(message, t);
+                    AbstractStepBuilder.this.onSkipInRead(t);
                 }
 
                 @Override
                 @Transactional
                 public void onSkipInWrite(O item, Throwable t) {
                     log.error("AbstractStepBuilder.onSkipInWrite", t);
-                    numberOfFailures.decrementAndGet();
+                    getRunContext().addNumberOfFailures(1);
                     String message = t.getMessage();
                     if (message != null && message.length() > 4000) {
                         message = message.substring(0, 4000);
                     }
                     addJobError(message, t);
+                    AbstractStepBuilder.this.onSkipInWrite(item, t);
                 }
 
                 @Override
                 public void onSkipInProcess(I item, Throwable t) {
                     log.error("AbstractStepBuilder.onSkipInProcess", t);
+                    getRunContext().addNumberOfFailures(1);
                     String message = t.getMessage();
                     if (message != null && message.length() > 4000) {
                         message = message.substring(0, 4000);
                     }
                     addJobError(message, t);
+                    AbstractStepBuilder.this.onSkipInProcess(item, t);
                 }
-            })
-            .listener(new StepExecutionListener() {
-                @Override
-                @Transactional
-                public void beforeStep(StepExecution stepExecution) {
-                    log.info("BATCH JOB STEP NAME {} - BATCH JOB EXECUTION ID {} STARTING...", 
-                        stepExecution.getStepName(), stepExecution.getJobExecutionId());
-                    numberOfProcessed = new AtomicInteger(0);
-                    numberOfFailures = new AtomicInteger(0);
-                    startTime = Instant.now();
-                    jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
-                    stepExecutionId = stepExecution.getId();
-                    jobExecutionId = stepExecution.getJobExecutionId();
-                    AbstractStepBuilder.this.beforeStep(stepExecution);
-                    if (!stepExecution.isTerminateOnly()) {
-                        totalItems = countTotalItems();
-                        if (noteResult == null) {
-                            noteResult = "Total: " + totalItems;
-                        }
-                    } else {
-                        if (noteResult == null) {
-                            noteResult = "Terminate Step";
-                        }
-                    }
-                    addJobLog(LogTypeEnum.START, getLogMessageAtStart(), "Total: " + totalItems + ", " + getParameters());
-                }
+            });
+    }
 
-                @Override
-                @Transactional
-                public ExitStatus afterStep(StepExecution stepExecution) {
-                    endTime = Instant.now();
-                    addJobLog(LogTypeEnum.END, "Count: " + numberOfProcessed.get() + "/" + totalItems, String.valueOf(getParameters()));
-                    String status = stepExecution.getStatus() != null ? stepExecution.getStatus().name() : null;
+    /**
+     * CompletionPolicy tự điều chỉnh chunk size, null nếu step dùng chunk size cố định.
+     * Chunk size hiện tại được expose qua metric batch.chunk.size (tag step).
+     */
+    private AdaptiveChunkSizePolicy buildChunkSizePolicy() {
+        Gauge.builder("batch.chunk.size", currentChunkSize, AtomicInteger::get)
+            .description("Current chunk size of the step")
+            .tag("step", getStepName())
+            .register(meterRegistry);
+        currentChunkSize.set(getChunkSize());
+        if (!isAdaptiveChunkSize()) {
+            return null;
+        }
+        AdaptiveChunkSizePolicy policy = new AdaptiveChunkSizePolicy(getStepName(), getChunkSize(),
+            getIntParameter(PARAM_CHUNK_MIN_SIZE, DEFAULT_CHUNK_MIN_SIZE),
+            getIntParameter(PARAM_CHUNK_MAX_SIZE, DEFAULT_CHUNK_MAX_SIZE),
+            getLongParameter(PARAM_CHUNK_TARGET_MS, DEFAULT_CHUNK_TARGET_MS),
+            currentChunkSize::set);
+        log.info("Step {} uses adaptive chunk size starting at {}", getStepName(), getChunkSize());
+        return policy;
+    }
 
-                    log.info("BATCH JOB STEP NAME {} - BATCH JOB EXECUTION ID {} COMPLETED WITH STATUS {}", 
-                        stepExecution.getStepName(), stepExecution.getJobExecutionId(), status);
+    /**
+     * Processor của step: processor() được bọc bởi RetryingItemProcessor khi có retryableExceptions(),
+     * và bởi ConcurrentItemProcessor khi processorConcurrency > 1.
+     * Khi đó processor() phải thread-safe và không dùng transaction của chunk.
+     * Với processorConcurrency = 1 RetryingItemProcessor chỉ thử một lần (không backoff trên thread của chunk).
+     */
+    private ItemProcessor<I, O> buildProcessor() {
+        ItemProcessor<I, O> processor = processor();
+        List<Class<? extends Throwable>> retryableExceptions = retryableExceptions();
+        int concurrency = getProcessorConcurrency();
+        if (!retryableExceptions.isEmpty()) {
+            int maxAttempts = getIntParameter(PARAM_RETRY_MAX_ATTEMPTS, DEFAULT_RETRY_MAX_ATTEMPTS);
+            if (concurrency <= 1 && maxAttempts > 1) {
+                // Chỉ cảnh báo khi retryMaxAttempts được cấu hình cho step, giá trị mặc định bị bỏ qua im lặng
+                if (getParameter(PARAM_RETRY_MAX_ATTEMPTS) != null) {
+                    log.warn("Step {} runs the processor on the chunk thread (processorConcurrency = 1), "
+                        + "{} = {} is ignored: items are not retried in-process to avoid holding the chunk transaction "
+                        + "during backoff, set {} > 1 to enable retries", getStepName(), PARAM_RETRY_MAX_ATTEMPTS,
+                        maxAttempts, PARAM_PROCESSOR_CONCURRENCY);
+                }
+                maxAttempts = 1;
+            }
+            // Budget được tạo lại mỗi lần build step, dùng chung cho mọi partition của lần chạy
+            processor = new RetryingItemProcessor<>(processor, retryableExceptions, maxAttempts,
+                getLongParameter(PARAM_RETRY_BACKOFF_MS, DEFAULT_RETRY_BACKOFF_MS),
+                getLongParameter(PARAM_RETRY_MAX_BACKOFF_MS, DEFAULT_RETRY_MAX_BACKOFF_MS),
+                getIntParameter(PARAM_RETRY_BUDGET, DEFAULT_RETRY_BUDGET),
+                this::onRetryExhausted, getStepName());
+        }
+        if (concurrency <= 1) {
+            return processor;
+        }
+        return new ConcurrentItemProcessor<>(processor, concurrency, getStepName());
+    }
 
+    private StepExecutionListener stepExecutionListener() {
+        return new StepExecutionListener() {
+            @Override
+            @Transactional
+            public void beforeStep(StepExecution stepExecution) {
+                log.info("BATCH JOB STEP NAME {} - BATCH JOB EXECUTION ID {} STARTING...", 
+                    stepExecution.getStepName(), stepExecution.getJobExecutionId());
+                StepRunContext runContext = new StepRunContext(
+                    stepExecution.getJobExecution().getJobInstance().getJobName(),
+                    stepExecution.getId(), stepExecution.getJobExecutionId(), Instant.now());
+                runContexts.put(stepExecution.getJobExecutionId(), runContext);
+                AbstractStepBuilder.this.beforeStep(stepExecution);
+                if (!stepExecution.isTerminateOnly()) {
+                    runContext.setTotalItems(countTotalItems());
+                    if (runContext.getNoteResult() == null) {
+                        runContext.setNoteResult("Total: " + runContext.getTotalItems());
+                    }
+                } else {
+                    if (runContext.getNoteResult() == null) {
+                        runContext.setNoteResult("Terminate Step");
+                    }
+                }
+                addJobLog(LogTypeEnum.START, getLogMessageAtStart(), "Total: " + runContext.getTotalItems() + ", " + getParameters());
+            }
+
+            @Override
+            @Transactional
+            public ExitStatus afterStep(StepExecution stepExecution) {
+                StepRunContext runContext = getRunContext();
+                Instant endTime = Instant.now();
+                addJobLog(LogTypeEnum.END, "Count: " + runContext.getNumberOfProcessed() + "/" + runContext.getTotalItems(),
+                    String.valueOf(getParameters()));
+                String status = stepExecution.getStatus() != null ? stepExecution.getStatus().name() : null;
+
+                log.info("BATCH JOB STEP NAME {} - BATCH JOB EXECUTION ID {} COMPLETED WITH STATUS {}", 
+                    stepExecution.getStepName(), stepExecution.getJobExecutionId(), status);
+
+                try {
                     AbstractStepBuilder.this.afterStep(stepExecution);
 
-                    addJobResult(getStepName(), numberOfProcessed.get(), numberOfFailures.get(),
-                        startTime, endTime, noteResult, totalItems, 
+                    addJobResult(getStepName(), runContext, runContext.getNumberOfProcessed(),
+                        runContext.getNumberOfFailures(), endTime,
                         (int) stepExecution.getReadSkipCount(),
                         (int) stepExecution.getProcessSkipCount(),
                         (int) stepExecution.getWriteSkipCount(),
                         (int) stepExecution.getSkipCount(),
-                        SKIP_LIMIT, status);
-
-                    return ExitStatus.COMPLETED;
+                        getSkipLimit(), status);
+                } finally {
+                    // Log của step (kể cả END) phải có trong DB khi step kết thúc
+                    jobLogSink.flush();
+                    runContexts.remove(stepExecution.getJobExecutionId(), runContext);
                 }
-            })
-            .build();
+
+                return ExitStatus.COMPLETED;
+            }
+        };
     }
 
-    private void addJobResult(String stepName, Integer rowRun, Integer rowError, 
-                             Instant startTime, Instant endTime, String note, Integer total,
-                             Integer skipReader, Integer skipProcessor, Integer skipWriter, 
+    private void addJobResult(String stepName, StepRunContext runContext, Integer rowRun, Integer rowError,
+                             Instant endTime, Integer skipReader, Integer skipProcessor, Integer skipWriter,
                              Integer skipTotal, Integer skipLimit, String status) {
         JobLogResult jobLogResult = new JobLogResult();
         jobLogResult.setJobName(stepName);
         jobLogResult.setRowRun(rowRun);
         jobLogResult.setRowError(rowError);
-        jobLogResult.setStartTime(startTime);
+        jobLogResult.setStartTime(runContext.getStartTime());
         jobLogResult.setEndTime(endTime);
-        jobLogResult.setNote(note);
-        jobLogResult.setTotal(total);
+        jobLogResult.setNote(runContext.getNoteResult());
+        jobLogResult.setTotal(runContext.getTotalItems());
         jobLogResult.setSkipReader(skipReader);
         jobLogResult.setSkipProcessor(skipProcessor);
         jobLogResult.setSkipWriter(skipWriter);
         jobLogResult.setSkipTotal(skipTotal);
         jobLogResult.setSkipLimit(skipLimit);
-        jobLogResult.setStepExecutionId(stepExecutionId);
-        jobLogResult.setJobExecutionId(jobExecutionId);
+        jobLogResult.setStepExecutionId(runContext.getStepExecutionId());
+        jobLogResult.setJobExecutionId(runContext.getJobExecutionId());
         jobLogResult.setStatus(status);
-        jobLogResult.setCreatedBy(getJobName());
+        jobLogResult.setCreatedBy(runContext.getJobName());
         jobLogResult.setCreatedDate(Instant.now());
         jobLogResultRepository.save(jobLogResult);
     }
@@ -312,8 +682,11 @@ public abstract class AbstractStepBuilder<I, O> {
     public void afterChunk(ChunkContext chunkContext) {}
     public void afterChunkError(ChunkContext chunkContext) {}
 
+    /**
+     * Số item được skip tối đa trước khi step fail (param skipLimit trong JobSetting của step)
+     */
     public int getSkipLimit() {
-        return SKIP_LIMIT;
+        return Math.max(0, getIntParameter(PARAM_SKIP_LIMIT, SKIP_LIMIT));
     }
 }
 
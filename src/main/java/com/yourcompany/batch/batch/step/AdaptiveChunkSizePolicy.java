@@ -0,0 +1,312 @@
+package com.yourcompany.batch.batch.step;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * CompletionPolicy điều chỉnh chunk size để mỗi chunk (đọc + xử lý + ghi + commit) mất khoảng targetMillis.
+ *
+ * - Thời gian đọc / xử lý / ghi của từng chunk được đo qua các item listener, phần còn lại của chunk
+ *   (commit, listener...) là overhead cố định. Chi phí mỗi item và overhead được làm mượt bằng EWMA,
+ *   chunk size mới = (target - overhead) / chi phí mỗi item, giới hạn trong [minSize, maxSize]
+ *   và thay đổi tối đa 2 lần mỗi chunk để không dao động.
+ * - Chunk bị rollback do ghi / commit lỗi: chunk size giảm một nửa và không tăng lại trong COOLDOWN_CHUNKS chunk;
+ *   tỉ lệ rollback (EWMA) vượt MAX_GROW_ROLLBACK_RATE thì cũng không tăng chunk size.
+ * - Chunk bị rollback chỉ vì processor ném exception cho một item (item bị skip, ví dụ API trả lỗi 4xx) không
+ *   làm giảm chunk size và không tính vào tỉ lệ rollback: lỗi đó không phụ thuộc chunk size, chunk size vẫn
+ *   được điều chỉnh theo thời gian ở các chunk thành công.
+ *
+ * Trạng thái được giữ theo StepExecution, nên các partition của cùng step có chunk size riêng.
+ * Policy phải được đăng ký làm ChunkListener, item listener và StepExecutionListener của step.
+ */
+public class AdaptiveChunkSizePolicy extends CompletionPolicySupport
+        implements ChunkListener, ItemReadListener<Object>, ItemProcessListener<Object, Object>,
+        ItemWriteListener<Object>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveChunkSizePolicy.class);
+
+    private static final double SMOOTHING = 0.3;
+    private static final double MAX_CHANGE_FACTOR = 2.0;
+    private static final double MAX_GROW_ROLLBACK_RATE = 0.1;
+    private static final int COOLDOWN_CHUNKS = 3;
+
+    private final String name;
+    private final int initialSize;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private final IntConsumer sizeListener;
+
+    private final Map<Long, ExecutionState> states = new ConcurrentHashMap<>();
+    // Mỗi chunk chạy trọn trên một thread, thời gian của chunk đang chạy được giữ theo thread
+    private final ThreadLocal<ChunkTiming> timings = new ThreadLocal<>();
+
+    /**
+     * @param sizeListener được gọi khi chunk size thay đổi (ví dụ cập nhật metric)
+     */
+    public AdaptiveChunkSizePolicy(String name, int initialSize, int minSize, int maxSize, long targetMillis,
+                                   IntConsumer sizeListener) {
+        this.name = name;
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.initialSize = Math.min(this.maxSize, Math.max(this.minSize, initialSize));
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetMillis));
+        this.sizeListener = sizeListener;
+    }
+
+    /**
+     * Chunk size hiện tại của step execution
+     */
+    public int getChunkSize(StepExecution stepExecution) {
+        ExecutionState state = stepExecution != null ? states.get(stepExecution.getId()) : null;
+        return state != null ? state.chunkSize : initialSize;
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        // Chunk size được cố định khi bắt đầu chunk
+        return new SizedRepeatContext(parent, currentState().chunkSize);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return result == null || !result.isContinuable() || isComplete(context);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context instanceof SizedRepeatContext sized && sized.getStartedCount() >= sized.size;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        states.put(stepExecution.getId(), new ExecutionState(initialSize));
+        sizeListener.accept(initialSize);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ExecutionState state = states.remove(stepExecution.getId());
+        if (state != null) {
+            log.info("Adaptive chunk size of step {} ended at {} (itemCost={} us, overhead={} ms, rollbackRate={})",
+                name, state.chunkSize, Math.round(state.itemCostNanos / 1000),
+                Math.round(state.overheadNanos / 1_000_000), String.format("%.2f", state.rollbackRate));
+        }
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        timings.set(new ChunkTiming(System.nanoTime()));
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        ChunkTiming timing = timings.get();
+        timings.remove();
+        if (timing == null || timing.items == 0) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - timing.startNanos;
+        long itemNanos = timing.readNanos + timing.processNanos + timing.writeNanos;
+        ExecutionState state = currentState();
+        int newSize;
+        synchronized (state) {
+            state.observe((double) itemNanos / timing.items, Math.max(0, durationNanos - itemNanos), false);
+            double targetSize = (targetNanos - state.overheadNanos) / Math.max(1.0, state.itemCostNanos);
+            newSize = (int) Math.round(Math.min(state.chunkSize * MAX_CHANGE_FACTOR,
+                Math.max(state.chunkSize / MAX_CHANGE_FACTOR, targetSize)));
+            if (newSize > state.chunkSize && (state.cooldownChunks > 0 || state.rollbackRate > MAX_GROW_ROLLBACK_RATE)) {
+                newSize = state.chunkSize;
+            }
+            if (state.cooldownChunks > 0) {
+                state.cooldownChunks--;
+            }
+            newSize = Math.min(maxSize, Math.max(minSize, newSize));
+            if (newSize == state.chunkSize) {
+                return;
+            }
+            log.debug("Chunk size of step {} changed {} -> {} (chunk {} items in {} ms: read={} ms, process={} ms, write={} ms)",
+                name, state.chunkSize, newSize, timing.items, TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                TimeUnit.NANOSECONDS.toMillis(timing.readNanos), TimeUnit.NANOSECONDS.toMillis(timing.processNanos),
+                TimeUnit.NANOSECONDS.toMillis(timing.writeNanos));
+            state.chunkSize = newSize;
+        }
+        sizeListener.accept(newSize);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        ChunkTiming timing = timings.get();
+        timings.remove();
+        if (timing != null && timing.processFailed && !timing.writeFailed) {
+            log.debug("Chunk of step {} rolled back on an item processing error, keeping chunk size", name);
+            return;
+        }
+        ExecutionState state = currentState();
+        int newSize;
+        synchronized (state) {
+            state.observe(-1, -1, true);
+            state.cooldownChunks = COOLDOWN_CHUNKS;
+            newSize = Math.max(minSize, state.chunkSize / 2);
+            if (newSize == state.chunkSize) {
+                return;
+            }
+            log.info("Chunk of step {} rolled back, reducing chunk size {} -> {}", name, state.chunkSize, newSize);
+            state.chunkSize = newSize;
+        }
+        sizeListener.accept(newSize);
+    }
+
+    @Override
+    public void beforeRead() {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.markNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterRead(Object item) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.readNanos += System.nanoTime() - timing.markNanos;
+            timing.items++;
+        }
+    }
+
+    @Override
+    public void beforeProcess(Object item) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.markNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterProcess(Object item, Object result) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.processNanos += System.nanoTime() - timing.markNanos;
+        }
+    }
+
+    @Override
+    public void onProcessError(Object item, Exception e) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.processFailed = true;
+        }
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.markNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.writeNanos += System.nanoTime() - timing.markNanos;
+        }
+    }
+
+    @Override
+    public void onWriteError(Exception exception, Chunk<?> items) {
+        ChunkTiming timing = timings.get();
+        if (timing != null) {
+            timing.writeFailed = true;
+        }
+    }
+
+    private ExecutionState currentState() {
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        if (stepContext == null) {
+            return new ExecutionState(initialSize);
+        }
+        return states.computeIfAbsent(stepContext.getStepExecution().getId(), id -> new ExecutionState(initialSize));
+    }
+
+    /**
+     * Trạng thái điều chỉnh chunk size của một step execution
+     */
+    private static final class ExecutionState {
+
+        private volatile int chunkSize;
+        private double itemCostNanos = -1;
+        private double overheadNanos;
+        private double rollbackRate;
+        private int cooldownChunks;
+
+        private ExecutionState(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        private void observe(double itemCost, double overhead, boolean rolledBack) {
+            rollbackRate += SMOOTHING * ((rolledBack ? 1 : 0) - rollbackRate);
+            if (rolledBack) {
+                return;
+            }
+            if (itemCostNanos < 0) {
+                itemCostNanos = itemCost;
+                overheadNanos = overhead;
+            } else {
+                itemCostNanos += SMOOTHING * (itemCost - itemCostNanos);
+                overheadNanos += SMOOTHING * (overhead - overheadNanos);
+            }
+        }
+    }
+
+    /**
+     * Thời gian đọc / xử lý / ghi của chunk đang chạy trên thread hiện tại
+     */
+    private static final class ChunkTiming {
+
+        private final long startNanos;
+        private long markNanos;
+        private long readNanos;
+        private long processNanos;
+        private long writeNanos;
+        private int items;
+        private boolean processFailed;
+        private boolean writeFailed;
+
+        private ChunkTiming(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class SizedRepeatContext extends RepeatContextSupport {
+
+        private final int size;
+
+        private SizedRepeatContext(RepeatContext parent, int size) {
+            super(parent);
+            this.size = size;
+        }
+    }
+}
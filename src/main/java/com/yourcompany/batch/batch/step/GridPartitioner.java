@@ -0,0 +1,31 @@
+package com.yourcompany.batch.batch.step;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Partitioner chia dữ liệu thành gridSize partition đánh số 0..gridSize-1.
+ * Mỗi worker đọc partition index / partition count từ ExecutionContext
+ * và chỉ lấy dữ liệu thuộc partition của mình (ví dụ MOD(id, partition count) = partition index).
+ */
+public class GridPartitioner implements Partitioner {
+
+    public static final String PARTITION_INDEX_KEY = "partition.index";
+    public static final String PARTITION_COUNT_KEY = "partition.count";
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int count = Math.max(1, gridSize);
+        Map<String, ExecutionContext> partitions = new HashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putInt(PARTITION_INDEX_KEY, i);
+            context.putInt(PARTITION_COUNT_KEY, count);
+            partitions.put("partition" + i, context);
+        }
+        return partitions;
+    }
+}
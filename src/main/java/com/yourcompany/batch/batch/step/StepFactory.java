@@ -24,6 +24,17 @@ public class StepFactory {
         return step.build();
     }
 
+    /**
+     * Build step dạng partitioned với gridSize partition (ghi đè param gridSize trong JobSetting của step).
+     * Step builder cần override partitioner(), nếu không step vẫn chạy single-threaded.
+     */
+    public <I, O> Step getPartitionedStep(LinkedHashMap<String, Object> params, int gridSize,
+                                          Class<? extends AbstractStepBuilder<I, O>> stepBuilderClass) {
+        LinkedHashMap<String, Object> stepParams = params != null ? new LinkedHashMap<>(params) : new LinkedHashMap<>();
+        stepParams.put(AbstractStepBuilder.PARAM_GRID_SIZE, gridSize);
+        return getStep(stepParams, stepBuilderClass);
+    }
+
     public Step getStepTasklet(Class<? extends AbstractTasklet> taskletClass) {
         return applicationContext.getBean(taskletClass).buildStep();
     }
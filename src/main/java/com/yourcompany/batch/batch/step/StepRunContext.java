@@ -0,0 +1,106 @@
+package com.yourcompany.batch.batch.step;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trạng thái của một lần chạy step (số item đã xử lý / lỗi, tổng số item, thời gian bắt đầu, note kết quả...)
+ *
+ * Step builder là singleton nên trạng thái này không được giữ trong field của builder: mỗi lần chạy
+ * có một StepRunContext riêng (AbstractStepBuilder giữ theo JobExecution của step), dùng chung cho
+ * mọi thread xử lý chunk và mọi partition của lần chạy đó, nên các field đều thread-safe.
+ */
+public final class StepRunContext {
+
+    private final String jobName;
+    private final Long stepExecutionId;
+    private final Long jobExecutionId;
+    private final Instant startTime;
+
+    private final AtomicInteger numberOfProcessed;
+    private final AtomicInteger numberOfFailures;
+    private final AtomicInteger itemsSinceLastLog = new AtomicInteger();
+    private volatile int totalItems = -1;
+    private volatile String noteResult;
+
+    StepRunContext(String jobName, Long stepExecutionId, Long jobExecutionId, Instant startTime) {
+        this(jobName, stepExecutionId, jobExecutionId, startTime, 0);
+    }
+
+    private StepRunContext(String jobName, Long stepExecutionId, Long jobExecutionId, Instant startTime, int initialCount) {
+        this.jobName = jobName;
+        this.stepExecutionId = stepExecutionId;
+        this.jobExecutionId = jobExecutionId;
+        this.startTime = startTime;
+        this.numberOfProcessed = new AtomicInteger(initialCount);
+        this.numberOfFailures = new AtomicInteger(initialCount);
+    }
+
+    /**
+     * Context rỗng khi không có step nào đang chạy trên thread hiện tại (số đếm = -1)
+     */
+    static StepRunContext detached() {
+        return new StepRunContext(null, null, null, null, -1);
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public Long getStepExecutionId() {
+        return stepExecutionId;
+    }
+
+    public Long getJobExecutionId() {
+        return jobExecutionId;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public int getNumberOfProcessed() {
+        return numberOfProcessed.get();
+    }
+
+    int addNumberOfProcessed(int count) {
+        return numberOfProcessed.addAndGet(count);
+    }
+
+    public int getNumberOfFailures() {
+        return numberOfFailures.get();
+    }
+
+    void addNumberOfFailures(int count) {
+        numberOfFailures.addAndGet(count);
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    void setTotalItems(int totalItems) {
+        this.totalItems = totalItems;
+    }
+
+    public String getNoteResult() {
+        return noteResult;
+    }
+
+    void setNoteResult(String noteResult) {
+        this.noteResult = noteResult;
+    }
+
+    /**
+     * Cộng số item đã ghi từ lần log COUNT gần nhất
+     *
+     * @return số item từ lần log gần nhất (kể cả count)
+     */
+    int addItemsSinceLastLog(int count) {
+        return itemsSinceLastLog.addAndGet(count);
+    }
+
+    void resetItemsSinceLastLog() {
+        itemsSinceLastLog.set(0);
+    }
+}
@@ -0,0 +1,331 @@
+package com.yourcompany.batch.batch.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ItemWriter ghi mỗi item thành một dòng text (NDJSON, CSV...) vào file nén, qua FileChannel,
+ * chia thành nhiều file theo kích thước.
+ *
+ * - File đang ghi có đuôi .part, được đổi sang tên cuối cùng ({baseName}-{thời điểm bắt đầu}-{số thứ tự}{extension})
+ *   khi đủ maxFileBytes hoặc khi step COMPLETED, nên hệ thống downstream chỉ thấy file hoàn chỉnh.
+ * - Các dòng của chunk được giữ trong bộ nhớ đến khi commit (bị bỏ nếu transaction của chunk rollback,
+ *   ví dụ khi Spring Batch ghi lại từng item để tìm item lỗi), nên file không có dòng trùng.
+ * - Mỗi lần commit chunk, phần dữ liệu của chunk được đóng thành một gzip member hoàn chỉnh và force xuống đĩa,
+ *   kích thước file lúc đó được lưu vào ExecutionContext. File gồm nhiều gzip member nối tiếp vẫn là file gzip hợp lệ
+ *   (gunzip, GZIPInputStream đọc liền mạch). Khi chạy lại step execution bị lỗi, file .part được cắt về kích thước
+ *   đã lưu (bỏ phần ghi dở của chunk bị rollback) và ghi tiếp.
+ * - Kích thước file được kiểm tra khi commit, nên file có thể vượt maxFileBytes tối đa một chunk.
+ *
+ * Writer tự đăng ký làm StepExecutionListener của step (Spring Batch đăng ký writer có implement listener).
+ */
+public class RollingCompressedFileItemWriter<T> implements ItemStreamWriter<T>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RollingCompressedFileItemWriter.class);
+
+    private static final String PART_SUFFIX = ".part";
+    private static final DateTimeFormatter STAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final String STAMP_KEY = "rollingFileWriter.stamp";
+    private static final String INDEX_KEY = "rollingFileWriter.index";
+    private static final String FILE_KEY = "rollingFileWriter.file";
+    private static final String POSITION_KEY = "rollingFileWriter.position";
+
+    public enum Compression {
+        NONE(""),
+        GZIP(".gz");
+
+        private final String suffix;
+
+        Compression(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    private final Path directory;
+    private final String baseName;
+    private final String extension;
+    private final Compression compression;
+    private final long maxFileBytes;
+    private final String header;
+    private final BiConsumer<T, StringBuilder> lineFormatter;
+
+    // Các dòng của chunk chưa commit
+    private final StringBuilder pending = new StringBuilder();
+    private final List<Path> publishedFiles = new ArrayList<>();
+
+    private String stamp;
+    private int index;
+    private Path partFile;
+    private FileChannel channel;
+    private long committedPosition;
+    private boolean rollPending;
+
+    // Gzip member (hoặc buffer khi không nén) của chunk đang ghi
+    private OutputStream memberOut;
+    private Writer text;
+
+    /**
+     * @param extension phần mở rộng của file trước phần nén (ví dụ ".ndjson")
+     * @param header dòng đầu tiên của mỗi file (ví dụ header CSV), null nếu không có
+     * @param lineFormatter ghi một item thành một dòng (không gồm ký tự xuống dòng)
+     */
+    public RollingCompressedFileItemWriter(Path directory, String baseName, String extension, Compression compression,
+                                           long maxFileBytes, String header, BiConsumer<T, StringBuilder> lineFormatter) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.extension = extension;
+        this.compression = compression;
+        this.maxFileBytes = maxFileBytes > 0 ? maxFileBytes : Long.MAX_VALUE;
+        this.header = header;
+        this.lineFormatter = lineFormatter;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            Files.createDirectories(directory);
+            if (executionContext.containsKey(STAMP_KEY)) {
+                stamp = executionContext.getString(STAMP_KEY);
+                index = executionContext.getInt(INDEX_KEY);
+            } else {
+                stamp = LocalDateTime.now().format(STAMP_FORMAT);
+                index = 0;
+            }
+            if (executionContext.containsKey(FILE_KEY)) {
+                resume(Path.of(executionContext.getString(FILE_KEY)), executionContext.getLong(POSITION_KEY));
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Cannot open export file in " + directory, e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive() && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new PendingLines());
+        }
+        for (T item : items) {
+            lineFormatter.accept(item, pending);
+            pending.append('\n');
+        }
+    }
+
+    /**
+     * Được gọi trong transaction của chunk sau khi ghi: đẩy các dòng của chunk xuống file và lưu vị trí file
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            if (!pending.isEmpty()) {
+                if (rollPending) {
+                    closeFile(true);
+                    index++;
+                    rollPending = false;
+                }
+                if (channel == null) {
+                    openNewFile();
+                }
+                member().append(pending);
+                pending.setLength(0);
+                finishMember();
+                channel.force(false);
+                committedPosition = channel.position();
+                rollPending = committedPosition >= maxFileBytes;
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Cannot write export file " + partFile, e);
+        }
+        executionContext.putString(STAMP_KEY, stamp);
+        executionContext.putInt(INDEX_KEY, index);
+        if (channel == null) {
+            executionContext.remove(FILE_KEY);
+            executionContext.remove(POSITION_KEY);
+            return;
+        }
+        executionContext.putString(FILE_KEY, partFile.toString());
+        executionContext.putLong(POSITION_KEY, committedPosition);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        // Step thành công: file cuối cùng đã đủ dữ liệu, đổi sang tên cuối cùng
+        if (stepExecution.getStatus() == BatchStatus.COMPLETED && channel != null) {
+            try {
+                closeFile(true);
+            } catch (IOException e) {
+                throw new ItemStreamException("Cannot publish export file " + partFile, e);
+            }
+        }
+        log.info("Export {} finished with {} files: {}", baseName, publishedFiles.size(), publishedFiles);
+        return null;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        // Step lỗi / dừng: giữ file .part (phần đã commit) để chạy lại ghi tiếp
+        try {
+            closeFile(false);
+        } catch (IOException e) {
+            log.warn("Error closing export file {}: {}", partFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Các file đã hoàn chỉnh (đã đổi tên) của lần chạy này
+     */
+    public List<Path> getPublishedFiles() {
+        return List.copyOf(publishedFiles);
+    }
+
+    private void resume(Path file, long position) throws IOException {
+        Path published = publishedPath(file);
+        if (!Files.exists(file) && Files.exists(published)) {
+            // File đã được đổi tên khi roll nhưng chunk kế tiếp chưa commit
+            Files.move(published, file);
+        }
+        partFile = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(position);
+        channel.position(position);
+        committedPosition = position;
+        log.info("Resuming export file {} at byte {}", file, position);
+    }
+
+    private void openNewFile() throws IOException {
+        partFile = directory.resolve(String.format("%s-%s-%05d%s%s%s",
+            baseName, stamp, index, extension, compression.suffix, PART_SUFFIX));
+        channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        committedPosition = 0;
+        log.info("Writing export file {}", partFile);
+        if (header != null) {
+            member().append(header).append('\n');
+        }
+    }
+
+    private Writer member() throws IOException {
+        if (text == null) {
+            OutputStream buffered = new BufferedOutputStream(new NonClosingOutputStream(Channels.newOutputStream(channel)),
+                BUFFER_SIZE);
+            memberOut = compression == Compression.GZIP ? new GZIPOutputStream(buffered, BUFFER_SIZE) : buffered;
+            text = new OutputStreamWriter(memberOut, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * Kết thúc gzip member hiện tại (trailer) và đẩy hết dữ liệu xuống channel, channel vẫn mở
+     */
+    private void finishMember() throws IOException {
+        if (text != null) {
+            text.close();
+            text = null;
+            memberOut = null;
+        }
+    }
+
+    private void closeFile(boolean publish) throws IOException {
+        try {
+            if (publish) {
+                finishMember();
+                channel.force(false);
+            }
+        } finally {
+            text = null;
+            memberOut = null;
+            channel.close();
+            channel = null;
+        }
+        if (publish) {
+            Path published = publishedPath(partFile);
+            try {
+                Files.move(partFile, published, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, published, StandardCopyOption.REPLACE_EXISTING);
+            }
+            publishedFiles.add(published);
+            log.info("Published export file {} ({} bytes)", published, Files.size(published));
+        }
+        partFile = null;
+    }
+
+    private static Path publishedPath(Path part) {
+        String name = part.getFileName().toString();
+        return part.resolveSibling(name.endsWith(PART_SUFFIX) ? name.substring(0, name.length() - PART_SUFFIX.length()) : name);
+    }
+
+    /**
+     * Bỏ các dòng chưa ghi khi transaction của chunk rollback
+     */
+    private class PendingLines implements TransactionSynchronization {
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && !pending.isEmpty()) {
+                log.debug("Discarded uncommitted export lines of a rolled back chunk");
+                pending.setLength(0);
+            }
+            TransactionSynchronizationManager.unbindResourceIfPossible(RollingCompressedFileItemWriter.this);
+        }
+    }
+
+    /**
+     * Đóng gzip member không được đóng FileChannel
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.yourcompany.batch.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Properties specific to Batch Job.
  * <p>
@@ -12,6 +15,8 @@ public class ApplicationProperties {
     
     private Schedule schedule = new Schedule();
 
+    private RateLimit rateLimit = new RateLimit();
+
     public Schedule getSchedule() {
         return schedule;
     }
@@ -20,6 +25,14 @@ public class ApplicationProperties {
         this.schedule = schedule;
     }
 
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimit rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
     public static class Schedule {
         private boolean enabled = true;
 
@@ -31,5 +44,70 @@ public class ApplicationProperties {
             this.enabled = enabled;
         }
     }
-}
 
+    /**
+     * Rate limit lời gọi external API theo branch (application.rate-limit)
+     */
+    public static class RateLimit {
+        private boolean enabled = false;
+        private long maxWaitMs = 0;
+        private Limit defaultLimit = new Limit();
+        private Map<String, Limit> branches = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        public Limit getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        public void setDefaultLimit(Limit defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public Map<String, Limit> getBranches() {
+            return branches;
+        }
+
+        public void setBranches(Map<String, Limit> branches) {
+            this.branches = branches;
+        }
+    }
+
+    /**
+     * Giới hạn theo branch, permitsPerSecond <= 0 = không giới hạn
+     */
+    public static class Limit {
+        private double permitsPerSecond = 50;
+        private int burst = 50;
+
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        public void setPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
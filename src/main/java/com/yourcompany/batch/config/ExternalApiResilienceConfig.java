@@ -0,0 +1,143 @@
+package com.yourcompany.batch.config;
+
+import com.yourcompany.batch.service.resilience.AdaptiveConcurrencyLimiter;
+import com.yourcompany.batch.service.resilience.CircuitBreaker;
+import com.yourcompany.batch.service.resilience.HedgingPolicy;
+import com.yourcompany.batch.service.resilience.KeyedRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Configuration cho concurrency limiter, circuit breaker, rate limiter theo branch và hedging đặt trước ExternalApiService
+ * Trạng thái được expose qua actuator metrics:
+ * - external.api.concurrency.limit / external.api.concurrency.in.flight
+ * - external.api.circuit.state (0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN) / external.api.circuit.rejected
+ * - external.api.hedge.sent / external.api.hedge.wins / external.api.hedge.delay
+ */
+@Configuration
+public class ExternalApiResilienceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalApiResilienceConfig.class);
+    private static final String NAME = "externalApi";
+
+    @Value("${external.api.limiter.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${external.api.limiter.min-limit:1}")
+    private int minLimit;
+
+    @Value("${external.api.limiter.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${external.api.limiter.latency-threshold-ms:2000}")
+    private long latencyThresholdMillis;
+
+    @Value("${external.api.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${external.api.limiter.decrease-interval-ms:1000}")
+    private long decreaseIntervalMillis;
+
+    @Value("${external.api.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${external.api.circuit-breaker.sliding-window-size:50}")
+    private int slidingWindowSize;
+
+    @Value("${external.api.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${external.api.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMillis;
+
+    @Value("${external.api.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    @Value("${external.api.hedging.percentile:95}")
+    private double hedgingPercentile;
+
+    @Value("${external.api.hedging.min-delay-ms:50}")
+    private long hedgingMinDelayMillis;
+
+    @Value("${external.api.hedging.max-hedge-percent:5}")
+    private double maxHedgePercent;
+
+    @Value("${external.api.hedging.window-size:1000}")
+    private int hedgingWindowSize;
+
+    @Value("${external.api.hedging.min-samples:100}")
+    private int hedgingMinSamples;
+
+    @Bean
+    public AdaptiveConcurrencyLimiter externalApiConcurrencyLimiter(MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(NAME, initialLimit, minLimit, maxLimit,
+            latencyThresholdMillis, backoffRatio, decreaseIntervalMillis);
+        Gauge.builder("external.api.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+            .description("Current adaptive concurrency limit of the external API")
+            .register(meterRegistry);
+        Gauge.builder("external.api.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+            .description("In-flight calls to the external API")
+            .register(meterRegistry);
+        log.info("External API concurrency limiter - initial: {}, min: {}, max: {}, latencyThresholdMs: {}",
+            initialLimit, minLimit, maxLimit, latencyThresholdMillis);
+        return limiter;
+    }
+
+    @Bean
+    public CircuitBreaker externalApiCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, failureRateThreshold, slidingWindowSize,
+            minimumCalls, openDurationMillis, halfOpenCalls);
+        Gauge.builder("external.api.circuit.state", circuitBreaker, breaker -> breaker.getState().getValue())
+            .description("Circuit breaker state of the external API (0 = closed, 1 = open, 2 = half open)")
+            .register(meterRegistry);
+        FunctionCounter.builder("external.api.circuit.rejected", circuitBreaker, CircuitBreaker::getRejectedCalls)
+            .description("Calls to the external API rejected by the circuit breaker")
+            .register(meterRegistry);
+        log.info("External API circuit breaker - failureRateThreshold: {}%, window: {}, openDurationMs: {}",
+            failureRateThreshold, slidingWindowSize, openDurationMillis);
+        return circuitBreaker;
+    }
+
+    @Bean
+    public HedgingPolicy externalApiHedgingPolicy(MeterRegistry meterRegistry) {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(NAME, hedgingPercentile, hedgingMinDelayMillis, maxHedgePercent,
+            hedgingWindowSize, hedgingMinSamples);
+        FunctionCounter.builder("external.api.hedge.sent", hedgingPolicy, HedgingPolicy::getHedges)
+            .description("Hedged (duplicate) requests sent to the external API")
+            .register(meterRegistry);
+        FunctionCounter.builder("external.api.hedge.wins", hedgingPolicy, HedgingPolicy::getHedgeWins)
+            .description("Hedged requests that answered before the original request")
+            .register(meterRegistry);
+        Gauge.builder("external.api.hedge.delay", hedgingPolicy, HedgingPolicy::getHedgeDelayMillis)
+            .description("Current hedge delay of the external API in milliseconds (-1 = not enough samples)")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        log.info("External API hedging policy - percentile: {}, minDelayMs: {}, maxHedgePercent: {}%",
+            hedgingPercentile, hedgingMinDelayMillis, maxHedgePercent);
+        return hedgingPolicy;
+    }
+
+    /**
+     * Rate limiter theo branch, giới hạn lấy từ application.rate-limit.branches (hoặc default-limit)
+     */
+    @Bean
+    public KeyedRateLimiter branchRateLimiter(ApplicationProperties applicationProperties) {
+        ApplicationProperties.RateLimit rateLimit = applicationProperties.getRateLimit();
+        Map<String, ApplicationProperties.Limit> branches = rateLimit.getBranches();
+        ApplicationProperties.Limit defaultLimit = rateLimit.getDefaultLimit();
+        log.info("Branch rate limiter - enabled: {}, default: {}/s (burst {}), overrides: {}",
+            rateLimit.isEnabled(), defaultLimit.getPermitsPerSecond(), defaultLimit.getBurst(), branches.keySet());
+        return new KeyedRateLimiter(branch -> {
+            ApplicationProperties.Limit limit = branches.getOrDefault(branch, defaultLimit);
+            return new KeyedRateLimiter.Limit(limit.getPermitsPerSecond(), limit.getBurst());
+        });
+    }
+}
@@ -1,25 +1,39 @@
 package com.yourcompany.batch.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.BufferingClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Configuration cho RestTemplate
  * Cấu hình đầy đủ với timeout, error handling, interceptors, message converters
+ *
+ * Mặc định dùng Apache HttpClient 5 với connection pool (keep-alive, giới hạn connection theo route,
+ * dọn connection idle / hết hạn) để các lời gọi song song dùng lại connection thay vì mở TCP mới.
+ * external.api.pool.enabled = false sẽ quay về SimpleClientHttpRequestFactory (HttpURLConnection).
  */
 @Configuration
 public class RestTemplateConfig {
@@ -35,31 +49,91 @@ public class RestTemplateConfig {
     @Value("${external.api.enable.logging:false}")
     private boolean enableLogging;
 
+    @Value("${external.api.pool.enabled:true}")
+    private boolean poolEnabled;
+
+    @Value("${external.api.pool.max-total:200}")
+    private int poolMaxTotal;
+
+    @Value("${external.api.pool.max-per-route:200}")
+    private int poolMaxPerRoute;
+
+    @Value("${external.api.pool.acquire-timeout:5000}")
+    private long poolAcquireTimeout;
+
+    @Value("${external.api.pool.idle-eviction:30000}")
+    private long poolIdleEviction;
+
+    @Value("${external.api.pool.validate-after-inactivity:2000}")
+    private long poolValidateAfterInactivity;
+
+    @Value("${external.api.pool.time-to-live:300000}")
+    private long poolTimeToLive;
+
     /**
      * RestTemplate bean chính được sử dụng trong toàn bộ application
      * Sử dụng RestTemplateBuilder để cấu hình
      */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+    public RestTemplate restTemplate(RestTemplateBuilder builder, ObjectProvider<CloseableHttpClient> httpClient) {
+        // Timeout được cấu hình trực tiếp trên request factory / connection pool
         return builder
-            .setConnectTimeout(Duration.ofMillis(connectTimeout))
-            .setReadTimeout(Duration.ofMillis(readTimeout))
-            .requestFactory(this::clientHttpRequestFactory)
+            .requestFactory(() -> clientHttpRequestFactory(httpClient.getIfAvailable()))
             .errorHandler(responseErrorHandler())
             .interceptors(httpRequestInterceptor())
             .build();
     }
 
+    /**
+     * HttpClient với connection pool, được đóng (cùng thread dọn connection idle) khi shutdown
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "external.api.pool.enabled", havingValue = "true", matchIfMissing = true)
+    public CloseableHttpClient externalApiHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(poolMaxTotal)
+            .setMaxConnPerRoute(poolMaxPerRoute)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeout))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(poolValidateAfterInactivity))
+                .setTimeToLive(TimeValue.ofMilliseconds(poolTimeToLive))
+                .build())
+            .build();
+
+        log.info("External API connection pool - maxTotal: {}, maxPerRoute: {}, idleEviction: {} ms",
+            poolMaxTotal, poolMaxPerRoute, poolIdleEviction);
+
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeout))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(poolIdleEviction))
+            .build();
+    }
+
     /**
      * Tạo ClientHttpRequestFactory với timeout configuration
      */
-    private ClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(connectTimeout);
-        factory.setReadTimeout(readTimeout);
-        
-        // Buffering để có thể đọc response body nhiều lần (cho logging, error handling)
-        return new BufferingClientHttpRequestFactory(factory);
+    private ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient) {
+        ClientHttpRequestFactory factory;
+        if (poolEnabled && httpClient != null) {
+            factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        } else {
+            SimpleClientHttpRequestFactory simpleFactory = new SimpleClientHttpRequestFactory();
+            simpleFactory.setConnectTimeout(connectTimeout);
+            simpleFactory.setReadTimeout(readTimeout);
+            factory = simpleFactory;
+        }
+
+        // Buffering để có thể đọc response body nhiều lần, chỉ cần khi log request/response
+        if (enableLogging) {
+            return new BufferingClientHttpRequestFactory(factory);
+        }
+        return factory;
     }
 
     /**
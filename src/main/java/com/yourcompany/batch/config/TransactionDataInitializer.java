@@ -2,17 +2,21 @@ package com.yourcompany.batch.config;
 
 import com.yourcompany.batch.domain.Transaction;
 import com.yourcompany.batch.repository.TransactionRepository;
+import com.yourcompany.batch.repository.TransactionStatusCounterRepository;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Initializer để tạo sample transaction data
@@ -27,6 +31,12 @@ public class TransactionDataInitializer {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionStatusCounterRepository transactionStatusCounterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @PostConstruct
     public void init() {
         // Kiểm tra xem đã có data chưa
@@ -38,7 +48,12 @@ public class TransactionDataInitializer {
 
         log.info("Initializing sample transaction data...");
         List<Transaction> transactions = createSampleTransactions();
-        transactionRepository.saveAll(transactions);
+        // Cộng số transaction mới vào counter NEW trong cùng transaction DB với insert (như bulk load)
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            transactionRepository.saveAll(transactions);
+            transactionStatusCounterRepository.applyDeltas(
+                Map.of(TransactionStatusCounterRepository.NEW_STATUS_KEY, (long) transactions.size()));
+        });
         log.info("Created {} sample transactions", transactions.size());
     }
 
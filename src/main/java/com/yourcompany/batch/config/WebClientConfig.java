@@ -0,0 +1,79 @@
+package com.yourcompany.batch.config;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Configuration cho WebClient gọi external API non-blocking (step reactive)
+ * Dùng cùng timeout với RestTemplateConfig (external.api.timeout.*). Số connection tối đa là
+ * external.api.reactive.max-connections (mặc định bằng external.api.pool.max-total), cũng là reactiveConcurrency
+ * mặc định của step reactive: lời gọi vượt quá số connection phải chờ connection và RETRY khi hết acquire-timeout.
+ */
+@Configuration
+public class WebClientConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(WebClientConfig.class);
+
+    @Value("${external.api.timeout.connect:10000}")
+    private int connectTimeout;
+
+    @Value("${external.api.timeout.read:30000}")
+    private int readTimeout;
+
+    @Value("${external.api.reactive.max-connections:${external.api.pool.max-total:200}}")
+    private int maxConnections;
+
+    @Value("${external.api.pool.acquire-timeout:5000}")
+    private long poolAcquireTimeout;
+
+    @Value("${external.api.pool.idle-eviction:30000}")
+    private long poolIdleEviction;
+
+    @Value("${external.api.pool.time-to-live:300000}")
+    private long poolTimeToLive;
+
+    @Value("${external.api.reactive.pending-acquire-max-count:-1}")
+    private int pendingAcquireMaxCount;
+
+    /**
+     * WebClient cho external API, connection pool riêng được đóng khi shutdown
+     */
+    @Bean
+    public WebClient externalApiWebClient(WebClient.Builder builder, ConnectionProvider externalApiConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(externalApiConnectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+            .responseTimeout(Duration.ofMillis(readTimeout))
+            .keepAlive(true);
+
+        return builder
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider externalApiConnectionProvider() {
+        log.info("External API reactive connection pool - maxConnections: {}, maxIdleTime: {} ms",
+            maxConnections, poolIdleEviction);
+        return ConnectionProvider.builder("external-api")
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeout))
+            .pendingAcquireMaxCount(pendingAcquireMaxCount)
+            .maxIdleTime(Duration.ofMillis(poolIdleEviction))
+            .maxLifeTime(Duration.ofMillis(poolTimeToLive))
+            .evictInBackground(Duration.ofMillis(poolIdleEviction))
+            .build();
+    }
+}
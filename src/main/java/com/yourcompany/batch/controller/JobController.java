@@ -3,8 +3,15 @@ package com.yourcompany.batch.controller;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.yourcompany.batch.sample.SampleJob;
+import com.yourcompany.batch.sample.TransactionExportJob;
+import com.yourcompany.batch.sample.TransactionExportStepBuilder;
+import com.yourcompany.batch.sample.TransactionLoadJob;
+import com.yourcompany.batch.sample.TransactionLoadStepBuilder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -15,9 +22,14 @@ import java.util.Map;
 public class JobController {
 
     private final SampleJob sampleJob;
+    private final TransactionLoadJob transactionLoadJob;
+    private final TransactionExportJob transactionExportJob;
 
-    public JobController(SampleJob sampleJob) {
+    public JobController(SampleJob sampleJob, TransactionLoadJob transactionLoadJob,
+                         TransactionExportJob transactionExportJob) {
         this.sampleJob = sampleJob;
+        this.transactionLoadJob = transactionLoadJob;
+        this.transactionExportJob = transactionExportJob;
     }
 
     /**
@@ -39,6 +51,62 @@ public class JobController {
         }
     }
 
+    /**
+     * Trigger Transaction Load Job (chạy async, kết quả xem trong job_log / job_log_result)
+     * POST /api/jobs/transaction-load/run
+     * Body: {"filePath": "/data/transactions.csv", "fileFormat": "CSV", "chunkSize": 10000, "directPath": false}
+     */
+    @PostMapping("/transaction-load/run")
+    public ResponseEntity<Map<String, Object>> runTransactionLoadJob(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        Object filePath = request.get(TransactionLoadStepBuilder.PARAM_FILE_PATH);
+        if (filePath == null || !Files.isRegularFile(Path.of(String.valueOf(filePath)))) {
+            response.put("status", "error");
+            response.put("message", "filePath must point to a readable file on the server");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            transactionLoadJob.runAsync(new LinkedHashMap<>(request));
+            response.put("status", "success");
+            response.put("message", "Transaction load job started");
+            response.put("jobName", TransactionLoadJob.JOB_NAME);
+            response.put("filePath", filePath);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("status", "error");
+            response.put("message", "Failed to start transaction load job: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Trigger Transaction Export Job (chạy async, file được ghi vào outputDir trên server)
+     * POST /api/jobs/transaction-export/run
+     * Body: {"outputDir": "/data/export", "statuses": "COMPLETED,ERROR", "format": "NDJSON", "compression": "GZIP", "maxFileMb": 512}
+     */
+    @PostMapping("/transaction-export/run")
+    public ResponseEntity<Map<String, Object>> runTransactionExportJob(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        Object outputDir = request.get(TransactionExportStepBuilder.PARAM_OUTPUT_DIR);
+        if (outputDir == null || String.valueOf(outputDir).isBlank()) {
+            response.put("status", "error");
+            response.put("message", "outputDir is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            transactionExportJob.runAsync(new LinkedHashMap<>(request));
+            response.put("status", "success");
+            response.put("message", "Transaction export job started");
+            response.put("jobName", TransactionExportJob.JOB_NAME);
+            response.put("outputDir", outputDir);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("status", "error");
+            response.put("message", "Failed to start transaction export job: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     /**
      * Get job status
      */
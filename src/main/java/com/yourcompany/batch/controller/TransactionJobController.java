@@ -1,11 +1,22 @@
 package com.yourcompany.batch.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourcompany.batch.batch.reader.TransactionReader;
+import com.yourcompany.batch.batch.step.AbstractStepBuilder;
+import com.yourcompany.batch.domain.enumeration.TransactionStatus;
+import com.yourcompany.batch.repository.TransactionStatusCounterRepository;
+import com.yourcompany.batch.sample.TransactionStepBuilder;
 import com.yourcompany.batch.service.JobSettingService;
+import com.yourcompany.batch.service.TransactionStatusCounterService;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -16,9 +27,20 @@ import java.util.Map;
 @RequestMapping("/api/transaction-job")
 public class TransactionJobController {
 
+    private static final String STEP_NAME = "TRANSACTION_PROCESSING_STEP";
+    private static final int MAX_GRID_SIZE = 64;
+    private static final int MAX_PROCESSOR_CONCURRENCY = 1000;
+    private static final int MAX_STEP_THREADS = 64;
+
     @Autowired
     private JobSettingService jobSettingService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionStatusCounterService transactionStatusCounterService;
+
     /**
      * Lấy config hiện tại của Transaction Job
      * GET /api/transaction-job/config
@@ -27,7 +49,7 @@ public class TransactionJobController {
     public ResponseEntity<Map<String, Object>> getConfig() {
         Map<String, Object> response = new HashMap<>();
         
-        jobSettingService.findByJobName("TRANSACTION_PROCESSING_STEP")
+        jobSettingService.findByJobName(STEP_NAME)
             .ifPresentOrElse(
                 jobSetting -> {
                     response.put("jobName", jobSetting.getJobName());
@@ -76,11 +98,13 @@ public class TransactionJobController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Tạo params JSON
-            String params = String.format("{\"pageSize\": %d}", pageSize);
+            // Tạo params JSON (giữ nguyên các params khác đã cấu hình)
+            Map<String, Object> updates = new LinkedHashMap<>();
+            updates.put(TransactionReader.PARAM_PAGE_SIZE, pageSize);
+            String params = mergeParams(updates);
             
             // Update JobSetting
-            jobSettingService.updateParams("TRANSACTION_PROCESSING_STEP", params, "API");
+            jobSettingService.updateParams(STEP_NAME, params, "API");
             
             response.put("message", "PageSize updated successfully");
             response.put("pageSize", pageSize);
@@ -124,8 +148,15 @@ public class TransactionJobController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Tạo params JSON
-            String params = String.format("{\"pageSize\": %d}", pageSize);
+            // Tạo params JSON (giữ nguyên các params khác đã cấu hình)
+            Map<String, Object> updates = new LinkedHashMap<>();
+            updates.put(TransactionReader.PARAM_PAGE_SIZE, pageSize);
+            String drainError = collectDrainParams(request, updates);
+            if (drainError != null) {
+                response.put("error", drainError);
+                return ResponseEntity.badRequest().body(response);
+            }
+            String params = mergeParams(updates);
             String description = request.get("description") != null ? 
                 request.get("description").toString() : "Transaction processing step";
             Integer status = request.get("status") != null && request.get("status") instanceof Number ?
@@ -134,7 +165,7 @@ public class TransactionJobController {
             // Create or update JobSetting
             com.yourcompany.batch.service.dto.JobSettingDTO dto = 
                 new com.yourcompany.batch.service.dto.JobSettingDTO();
-            dto.setJobName("TRANSACTION_PROCESSING_STEP");
+            dto.setJobName(STEP_NAME);
             dto.setDescription(description);
             dto.setStatus(status);
             dto.setParams(params);
@@ -143,7 +174,7 @@ public class TransactionJobController {
             jobSettingService.saveOrUpdate(dto);
             
             response.put("message", "Config created/updated successfully");
-            response.put("jobName", "TRANSACTION_PROCESSING_STEP");
+            response.put("jobName", STEP_NAME);
             response.put("pageSize", pageSize);
             response.put("description", description);
             response.put("status", status);
@@ -155,5 +186,326 @@ public class TransactionJobController {
             return ResponseEntity.status(500).body(response);
         }
     }
-}
 
+    /**
+     * Cập nhật chế độ draining cho Transaction Job
+     * PUT /api/transaction-job/config/drain
+     * Body: {"drainMode": true, "maxRows": 100000, "maxDurationSeconds": 120, "prefetchPages": 2}
+     * maxRows / maxDurationSeconds = 0 nghĩa là không giới hạn, prefetchPages = 0 là không prefetch
+     */
+    @PutMapping("/config/drain")
+    public ResponseEntity<Map<String, Object>> updateDrainMode(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Map<String, Object> updates = new LinkedHashMap<>();
+            String error = collectDrainParams(request, updates);
+            if (error != null) {
+                response.put("error", error);
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (updates.isEmpty()) {
+                response.put("error", "drainMode, maxRows, maxDurationSeconds or prefetchPages is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            jobSettingService.updateParams(STEP_NAME, mergeParams(updates), "API");
+
+            response.put("message", "Drain config updated successfully");
+            response.putAll(updates);
+            response.put("note", "New drain config will be applied on next job run");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to update drain config: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Cập nhật số partition cho Transaction Job
+     * PUT /api/transaction-job/config/partitions
+     * Body: {"gridSize": 8}
+     * gridSize = 1 nghĩa là chạy single-threaded (không chia partition)
+     */
+    @PutMapping("/config/partitions")
+    public ResponseEntity<Map<String, Object>> updateGridSize(@RequestBody Map<String, Object> request) {
+        return updateIntParam(request, AbstractStepBuilder.PARAM_GRID_SIZE, MAX_GRID_SIZE, "Grid size");
+    }
+
+    /**
+     * Cập nhật số item được xử lý song song (gọi external API) trong mỗi worker của Transaction Job
+     * PUT /api/transaction-job/config/concurrency
+     * Body: {"processorConcurrency": 200}
+     * processorConcurrency = 1 nghĩa là xử lý tuần tự từng item
+     */
+    @PutMapping("/config/concurrency")
+    public ResponseEntity<Map<String, Object>> updateProcessorConcurrency(@RequestBody Map<String, Object> request) {
+        return updateIntParam(request, AbstractStepBuilder.PARAM_PROCESSOR_CONCURRENCY, MAX_PROCESSOR_CONCURRENCY,
+            "Processor concurrency");
+    }
+
+    /**
+     * Cập nhật số chunk được xử lý song song trong mỗi lần chạy step (hoặc mỗi partition) của Transaction Job
+     * PUT /api/transaction-job/config/threads
+     * Body: {"threads": 4}
+     * threads = 1 nghĩa là các chunk chạy tuần tự
+     */
+    @PutMapping("/config/threads")
+    public ResponseEntity<Map<String, Object>> updateThreads(@RequestBody Map<String, Object> request) {
+        return updateIntParam(request, AbstractStepBuilder.PARAM_THREADS, MAX_STEP_THREADS, "Threads");
+    }
+
+    /**
+     * Cập nhật cấu hình retry lỗi tạm thời của external API và skip limit cho Transaction Job
+     * PUT /api/transaction-job/config/retry
+     * Body: {"retryMaxAttempts": 3, "retryBackoffMs": 200, "retryMaxBackoffMs": 5000, "retryBudget": 1000, "skipLimit": 99}
+     * retryMaxAttempts = 1 nghĩa là không thử lại (lỗi tạm thời được ghi nhận RETRY ngay)
+     */
+    @PutMapping("/config/retry")
+    public ResponseEntity<Map<String, Object>> updateRetryConfig(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Map<String, Object> updates = new LinkedHashMap<>();
+            String error = collectNonNegativeParams(request, updates, AbstractStepBuilder.PARAM_RETRY_MAX_ATTEMPTS,
+                AbstractStepBuilder.PARAM_RETRY_BACKOFF_MS, AbstractStepBuilder.PARAM_RETRY_MAX_BACKOFF_MS,
+                AbstractStepBuilder.PARAM_RETRY_BUDGET, AbstractStepBuilder.PARAM_SKIP_LIMIT);
+            if (error != null) {
+                response.put("error", error);
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (updates.isEmpty()) {
+                response.put("error", "retryMaxAttempts, retryBackoffMs, retryMaxBackoffMs, retryBudget or skipLimit is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            jobSettingService.updateParams(STEP_NAME, mergeParams(updates), "API");
+
+            response.put("message", "Retry config updated successfully");
+            response.putAll(updates);
+            response.put("note", "New retry config will be applied on next job run");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to update retry config: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Cập nhật chunk size của Transaction Job (cố định, hoặc tự điều chỉnh theo thời gian xử lý chunk)
+     * PUT /api/transaction-job/config/chunk
+     * Body: {"chunkSize": 1000, "adaptiveChunk": true, "chunkTargetMs": 5000, "chunkMinSize": 10, "chunkMaxSize": 5000}
+     * adaptiveChunk = true: chunkSize là chunk size ban đầu, chunk size thay đổi trong [chunkMinSize, chunkMaxSize]
+     * để mỗi chunk mất khoảng chunkTargetMs (metric batch.chunk.size)
+     */
+    @PutMapping("/config/chunk")
+    public ResponseEntity<Map<String, Object>> updateChunkConfig(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Map<String, Object> updates = new LinkedHashMap<>();
+            Object adaptiveChunkObj = request.get(AbstractStepBuilder.PARAM_ADAPTIVE_CHUNK);
+            if (adaptiveChunkObj != null) {
+                updates.put(AbstractStepBuilder.PARAM_ADAPTIVE_CHUNK, Boolean.parseBoolean(adaptiveChunkObj.toString()));
+            }
+            String error = collectNonNegativeParams(request, updates, AbstractStepBuilder.PARAM_CHUNK_SIZE,
+                AbstractStepBuilder.PARAM_CHUNK_TARGET_MS, AbstractStepBuilder.PARAM_CHUNK_MIN_SIZE,
+                AbstractStepBuilder.PARAM_CHUNK_MAX_SIZE);
+            if (error != null) {
+                response.put("error", error);
+                return ResponseEntity.badRequest().body(response);
+            }
+            if (updates.isEmpty()) {
+                response.put("error", "chunkSize, adaptiveChunk, chunkTargetMs, chunkMinSize or chunkMaxSize is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            jobSettingService.updateParams(STEP_NAME, mergeParams(updates), "API");
+
+            response.put("message", "Chunk config updated successfully");
+            response.putAll(updates);
+            response.put("note", "New chunk config will be applied on next job run");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to update chunk config: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Bật / tắt chế độ gọi batch endpoint của API (một HTTP call cho cả chunk)
+     * PUT /api/transaction-job/config/api-batch
+     * Body: {"apiBatchMode": true}
+     */
+    @PutMapping("/config/api-batch")
+    public ResponseEntity<Map<String, Object>> updateApiBatchMode(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Object apiBatchModeObj = request.get(TransactionStepBuilder.PARAM_API_BATCH_MODE);
+            if (apiBatchModeObj == null) {
+                response.put("error", "apiBatchMode is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            boolean apiBatchMode = Boolean.parseBoolean(apiBatchModeObj.toString());
+            Map<String, Object> updates = new LinkedHashMap<>();
+            updates.put(TransactionStepBuilder.PARAM_API_BATCH_MODE, apiBatchMode);
+            jobSettingService.updateParams(STEP_NAME, mergeParams(updates), "API");
+
+            response.put("message", "API batch mode updated successfully");
+            response.put("apiBatchMode", apiBatchMode);
+            response.put("note", "New API batch mode will be applied on next job run");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to update API batch mode: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Số transaction theo status (đọc từ transaction_status_counter, không đếm bảng transaction)
+     * GET /api/transaction-job/backlog
+     */
+    @GetMapping("/backlog")
+    public ResponseEntity<Map<String, Object>> getBacklog() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Map<String, Long> counts = transactionStatusCounterService.getCounts();
+            response.put("counts", counts);
+            response.put("queued", counts.get(TransactionStatusCounterRepository.NEW_STATUS_KEY));
+            response.put("pending", counts.get(TransactionStatus.PENDING.getValue()));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to read backlog: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Đối chiếu counter với số thực tế ngay lập tức (ví dụ sau khi import / update data bằng tay)
+     * POST /api/transaction-job/backlog/reconcile
+     */
+    @PostMapping("/backlog/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileBacklog() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            response.put("counts", transactionStatusCounterService.reconcile());
+            response.put("message", "Status counters reconciled successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to reconcile status counters: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Đọc các params draining (nếu có) từ request vào updates
+     *
+     * @return thông báo lỗi nếu giá trị không hợp lệ, null nếu hợp lệ
+     */
+    private String collectDrainParams(Map<String, Object> request, Map<String, Object> updates) {
+        Object drainModeObj = request.get(TransactionReader.PARAM_DRAIN_MODE);
+        if (drainModeObj != null) {
+            updates.put(TransactionReader.PARAM_DRAIN_MODE, Boolean.parseBoolean(drainModeObj.toString()));
+        }
+        return collectNonNegativeParams(request, updates, TransactionReader.PARAM_MAX_ROWS,
+            TransactionReader.PARAM_MAX_DURATION_SECONDS, TransactionReader.PARAM_PREFETCH_PAGES);
+    }
+
+    /**
+     * Đọc các params số không âm (nếu có) từ request vào updates
+     *
+     * @return thông báo lỗi nếu giá trị không hợp lệ, null nếu hợp lệ
+     */
+    private String collectNonNegativeParams(Map<String, Object> request, Map<String, Object> updates, String... keys) {
+        for (String key : keys) {
+            Object valueObj = request.get(key);
+            if (valueObj == null) {
+                continue;
+            }
+            long value;
+            if (valueObj instanceof Number) {
+                value = ((Number) valueObj).longValue();
+            } else {
+                try {
+                    value = Long.parseLong(valueObj.toString());
+                } catch (NumberFormatException e) {
+                    return key + " must be a number";
+                }
+            }
+            if (value < 0) {
+                return key + " must not be negative";
+            }
+            updates.put(key, value);
+        }
+        return null;
+    }
+
+    /**
+     * Cập nhật một param số nguyên trong khoảng [1, max] của JobSetting
+     */
+    private ResponseEntity<Map<String, Object>> updateIntParam(Map<String, Object> request, String key, int max,
+                                                               String label) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Object valueObj = request.get(key);
+            if (valueObj == null) {
+                response.put("error", key + " is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            int value;
+            if (valueObj instanceof Number) {
+                value = ((Number) valueObj).intValue();
+            } else {
+                try {
+                    value = Integer.parseInt(valueObj.toString());
+                } catch (NumberFormatException e) {
+                    response.put("error", key + " must be a number");
+                    return ResponseEntity.badRequest().body(response);
+                }
+            }
+
+            if (value < 1 || value > max) {
+                response.put("error", key + " must be between 1 and " + max);
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            Map<String, Object> updates = new LinkedHashMap<>();
+            updates.put(key, value);
+            jobSettingService.updateParams(STEP_NAME, mergeParams(updates), "API");
+
+            response.put("message", label + " updated successfully");
+            response.put(key, value);
+            response.put("note", "New " + label.toLowerCase() + " will be applied on next job run");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to update " + label.toLowerCase() + ": " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Merge các params mới vào params hiện tại của JobSetting
+     */
+    private String mergeParams(Map<String, Object> updates) throws JsonProcessingException {
+        LinkedHashMap<String, Object> params = new LinkedHashMap<>();
+        String current = jobSettingService.findByJobName(STEP_NAME)
+            .map(jobSetting -> jobSetting.getParams())
+            .orElse(null);
+        if (StringUtils.isNotBlank(current)) {
+            params.putAll(objectMapper.readValue(current, new TypeReference<LinkedHashMap<String, Object>>() {}));
+        }
+        params.putAll(updates);
+        return objectMapper.writeValueAsString(params);
+    }
+}
@@ -17,7 +17,8 @@ public class JobLog implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_log_seq")
+    @SequenceGenerator(name = "job_log_seq", sequenceName = "job_log_seq", allocationSize = 50)
     private Long id;
 
     @Size(max = 50)
@@ -16,7 +16,8 @@ public class JobLogResult implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_log_result_seq")
+    @SequenceGenerator(name = "job_log_result_seq", sequenceName = "job_log_result_seq", allocationSize = 50)
     private Long id;
 
     @Size(max = 50)
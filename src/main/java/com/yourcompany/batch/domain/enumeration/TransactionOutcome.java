@@ -0,0 +1,32 @@
+package com.yourcompany.batch.domain.enumeration;
+
+/**
+ * Kết quả xử lý một transaction trong chunk, được ghi xuống DB khi chunk commit
+ */
+public enum TransactionOutcome {
+    /**
+     * Xử lý thành công, status = 'COMPLETED'
+     */
+    COMPLETED("COMPLETED"),
+
+    /**
+     * Xử lý lỗi, status = 'ERROR'
+     */
+    ERROR("ERROR"),
+
+    /**
+     * Lỗi tạm thời, xử lý lại sau: giữ status = 'PENDING', bỏ owner và đặt lease hết hạn sau retry delay
+     * để sweeper trả transaction về hàng đợi
+     */
+    RETRY("RETRY");
+
+    private final String value;
+
+    TransactionOutcome(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
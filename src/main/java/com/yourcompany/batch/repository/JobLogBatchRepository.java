@@ -0,0 +1,88 @@
+package com.yourcompany.batch.repository;
+
+import com.yourcompany.batch.domain.JobLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi JobLog theo lô (JDBC batch insert, một round trip mỗi lô) cho JobLogSink.
+ *
+ * Mỗi lô được ghi trong transaction DB riêng (REQUIRES_NEW), không phụ thuộc transaction của chunk.
+ * Id được cấp giống optimizer pooled-lo của entity JobLog: mỗi giá trị của job_log_seq (INCREMENT BY
+ * ID_ALLOCATION_SIZE) là id đầu tiên của một block ID_ALLOCATION_SIZE id, nên không trùng id do Hibernate cấp.
+ */
+@Repository
+public class JobLogBatchRepository {
+
+    /**
+     * Phải bằng allocationSize của JobLog và INCREMENT BY của job_log_seq
+     */
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCKS_SQL = "SELECT job_log_seq.NEXTVAL FROM dual CONNECT BY LEVEL <= ?";
+
+    private static final String INSERT_SQL = """
+        INSERT INTO job_log (id, job_name, log_type, message, note, created_by, created_date,
+                             STEP_EXECUTION_ID, JOB_EXECUTION_ID)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Insert các JobLog (id lấy từ job_log_seq theo block), commit ngay
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void insertAll(List<JobLog> jobLogs) {
+        if (jobLogs.isEmpty()) {
+            return;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        session.doWork(connection -> {
+            List<Long> blocks = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(NEXT_ID_BLOCKS_SQL)) {
+                statement.setInt(1, (jobLogs.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        blocks.add(resultSet.getLong(1));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < jobLogs.size(); i++) {
+                    JobLog jobLog = jobLogs.get(i);
+                    jobLog.setId(blocks.get(i / ID_ALLOCATION_SIZE) + i % ID_ALLOCATION_SIZE);
+                    statement.setLong(1, jobLog.getId());
+                    statement.setString(2, jobLog.getJobName());
+                    statement.setString(3, jobLog.getLogType() != null ? jobLog.getLogType().name() : null);
+                    statement.setString(4, jobLog.getMessage());
+                    // note là CLOB (stack trace có thể dài hơn giới hạn của VARCHAR2 bind)
+                    if (jobLog.getNote() != null) {
+                        statement.setCharacterStream(5, new StringReader(jobLog.getNote()), jobLog.getNote().length());
+                    } else {
+                        statement.setNull(5, Types.CLOB);
+                    }
+                    statement.setString(6, jobLog.getCreatedBy());
+                    statement.setTimestamp(7, jobLog.getCreatedDate() != null ? Timestamp.from(jobLog.getCreatedDate()) : null);
+                    statement.setObject(8, jobLog.getStepExecutionId(), Types.NUMERIC);
+                    statement.setObject(9, jobLog.getJobExecutionId(), Types.NUMERIC);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.yourcompany.batch.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Repository cho bảng transaction_api_idempotency: các transaction đã gọi external API thành công.
+ *
+ * Dòng được ghi theo lô cho cả chunk (saveAll, một JDBC batch) khi writer của chunk chạy, trong transaction DB
+ * riêng (REQUIRES_NEW), nên vẫn còn khi chunk rollback và được dùng để bỏ qua lời gọi trùng khi xử lý lại.
+ */
+@Repository
+public class TransactionApiIdempotencyRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionApiIdempotencyRepository.class);
+
+    private static final String SELECT_KEY_SQL = """
+        SELECT idempotency_key
+        FROM transaction_api_idempotency
+        WHERE transaction_id = :transactionId
+        AND outcome = :outcome
+        """;
+
+    private static final String SELECT_KEYS_SQL = """
+        SELECT transaction_id, idempotency_key
+        FROM transaction_api_idempotency
+        WHERE transaction_id IN (:transactionIds)
+        AND outcome = :outcome
+        """;
+
+    /**
+     * Giới hạn số phần tử của IN list trong Oracle
+     */
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private static final String MERGE_BATCH_SQL = """
+        MERGE INTO transaction_api_idempotency i
+        USING (SELECT ? AS transaction_id, ? AS idempotency_key, ? AS outcome FROM dual) d
+        ON (i.transaction_id = d.transaction_id)
+        WHEN MATCHED THEN UPDATE SET
+            i.idempotency_key = d.idempotency_key,
+            i.outcome = d.outcome,
+            i.created_date = SYSTIMESTAMP
+        WHEN NOT MATCHED THEN INSERT (transaction_id, idempotency_key, outcome, created_date)
+            VALUES (d.transaction_id, d.idempotency_key, d.outcome, SYSTIMESTAMP)
+        """;
+
+    private static final String PURGE_SQL = """
+        DELETE FROM transaction_api_idempotency
+        WHERE created_date < :before
+        AND ROWNUM <= :limit
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Idempotency key đã ghi nhận với outcome của một transaction (nếu có)
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findKey(Long transactionId, String outcome) {
+        @SuppressWarnings("unchecked")
+        List<String> keys = entityManager.createNativeQuery(SELECT_KEY_SQL)
+            .setParameter("transactionId", transactionId)
+            .setParameter("outcome", outcome)
+            .getResultList();
+        return keys.isEmpty() ? Optional.empty() : Optional.ofNullable(keys.get(0));
+    }
+
+    /**
+     * Idempotency key đã ghi nhận với outcome của nhiều transaction (một query cho mỗi 1000 id)
+     *
+     * @return transaction id -> idempotency key, chỉ gồm các transaction đã có ghi nhận
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, String> findKeys(Collection<Long> transactionIds, String outcome) {
+        Map<Long, String> keys = new HashMap<>();
+        List<Long> ids = new ArrayList<>(transactionIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = entityManager.createNativeQuery(SELECT_KEYS_SQL)
+                .setParameter("transactionIds", ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST_SIZE)))
+                .setParameter("outcome", outcome)
+                .getResultList();
+            for (Object[] row : rows) {
+                keys.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Ghi nhận kết quả gọi API của nhiều transaction (JDBC batch, một round trip), commit ngay
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveAll(List<Long> transactionIds, List<String> idempotencyKeys, String outcome) {
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(MERGE_BATCH_SQL)) {
+                for (int i = 0; i < transactionIds.size(); i++) {
+                    statement.setLong(1, transactionIds.get(i));
+                    statement.setString(2, idempotencyKeys.get(i));
+                    statement.setString(3, outcome);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Xóa tối đa limit dòng ghi nhận trước thời điểm before
+     *
+     * @return số dòng đã xóa
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int purgeOlderThan(Instant before, int limit) {
+        int deleted = entityManager.createNativeQuery(PURGE_SQL)
+            .setParameter("before", Timestamp.from(before))
+            .setParameter("limit", limit)
+            .executeUpdate();
+        log.debug("Purged {} idempotency records created before {}", deleted, before);
+        return deleted;
+    }
+}
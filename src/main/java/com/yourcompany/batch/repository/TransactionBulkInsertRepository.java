@@ -0,0 +1,94 @@
+package com.yourcompany.batch.repository;
+
+import com.yourcompany.batch.domain.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk insert transaction mới (status IS NULL) bằng một JDBC batch cho mỗi lần gọi.
+ *
+ * Với directPath = true câu insert có hint APPEND_VALUES (direct-path insert): dữ liệu được ghi thẳng
+ * vào block mới phía trên high water mark, không qua buffer cache, redo/undo ít hơn nhiều. Đổi lại:
+ * - bảng transaction bị lock (TM exclusive) đến khi commit, các job claim / cập nhật transaction phải chờ,
+ *   nên commit group (chunk) nên lớn và chỉ nên bật khi không có job xử lý nào chạy song song;
+ * - trong cùng transaction DB không được đọc / ghi lại bảng transaction sau insert (ORA-12838),
+ *   nên mỗi lần gọi phải là một transaction riêng và chỉ gọi một lần.
+ *
+ * Id được cấp giống optimizer pooled-lo của entity Transaction (một NEXTVAL của transaction_seq cho
+ * ID_ALLOCATION_SIZE rows).
+ */
+@Repository
+public class TransactionBulkInsertRepository {
+
+    /**
+     * Phải bằng allocationSize của Transaction và INCREMENT BY của transaction_seq
+     */
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCKS_SQL = "SELECT transaction_seq.NEXTVAL FROM dual CONNECT BY LEVEL <= ?";
+
+    private static final String INSERT_SQL = """
+        INSERT %s INTO transaction (id, branch, name, amount, create_date)
+        VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_CONVENTIONAL_SQL = INSERT_SQL.formatted("");
+    private static final String INSERT_DIRECT_PATH_SQL = INSERT_SQL.formatted("/*+ APPEND_VALUES */");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Insert các transaction (gán id cho từng transaction) trong transaction DB hiện tại
+     *
+     * @param directPath true để dùng direct-path insert (APPEND_VALUES)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertAll(List<? extends Transaction> transactions, boolean directPath) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        session.doWork(connection -> {
+            List<Long> blocks = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(NEXT_ID_BLOCKS_SQL)) {
+                statement.setInt(1, (transactions.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        blocks.add(resultSet.getLong(1));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    directPath ? INSERT_DIRECT_PATH_SQL : INSERT_CONVENTIONAL_SQL)) {
+                for (int i = 0; i < transactions.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    transaction.setId(blocks.get(i / ID_ALLOCATION_SIZE) + i % ID_ALLOCATION_SIZE);
+                    statement.setLong(1, transaction.getId());
+                    statement.setString(2, transaction.getBranch());
+                    statement.setString(3, transaction.getName());
+                    if (transaction.getAmount() != null) {
+                        statement.setBigDecimal(4, transaction.getAmount());
+                    } else {
+                        statement.setNull(4, Types.NUMERIC);
+                    }
+                    statement.setTimestamp(5, transaction.getCreateDate() != null
+                        ? Timestamp.from(transaction.getCreateDate()) : null);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
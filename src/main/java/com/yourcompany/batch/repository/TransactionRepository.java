@@ -2,12 +2,18 @@ package com.yourcompany.batch.repository;
 
 import com.yourcompany.batch.domain.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
+    /**
+     * Đếm số transaction đang chờ (status IS NULL) qua function-based index idx_transaction_queue,
+     * tránh full scan bảng transaction
+     */
+    @Query(value = "SELECT COUNT(*) FROM transaction t WHERE CASE WHEN t.status IS NULL THEN t.id END IS NOT NULL",
+        nativeQuery = true)
     long countByStatusIsNull();
 
 }
-
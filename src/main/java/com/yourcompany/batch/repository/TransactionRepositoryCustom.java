@@ -1,6 +1,7 @@
 package com.yourcompany.batch.repository;
 
 import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
 
 import java.util.List;
 
@@ -17,6 +18,60 @@ public interface TransactionRepositoryCustom {
      */
     List<Transaction> fetchAndMarkTransactions(int limit);
 
+    /**
+     * Lock, cập nhật status = 'PENDING' và trả về các transaction (status IS NULL) trong một round trip
+     * duy nhất (PL/SQL block với BULK COLLECT). Kết quả được map trực tiếp từ rows,
+     * không đi qua managed entity.
+     * Transaction được claim kèm lease: claimed_by = owner, lease_expires_at = giờ DB + leaseSeconds.
+     * Lease quá hạn (owner chết hoặc không renew) sẽ được sweeper trả về hàng đợi.
+     *
+     * @param limit         số lượng tối đa cần lấy
+     * @param claimedBy     owner giữ lease
+     * @param leaseSeconds  thời hạn lease (giây)
+     * @return danh sách Transaction (detached) đã được chuyển sang trạng thái PENDING
+     */
+    List<Transaction> claimTransactions(int limit, String claimedBy, int leaseSeconds);
+
+    /**
+     * Giống claimTransactions(limit, claimedBy, leaseSeconds) nhưng chỉ claim các transaction thuộc một partition:
+     * MOD(id, partitionCount) = partitionIndex.
+     * Các worker khác partition không tranh chấp cùng rows nên SKIP LOCKED không phải bỏ qua rows của nhau.
+     *
+     * @param limit           số lượng tối đa cần lấy
+     * @param partitionIndex  partition của worker (0..partitionCount-1)
+     * @param partitionCount  tổng số partition (<= 1 = không chia partition)
+     * @param claimedBy       owner giữ lease
+     * @param leaseSeconds    thời hạn lease (giây)
+     * @return danh sách Transaction (detached) đã được chuyển sang trạng thái PENDING
+     */
+    List<Transaction> claimTransactions(int limit, int partitionIndex, int partitionCount,
+                                        String claimedBy, int leaseSeconds);
+
+    /**
+     * Gia hạn lease cho tất cả transaction PENDING của một owner
+     *
+     * @param claimedBy     owner giữ lease
+     * @param leaseSeconds  thời hạn lease mới tính từ giờ DB hiện tại (giây)
+     * @return số transactions đã được gia hạn
+     */
+    int renewLeases(String claimedBy, int leaseSeconds);
+
+    /**
+     * Trả tối đa limit transaction PENDING có lease đã hết hạn về lại hàng đợi (status IS NULL)
+     *
+     * @param limit số lượng tối đa trong một lần update
+     * @return số transactions đã được trả về hàng đợi
+     */
+    int reclaimExpiredLeases(int limit);
+
+    /**
+     * Trả các transaction đã claim (status = 'PENDING') nhưng chưa xử lý về lại status IS NULL, bỏ lease
+     *
+     * @param transactionIds Danh sách IDs của transactions cần release
+     * @return số transactions đã được release
+     */
+    int releaseTransactions(List<Long> transactionIds);
+
     /**
      * Cập nhật status của transaction
      * 
@@ -32,5 +87,16 @@ public interface TransactionRepositoryCustom {
      * @param status Status mới (JOB_PROCESSING, COMPLETED, ERROR)
      */
     void updateTransactionsStatus(List<Long> transactionIds, String status);
-}
 
+    /**
+     * Ghi kết quả xử lý của nhiều transactions trong một câu lệnh (id / kết quả bind dạng collection):
+     * COMPLETED / ERROR cập nhật status và bỏ lease, RETRY giữ 'PENDING', bỏ owner và đặt lease hết hạn
+     * sau retryDelaySeconds để sweeper trả về hàng đợi
+     *
+     * @param transactionIds Danh sách IDs của transactions
+     * @param outcomes Kết quả tương ứng từng transaction (cùng thứ tự với transactionIds)
+     * @param retryDelaySeconds Thời gian chờ trước khi xử lý lại các transaction RETRY (giây)
+     * @return số transactions đã được cập nhật
+     */
+    int applyTransactionOutcomes(List<Long> transactionIds, List<TransactionOutcome> outcomes, int retryDelaySeconds);
+}
@@ -1,17 +1,32 @@
 package com.yourcompany.batch.repository;
 
 import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
 import com.yourcompany.batch.domain.enumeration.TransactionStatus;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
+import oracle.jdbc.OracleConnection;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,21 +38,196 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionRepositoryImpl.class);
 
+    /**
+     * Hàng đợi (status IS NULL) được đọc qua function-based index idx_transaction_queue:
+     * (CASE WHEN status IS NULL THEN create_date END, CASE WHEN status IS NULL THEN id END).
+     * Rows đã xử lý có cả hai key NULL nên không nằm trong index, index chỉ chứa các transaction đang chờ.
+     * Các câu query phải dùng đúng các biểu thức này thì Oracle mới dùng được index.
+     */
+    private static final String QUEUE_PREDICATE = "CASE WHEN t.status IS NULL THEN t.id END IS NOT NULL";
+    private static final String QUEUE_ORDER_BY =
+        "CASE WHEN t.status IS NULL THEN t.create_date END ASC, CASE WHEN t.status IS NULL THEN t.id END ASC";
+
     private static final String SELECT_IDS_SQL = """
         SELECT id
         FROM (
-            SELECT t.id
+            SELECT /*+ INDEX(t idx_transaction_queue) */ t.id
             FROM transaction t
-            WHERE t.status IS NULL
-            ORDER BY t.create_date ASC, t.id ASC
+            WHERE %s
+            ORDER BY %s
         )
         WHERE ROWNUM <= :limit
         FOR UPDATE SKIP LOCKED
+        """.formatted(QUEUE_PREDICATE, QUEUE_ORDER_BY);
+
+    private static final String NUMBER_LIST_TYPE = "SYS.ODCINUMBERLIST";
+    private static final String VARCHAR2_LIST_TYPE = "SYS.ODCIVARCHAR2LIST";
+
+    /**
+     * Lock + update + trả về rows trong một lần gọi DB.
+     * Với FOR UPDATE SKIP LOCKED, row chỉ bị lock khi được fetch nên BULK COLLECT ... LIMIT
+     * chỉ lock đúng số rows cần lấy. create_date được trả về dạng chuỗi ISO để giữ phần giây lẻ.
+     * %1$s / %2$s là điều kiện và thứ tự của hàng đợi (QUEUE_PREDICATE / QUEUE_ORDER_BY),
+     * %3$s là điều kiện lọc partition (rỗng khi không chia partition).
+     * Lease tính theo giờ của DB server để không phụ thuộc đồng hồ / time zone của từng node.
+     */
+    private static final String CLAIM_SQL_TEMPLATE = """
+        DECLARE
+            CURSOR c_claim IS
+                SELECT /*+ INDEX(t idx_transaction_queue) */ t.id, t.branch, t.name, t.amount,
+                       TO_CHAR(t.create_date, 'YYYY-MM-DD"T"HH24:MI:SS.FF9')
+                FROM transaction t
+                WHERE %1$s %3$s
+                ORDER BY %2$s
+                FOR UPDATE SKIP LOCKED;
+            l_ids      SYS.ODCINUMBERLIST;
+            l_branches SYS.ODCIVARCHAR2LIST;
+            l_names    SYS.ODCIVARCHAR2LIST;
+            l_amounts  SYS.ODCINUMBERLIST;
+            l_dates    SYS.ODCIVARCHAR2LIST;
+        BEGIN
+            OPEN c_claim;
+            FETCH c_claim BULK COLLECT INTO l_ids, l_branches, l_names, l_amounts, l_dates LIMIT ?;
+            CLOSE c_claim;
+
+            FORALL i IN 1 .. l_ids.COUNT
+                UPDATE transaction
+                SET status = ?,
+                    claimed_by = ?,
+                    lease_expires_at = CAST(SYSTIMESTAMP AS TIMESTAMP) + NUMTODSINTERVAL(?, 'SECOND')
+                WHERE id = l_ids(i);
+
+            ? := l_ids;
+            ? := l_branches;
+            ? := l_names;
+            ? := l_amounts;
+            ? := l_dates;
+        END;
+        """;
+
+    private static final String CLAIM_SQL = CLAIM_SQL_TEMPLATE.formatted(QUEUE_PREDICATE, QUEUE_ORDER_BY, "");
+
+    /**
+     * Partition theo MOD(id, partitionCount): id tăng dần theo sequence nên các partition có số rows gần bằng nhau,
+     * không phụ thuộc số branch (chia theo branch thì vài branch lớn / branch NULL dồn vào một partition).
+     * Không cần giữ một branch trong một partition: rate limit theo branch dùng chung cho mọi partition.
+     */
+    private static final String CLAIM_PARTITION_SQL = CLAIM_SQL_TEMPLATE.formatted(QUEUE_PREDICATE, QUEUE_ORDER_BY,
+        "AND MOD(t.id, ?) = ?");
+
+    private static final String RENEW_LEASES_SQL = """
+        UPDATE transaction
+        SET lease_expires_at = CAST(SYSTIMESTAMP AS TIMESTAMP) + NUMTODSINTERVAL(:leaseSeconds, 'SECOND')
+        WHERE claimed_by = :claimedBy
+          AND status = :status
+        """;
+
+    private static final String RECLAIM_EXPIRED_SQL = """
+        UPDATE transaction
+        SET status = NULL, claimed_by = NULL, lease_expires_at = NULL
+        WHERE lease_expires_at < CAST(SYSTIMESTAMP AS TIMESTAMP)
+          AND status = :status
+          AND ROWNUM <= :limit
+        """;
+
+    /**
+     * Collection type (nested table, không giới hạn số phần tử) để bind danh sách id,
+     * tạo bởi db/oracle/add-transaction-id-tab.sql
+     */
+    private static final String ID_TABLE_TYPE = "TRANSACTION_ID_TAB";
+
+    /**
+     * Collection type để bind status mới tương ứng từng id, tạo bởi db/oracle/add-transaction-status-tab.sql
+     */
+    private static final String STATUS_TABLE_TYPE = "TRANSACTION_STATUS_TAB";
+
+    /**
+     * Cập nhật status của một danh sách id bất kỳ độ dài với một SQL text cố định (id và status mới bind dạng
+     * hai collection song song): lock rows để lấy status cũ, cập nhật status mới (bỏ lease) và ghi delta vào
+     * transaction_status_counter. Status mới 'RETRY' nghĩa là giữ 'PENDING', bỏ owner và đặt lease hết hạn
+     * sau l_retry_seconds để sweeper trả về hàng đợi.
+     * Số câu lệnh không phụ thuộc số id: một SELECT, một FORALL UPDATE và tối đa một MERGE cho mỗi status.
+     */
+    private static final String APPLY_STATUS_SQL = """
+        DECLARE
+            TYPE t_id_tab IS TABLE OF NUMBER(19);
+            TYPE t_status_tab IS TABLE OF VARCHAR2(50);
+            TYPE t_target_tab IS TABLE OF VARCHAR2(50) INDEX BY VARCHAR2(20);
+            TYPE t_delta_tab IS TABLE OF NUMBER INDEX BY VARCHAR2(50);
+            l_input_ids      TRANSACTION_ID_TAB := ?;
+            l_input_statuses TRANSACTION_STATUS_TAB := ?;
+            l_retry_seconds  NUMBER := ?;
+            l_slot           NUMBER := ?;
+            l_target         t_target_tab;
+            l_ids            t_id_tab;
+            l_old            t_status_tab;
+            l_new            t_status_tab := t_status_tab();
+            l_delta          t_delta_tab;
+            l_key            VARCHAR2(50);
+            l_count          NUMBER;
+        BEGIN
+            FOR i IN 1 .. l_input_ids.COUNT LOOP
+                l_target(TO_CHAR(l_input_ids(i))) := l_input_statuses(i);
+            END LOOP;
+
+            SELECT t.id, t.status BULK COLLECT INTO l_ids, l_old
+            FROM transaction t
+            WHERE t.id IN (SELECT /*+ CARDINALITY(x 100) */ x.COLUMN_VALUE FROM TABLE(l_input_ids) x)
+            ORDER BY t.id
+            FOR UPDATE;
+
+            l_new.EXTEND(l_ids.COUNT);
+            FOR i IN 1 .. l_ids.COUNT LOOP
+                l_new(i) := l_target(TO_CHAR(l_ids(i)));
+            END LOOP;
+
+            FORALL i IN 1 .. l_ids.COUNT
+                UPDATE transaction
+                SET status = CASE WHEN l_new(i) = '%2$s' THEN '%3$s' ELSE l_new(i) END,
+                    claimed_by = NULL,
+                    lease_expires_at = CASE WHEN l_new(i) = '%2$s'
+                        THEN CAST(SYSTIMESTAMP AS TIMESTAMP) + NUMTODSINTERVAL(l_retry_seconds, 'SECOND') END
+                WHERE id = l_ids(i);
+
+            FOR i IN 1 .. l_ids.COUNT LOOP
+                l_key := NVL(l_old(i), '%1$s');
+                l_delta(l_key) := CASE WHEN l_delta.EXISTS(l_key) THEN l_delta(l_key) ELSE 0 END - 1;
+                l_key := CASE WHEN l_new(i) = '%2$s' THEN '%3$s' ELSE NVL(l_new(i), '%1$s') END;
+                l_delta(l_key) := CASE WHEN l_delta.EXISTS(l_key) THEN l_delta(l_key) ELSE 0 END + 1;
+            END LOOP;
+
+            l_key := l_delta.FIRST;
+            WHILE l_key IS NOT NULL LOOP
+                l_count := l_delta(l_key);
+                IF l_count <> 0 THEN
+                    MERGE INTO transaction_status_counter c
+                    USING (SELECT l_key AS status_key, l_slot AS slot, l_count AS delta FROM dual) d
+                    ON (c.status_key = d.status_key AND c.slot = d.slot)
+                    WHEN MATCHED THEN UPDATE SET c.cnt = c.cnt + d.delta, c.updated_date = SYSTIMESTAMP
+                    WHEN NOT MATCHED THEN INSERT (status_key, slot, cnt, updated_date)
+                        VALUES (d.status_key, d.slot, d.delta, SYSTIMESTAMP);
+                END IF;
+                l_key := l_delta.NEXT(l_key);
+            END LOOP;
+
+            ? := l_ids.COUNT;
+        END;
+        """.formatted(TransactionStatusCounterRepository.NEW_STATUS_KEY, TransactionOutcome.RETRY.getValue(),
+            TransactionStatus.PENDING.getValue());
+
+    private static final String RELEASE_SQL = """
+        UPDATE transaction
+        SET status = NULL, claimed_by = NULL, lease_expires_at = NULL
+        WHERE id IN (SELECT /*+ CARDINALITY(x 100) */ x.COLUMN_VALUE FROM TABLE(CAST(? AS TRANSACTION_ID_TAB)) x)
+          AND status = ?
         """;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private TransactionStatusCounterRepository transactionStatusCounterRepository;
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public List<Transaction> fetchAndMarkTransactions(int limit) {
@@ -63,6 +253,8 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
             .executeUpdate();
 
         log.debug("Marked {} transactions as {}", updated, TransactionStatus.PENDING.getValue());
+        transactionStatusCounterRepository.move(TransactionStatusCounterRepository.NEW_STATUS_KEY,
+            TransactionStatus.PENDING.getValue(), updated);
 
         // Flush và clear để đảm bảo update được commit ngay
         entityManager.flush();
@@ -79,6 +271,156 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
         return transactions;
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Transaction> claimTransactions(int limit, String claimedBy, int leaseSeconds) {
+        return claimTransactions(limit, 0, 1, claimedBy, leaseSeconds);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Transaction> claimTransactions(int limit, int partitionIndex, int partitionCount,
+                                               String claimedBy, int leaseSeconds) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        boolean partitioned = partitionCount > 1;
+
+        List<Transaction> transactions = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (CallableStatement cs = connection.prepareCall(partitioned ? CLAIM_PARTITION_SQL : CLAIM_SQL)) {
+                int index = 1;
+                if (partitioned) {
+                    cs.setInt(index++, partitionCount);
+                    cs.setInt(index++, partitionIndex);
+                }
+                cs.setInt(index++, limit);
+                cs.setString(index++, TransactionStatus.PENDING.getValue());
+                cs.setString(index++, claimedBy);
+                cs.setInt(index++, leaseSeconds);
+                int outIndex = index;
+                cs.registerOutParameter(outIndex, Types.ARRAY, NUMBER_LIST_TYPE);
+                cs.registerOutParameter(outIndex + 1, Types.ARRAY, VARCHAR2_LIST_TYPE);
+                cs.registerOutParameter(outIndex + 2, Types.ARRAY, VARCHAR2_LIST_TYPE);
+                cs.registerOutParameter(outIndex + 3, Types.ARRAY, NUMBER_LIST_TYPE);
+                cs.registerOutParameter(outIndex + 4, Types.ARRAY, VARCHAR2_LIST_TYPE);
+                cs.execute();
+
+                Object[] ids = toObjectArray(cs.getArray(outIndex));
+                Object[] branches = toObjectArray(cs.getArray(outIndex + 1));
+                Object[] names = toObjectArray(cs.getArray(outIndex + 2));
+                Object[] amounts = toObjectArray(cs.getArray(outIndex + 3));
+                Object[] dates = toObjectArray(cs.getArray(outIndex + 4));
+
+                List<Transaction> result = new ArrayList<>(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    Transaction transaction = new Transaction();
+                    transaction.setId(((Number) ids[i]).longValue());
+                    transaction.setBranch((String) branches[i]);
+                    transaction.setName((String) names[i]);
+                    transaction.setAmount((BigDecimal) amounts[i]);
+                    transaction.setCreateDate(toInstant((String) dates[i]));
+                    transaction.setStatus(TransactionStatus.PENDING.getValue());
+                    transaction.setClaimedBy(claimedBy);
+                    result.add(transaction);
+                }
+                return result;
+            }
+        });
+
+        transactionStatusCounterRepository.move(TransactionStatusCounterRepository.NEW_STATUS_KEY,
+            TransactionStatus.PENDING.getValue(), transactions.size());
+
+        if (partitioned) {
+            log.info("Claimed {} transactions as PENDING in a single round trip (partition {}/{}, owner {})",
+                transactions.size(), partitionIndex, partitionCount, claimedBy);
+        } else {
+            log.info("Claimed {} transactions as PENDING in a single round trip (owner {})",
+                transactions.size(), claimedBy);
+        }
+        return transactions;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int renewLeases(String claimedBy, int leaseSeconds) {
+        if (claimedBy == null) {
+            return 0;
+        }
+
+        int renewed = entityManager.createNativeQuery(RENEW_LEASES_SQL)
+            .setParameter("leaseSeconds", leaseSeconds)
+            .setParameter("claimedBy", claimedBy)
+            .setParameter("status", TransactionStatus.PENDING.getValue())
+            .executeUpdate();
+
+        log.debug("Renewed lease of {} transactions owned by {}", renewed, claimedBy);
+        return renewed;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int reclaimExpiredLeases(int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+
+        int reclaimed = entityManager.createNativeQuery(RECLAIM_EXPIRED_SQL)
+            .setParameter("status", TransactionStatus.PENDING.getValue())
+            .setParameter("limit", limit)
+            .executeUpdate();
+
+        transactionStatusCounterRepository.move(TransactionStatus.PENDING.getValue(),
+            TransactionStatusCounterRepository.NEW_STATUS_KEY, reclaimed);
+        log.debug("Reclaimed {} transactions with expired lease", reclaimed);
+        return reclaimed;
+    }
+
+    private static Object[] toObjectArray(Array array) throws SQLException {
+        if (array == null) {
+            return new Object[0];
+        }
+        try {
+            return (Object[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+
+    /**
+     * create_date (TIMESTAMP không có time zone) được hiểu theo time zone của JVM,
+     * giống với ResultSet.getTimestamp()
+     */
+    private static Instant toInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int releaseTransactions(List<Long> transactionIds) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            return 0;
+        }
+
+        int released = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Array ids = toIdArray(connection, transactionIds);
+            try (PreparedStatement ps = connection.prepareStatement(RELEASE_SQL)) {
+                ps.setArray(1, ids);
+                ps.setString(2, TransactionStatus.PENDING.getValue());
+                return ps.executeUpdate();
+            } finally {
+                ids.free();
+            }
+        });
+
+        transactionStatusCounterRepository.move(TransactionStatus.PENDING.getValue(),
+            TransactionStatusCounterRepository.NEW_STATUS_KEY, released);
+        log.debug("Released {} transactions back to status NULL", released);
+        return released;
+    }
+
     @Override
     @Transactional
     public void updateTransactionStatus(Long transactionId, String status) {
@@ -86,11 +428,7 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
             return;
         }
 
-        int updated = entityManager.createQuery(
-                "UPDATE Transaction t SET t.status = :status WHERE t.id = :id")
-            .setParameter("status", status)
-            .setParameter("id", transactionId)
-            .executeUpdate();
+        int updated = updateStatusAndCounters(List.of(transactionId), status);
 
         log.debug("Updated transaction id={} to status {}, affectedRows={}", transactionId, status, updated);
     }
@@ -102,12 +440,58 @@ public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
             return;
         }
 
-        int updated = entityManager.createQuery(
-                "UPDATE Transaction t SET t.status = :status WHERE t.id IN :ids")
-            .setParameter("status", status)
-            .setParameter("ids", transactionIds)
-            .executeUpdate();
+        int updated = updateStatusAndCounters(transactionIds, status);
 
         log.debug("Updated {} transactions to status {}", updated, status);
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional
+    public int applyTransactionOutcomes(List<Long> transactionIds, List<TransactionOutcome> outcomes,
+                                        int retryDelaySeconds) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            return 0;
+        }
+
+        List<String> statuses = new ArrayList<>(outcomes.size());
+        for (TransactionOutcome outcome : outcomes) {
+            statuses.add(outcome.getValue());
+        }
+        int updated = applyStatuses(transactionIds, statuses, retryDelaySeconds);
+
+        log.debug("Applied {} transaction outcomes", updated);
+        return updated;
+    }
+
+    /**
+     * Cập nhật status (bỏ lease) và counter trong một round trip, id / status bind dạng collection
+     */
+    private int updateStatusAndCounters(List<Long> transactionIds, String status) {
+        return applyStatuses(transactionIds, Collections.nCopies(transactionIds.size(), status), 0);
+    }
+
+    private int applyStatuses(List<Long> transactionIds, List<String> statuses, int retryDelaySeconds) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            OracleConnection oracleConnection = connection.unwrap(OracleConnection.class);
+            Array ids = toIdArray(connection, transactionIds);
+            Array newStatuses = oracleConnection.createOracleArray(STATUS_TABLE_TYPE, statuses.toArray(new String[0]));
+            try (CallableStatement cs = connection.prepareCall(APPLY_STATUS_SQL)) {
+                cs.setArray(1, ids);
+                cs.setArray(2, newStatuses);
+                cs.setInt(3, retryDelaySeconds);
+                cs.setInt(4, TransactionStatusCounterRepository.randomSlot());
+                cs.registerOutParameter(5, Types.INTEGER);
+                cs.execute();
+                return cs.getInt(5);
+            } finally {
+                ids.free();
+                newStatuses.free();
+            }
+        });
+    }
+
+    private static Array toIdArray(Connection connection, List<Long> transactionIds) throws SQLException {
+        return connection.unwrap(OracleConnection.class)
+            .createOracleArray(ID_TABLE_TYPE, transactionIds.toArray(new Long[0]));
+    }
+}
@@ -0,0 +1,187 @@
+package com.yourcompany.batch.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Repository cho bảng transaction_status_counter: số transaction theo status, đọc trong O(1)
+ * thay vì COUNT(*) trên bảng transaction.
+ *
+ * Mỗi status có SLOT_COUNT dòng (slot), mỗi lần cập nhật chỉ cộng delta vào một slot ngẫu nhiên
+ * để các worker chạy song song không cùng chờ lock một dòng. Giá trị của status = SUM(cnt) các slot.
+ * Delta được ghi trong cùng transaction DB với thao tác đổi status của bảng transaction,
+ * nên counter được commit / rollback cùng với dữ liệu.
+ */
+@Repository
+public class TransactionStatusCounterRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionStatusCounterRepository.class);
+
+    /**
+     * Key của các transaction đang chờ xử lý (status IS NULL)
+     */
+    public static final String NEW_STATUS_KEY = "NEW";
+    public static final int SLOT_COUNT = 16;
+
+    private static final String SELECT_COUNTS_SQL = """
+        SELECT status_key, SUM(cnt)
+        FROM transaction_status_counter
+        GROUP BY status_key
+        """;
+
+    private static final String SELECT_COUNT_SQL = """
+        SELECT NVL(SUM(cnt), 0)
+        FROM transaction_status_counter
+        WHERE status_key = :statusKey
+        """;
+
+    /**
+     * Đếm số thực tế và đọc counter trong cùng một câu lệnh: Oracle đọc cả hai tại cùng một SCN (read consistency),
+     * mà mỗi transaction DB đổi status và ghi delta cùng lúc, nên hiệu hai giá trị là độ lệch thật của counter,
+     * không bị ảnh hưởng bởi các transaction đang chạy. Điều kiện đếm NEW dùng cùng biểu thức với
+     * function-based index idx_transaction_queue.
+     */
+    private static final String COUNT_QUEUE_AND_COUNTER_SQL = """
+        SELECT (SELECT COUNT(*) FROM transaction t WHERE CASE WHEN t.status IS NULL THEN t.id END IS NOT NULL),
+               (SELECT NVL(SUM(c.cnt), 0) FROM transaction_status_counter c WHERE c.status_key = :statusKey)
+        FROM dual
+        """;
+
+    private static final String COUNT_STATUS_AND_COUNTER_SQL = """
+        SELECT (SELECT COUNT(*) FROM transaction t WHERE t.status = :statusKey),
+               (SELECT NVL(SUM(c.cnt), 0) FROM transaction_status_counter c WHERE c.status_key = :statusKey)
+        FROM dual
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Số transaction theo từng status key (NEW, PENDING, COMPLETED, ERROR...)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getCounts() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(SELECT_COUNTS_SQL).getResultList();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], row[1] != null ? ((Number) row[1]).longValue() : 0L);
+        }
+        return counts;
+    }
+
+    /**
+     * Số transaction của một status key
+     */
+    @Transactional(readOnly = true)
+    public long getCount(String statusKey) {
+        Number count = (Number) entityManager.createNativeQuery(SELECT_COUNT_SQL)
+            .setParameter("statusKey", statusKey)
+            .getSingleResult();
+        return count != null ? count.longValue() : 0L;
+    }
+
+    /**
+     * Cộng các delta (status key -> delta) vào counter trong một câu MERGE,
+     * phải được gọi trong transaction đang đổi status của bảng transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDeltas(Map<String, Long> deltas) {
+        Map<String, Long> nonZero = new LinkedHashMap<>();
+        deltas.forEach((statusKey, delta) -> {
+            if (delta != null && delta != 0) {
+                nonZero.put(statusKey, delta);
+            }
+        });
+        if (nonZero.isEmpty()) {
+            return;
+        }
+
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < nonZero.size(); i++) {
+            if (i > 0) {
+                source.append(" UNION ALL ");
+            }
+            source.append("SELECT :k").append(i).append(" AS status_key, :s").append(i)
+                .append(" AS slot, :d").append(i).append(" AS delta FROM dual");
+        }
+        String sql = "MERGE INTO transaction_status_counter c USING (" + source + ") d"
+            + " ON (c.status_key = d.status_key AND c.slot = d.slot)"
+            + " WHEN MATCHED THEN UPDATE SET c.cnt = c.cnt + d.delta, c.updated_date = SYSTIMESTAMP"
+            + " WHEN NOT MATCHED THEN INSERT (status_key, slot, cnt, updated_date)"
+            + " VALUES (d.status_key, d.slot, d.delta, SYSTIMESTAMP)";
+
+        Query query = entityManager.createNativeQuery(sql);
+        int slot = randomSlot();
+        int i = 0;
+        for (Map.Entry<String, Long> entry : nonZero.entrySet()) {
+            query.setParameter("k" + i, entry.getKey());
+            query.setParameter("s" + i, slot);
+            query.setParameter("d" + i, entry.getValue());
+            i++;
+        }
+        query.executeUpdate();
+        log.debug("Applied status counter deltas {} to slot {}", nonZero, slot);
+    }
+
+    /**
+     * Chuyển count transaction từ status key này sang status key khác
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void move(String fromStatusKey, String toStatusKey, long count) {
+        if (count == 0 || fromStatusKey.equals(toStatusKey)) {
+            return;
+        }
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(fromStatusKey, -count);
+        deltas.put(toStatusKey, count);
+        applyDeltas(deltas);
+    }
+
+    /**
+     * Đếm lại số transaction thực tế của một status key và cộng phần chênh lệch vào counter như một delta.
+     * Không lock các slot của counter: số thực tế và counter được đọc tại cùng một SCN, còn delta hiệu chỉnh
+     * cộng dồn được với delta của các transaction đang chạy, nên các worker không phải chờ lần đếm.
+     *
+     * @return số transaction thực tế của status key
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reconcile(String statusKey) {
+        Object[] row = (Object[]) entityManager.createNativeQuery(NEW_STATUS_KEY.equals(statusKey)
+                ? COUNT_QUEUE_AND_COUNTER_SQL : COUNT_STATUS_AND_COUNTER_SQL)
+            .setParameter("statusKey", statusKey)
+            .getSingleResult();
+        long actual = row[0] != null ? ((Number) row[0]).longValue() : 0L;
+        long counted = row[1] != null ? ((Number) row[1]).longValue() : 0L;
+        if (actual != counted) {
+            log.warn("Status counter {} drifted: counter={}, actual={}", statusKey, counted, actual);
+            applyDeltas(Map.of(statusKey, actual - counted));
+        }
+        return actual;
+    }
+
+    /**
+     * Slot ngẫu nhiên để ghi delta
+     */
+    public static int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(SLOT_COUNT);
+    }
+
+    /**
+     * Status key của một status (NULL -> NEW)
+     */
+    public static String toStatusKey(String status) {
+        return status != null ? status : NEW_STATUS_KEY;
+    }
+}
@@ -0,0 +1,11 @@
+package com.yourcompany.batch.repository.dto;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Một dòng transaction được export ra file, đọc thẳng từ JDBC ResultSet (không qua entity)
+ */
+public record TransactionExportRow(long id, String branch, String name, BigDecimal amount,
+                                   Timestamp createDate, String status) {
+}
@@ -0,0 +1,202 @@
+package com.yourcompany.batch.sample;
+
+import com.yourcompany.batch.batch.reader.TransactionReader;
+import com.yourcompany.batch.batch.step.AbstractReactiveStepBuilder;
+import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.LogTypeEnum;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
+import com.yourcompany.batch.service.ReactiveExternalApiService;
+import com.yourcompany.batch.service.TransactionIdempotencyService;
+import com.yourcompany.batch.service.TransactionOutcomeCollector;
+import com.yourcompany.batch.service.TransactionStatusCounterService;
+import com.yourcompany.batch.service.resilience.CallNotPermittedException;
+import com.yourcompany.batch.service.resilience.TransientApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Step Builder xử lý Transaction bằng WebClient non-blocking (biến thể reactive của TransactionStepBuilder)
+ *
+ * Mỗi chunk gọi API cho tối đa reactiveConcurrency transaction đồng thời trên event loop của WebClient,
+ * phù hợp khi chunk lớn (hàng nghìn item) và latency API cao. Kết quả được ghi nhận như TransactionStepBuilder:
+ * COMPLETED trong writer, ERROR khi API trả lỗi (skip), RETRY khi lời gọi bị circuit breaker / rate limit
+ * từ chối hoặc API lỗi tạm thời (item bị lọc).
+ *
+ * Ghi nhận idempotency được tra một lần cho cả chunk (prepareChunk, trên thread của step) và được ghi xuống DB
+ * một lần cho cả chunk ở writer; chỉ item được xử lý lại riêng lẻ (scan sau rollback) mới tra DB từng item,
+ * trên Schedulers.boundedElastic() để không block event loop. Kết quả tra chỉ dùng cho chunk vừa tra
+ * (giữ trong hàm prepareChunk trả về), item chunk sau đọc lại luôn được tra lại.
+ */
+@Component
+public class ReactiveTransactionStepBuilder extends AbstractReactiveStepBuilder<Transaction, Transaction> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveTransactionStepBuilder.class);
+
+    @Autowired
+    private ObjectProvider<TransactionReader> transactionReaderProvider;
+
+    @Autowired
+    private TransactionOutcomeCollector transactionOutcomeCollector;
+
+    @Autowired
+    private TransactionIdempotencyService transactionIdempotencyService;
+
+    @Autowired
+    private ReactiveExternalApiService reactiveExternalApiService;
+
+    @Autowired
+    private TransactionStatusCounterService transactionStatusCounterService;
+
+    @Override
+    protected String getStepName() {
+        return "REACTIVE_TRANSACTION_PROCESSING_STEP";
+    }
+
+    @Override
+    protected int countTotalItems() {
+        long totalCount = transactionStatusCounterService.getQueuedCount();
+        log.info("Total transactions to process: {}", totalCount);
+        long maxRows = getLongParameter(TransactionReader.PARAM_MAX_ROWS, 0);
+        if (isDrainMode() && maxRows > 0) {
+            totalCount = Math.min(totalCount, maxRows);
+        }
+        return (int) totalCount;
+    }
+
+    @Override
+    protected String getLogMessageAtStart() {
+        return "Starting reactive transaction processing step - processing transactions from database";
+    }
+
+    @Override
+    protected ItemReader<Transaction> reader() {
+        TransactionReader transactionReader = transactionReaderProvider.getObject();
+        transactionReader.configure(
+            getIntParameter(TransactionReader.PARAM_PAGE_SIZE, 0),
+            isDrainMode(),
+            getLongParameter(TransactionReader.PARAM_MAX_ROWS, 0),
+            getLongParameter(TransactionReader.PARAM_MAX_DURATION_SECONDS, 0) * 1000L);
+        transactionReader.initialize();
+        log.info("TransactionReader initialized for reactive step with limit: {}, drainMode: {}",
+            transactionReader.getPageSize(), transactionReader.isDrainMode());
+        return transactionReader;
+    }
+
+    @Override
+    protected Function<Transaction, Mono<Transaction>> prepareChunk(List<Transaction> transactions) {
+        Map<Long, String> idempotencyKeys = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            idempotencyKeys.put(transaction.getId(), transactionIdempotencyService.keyOf(transaction));
+        }
+        Set<Long> completed = transactionIdempotencyService.findCompleted(idempotencyKeys);
+        return transaction -> {
+            String idempotencyKey = idempotencyKeys.get(transaction.getId());
+            if (idempotencyKey == null) {
+                return processReactive(transaction);
+            }
+            return process(transaction, idempotencyKey, Mono.just(completed.contains(transaction.getId())));
+        };
+    }
+
+    @Override
+    protected Mono<Transaction> processReactive(Transaction transaction) {
+        String idempotencyKey = transactionIdempotencyService.keyOf(transaction);
+        return process(transaction, idempotencyKey,
+            Mono.fromCallable(() -> transactionIdempotencyService.isCompleted(transaction.getId(), idempotencyKey))
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<Transaction> process(Transaction transaction, String idempotencyKey, Mono<Boolean> alreadyCompleted) {
+        return alreadyCompleted
+            .flatMap(completed -> {
+                if (completed) {
+                    // Đã gọi API thành công trước đó (chunk chạy lại, claim lại): không gọi lần nữa
+                    log.info("Transaction id={} was already processed by external API, skipping duplicate call",
+                        transaction.getId());
+                    return Mono.just(transaction);
+                }
+                return reactiveExternalApiService.processTransaction(transaction.getId(), transaction.getBranch(), idempotencyKey)
+                    .flatMap(apiSuccess -> {
+                        if (!apiSuccess) {
+                            // Skip item, status ERROR được ghi nhận ở onSkipInProcess
+                            log.error("External API call failed for transaction id={}, branch={}",
+                                transaction.getId(), transaction.getBranch());
+                            return Mono.error(new RuntimeException("External API call failed for transaction id=" + transaction.getId()));
+                        }
+                        // Ghi nhận trong cache, writer ghi xuống DB cho cả chunk
+                        transactionIdempotencyService.recordCompleted(transaction.getId(), idempotencyKey);
+                        return Mono.just(transaction);
+                    });
+            })
+            .onErrorResume(e -> e instanceof CallNotPermittedException || e instanceof TransientApiException, e -> {
+                // Lọc item, RETRY được ghi nhận ở onProcessFiltered
+                log.warn("External API call for transaction id={} not completed, will retry: {}",
+                    transaction.getId(), e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    protected ItemWriter<Transaction> writer() {
+        return transactions -> {
+            List<Long> processedIds = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                processedIds.add(transaction.getId());
+            }
+            transactionIdempotencyService.saveCompleted(transactions.getItems());
+            transactionOutcomeCollector.record(processedIds, TransactionOutcome.COMPLETED);
+            log.info("Written {} transactions successfully", transactions.size());
+        };
+    }
+
+    @Override
+    protected void onProcessFiltered(Transaction transaction) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.RETRY);
+    }
+
+    @Override
+    protected void onSkipInProcess(Transaction transaction, Throwable t) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.ERROR);
+    }
+
+    @Override
+    protected void onSkipInWrite(Transaction transaction, Throwable t) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.ERROR);
+    }
+
+    private boolean isDrainMode() {
+        return getBooleanParameter(TransactionReader.PARAM_DRAIN_MODE, false);
+    }
+
+    @Override
+    protected void beforeStep(StepExecution stepExecution) {
+        super.beforeStep(stepExecution);
+        addJobLog(LogTypeEnum.INFO,
+            "Reactive transaction processing step started",
+            "Will process transactions with up to " + getReactiveConcurrency() + " concurrent non-blocking API calls per chunk"
+                + (isDrainMode() ? " until the queue is drained or the budget runs out" : ""));
+    }
+
+    @Override
+    protected void afterStep(StepExecution stepExecution) {
+        super.afterStep(stepExecution);
+        addJobLog(LogTypeEnum.INFO,
+            "Reactive transaction processing step completed",
+            "Processed " + getNumberOfProcessed() + " transactions");
+    }
+}
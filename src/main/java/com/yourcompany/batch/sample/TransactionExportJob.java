@@ -0,0 +1,41 @@
+package com.yourcompany.batch.sample;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import com.yourcompany.batch.batch.AbstractJob;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Job export transaction đã xử lý ra file nén (một step TRANSACTION_EXPORT_STEP)
+ * Params của job (outputDir, statuses, format, compression, maxFileMb...) được truyền xuống step
+ */
+@Component
+public class TransactionExportJob extends AbstractJob {
+
+    public static final String JOB_NAME = "TRANSACTION_EXPORT_JOB";
+
+    @Override
+    public String getJobName() {
+        return JOB_NAME;
+    }
+
+    @Override
+    protected Job job() {
+        return createJobBuilder(JOB_NAME)
+            .incrementer(new RunIdIncrementer())
+            .start(stepFactory.getStep(params, TransactionExportStepBuilder.class))
+            .listener(jobCompletionListener)
+            .build();
+    }
+
+    /**
+     * Chạy job trên thread async (export nhiều transaction mất nhiều thời gian)
+     */
+    @Async
+    public void runAsync(LinkedHashMap<String, Object> params) {
+        run(params);
+    }
+}
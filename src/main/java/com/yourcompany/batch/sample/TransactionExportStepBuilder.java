@@ -0,0 +1,273 @@
+package com.yourcompany.batch.sample;
+
+import com.yourcompany.batch.batch.reader.TransactionExportReader;
+import com.yourcompany.batch.batch.step.AbstractStepBuilder;
+import com.yourcompany.batch.batch.writer.RollingCompressedFileItemWriter;
+import com.yourcompany.batch.domain.enumeration.LogTypeEnum;
+import com.yourcompany.batch.repository.TransactionStatusCounterRepository;
+import com.yourcompany.batch.repository.dto.TransactionExportRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.PassThroughItemProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+/**
+ * Step Builder export transaction đã xử lý (mặc định status COMPLETED, ERROR) ra file NDJSON / CSV nén gzip
+ *
+ * Params (JobSetting TRANSACTION_EXPORT_STEP hoặc truyền khi chạy job):
+ * - outputDir: thư mục ghi file trên server (bắt buộc)
+ * - statuses: các status cần export, cách nhau bởi dấu phẩy (mặc định COMPLETED,ERROR)
+ * - fromId: chỉ export transaction có id > fromId (mặc định 0)
+ * - format: NDJSON / CSV (mặc định NDJSON), compression: GZIP / NONE (mặc định GZIP)
+ * - maxFileMb: kích thước tối đa mỗi file trước khi chuyển sang file mới (mặc định 512 MB)
+ * - fetchSize: fetch size của JDBC cursor (mặc định 10000), chunkSize: số rows mỗi lần commit (mặc định 10000)
+ *
+ * Rows được đọc qua một cursor tuần tự theo id nên step luôn chạy một thread (bỏ qua threads / gridSize /
+ * processorConcurrency). Khi chạy lại step execution bị lỗi, export tiếp từ id cuối cùng đã commit.
+ */
+@Component
+public class TransactionExportStepBuilder extends AbstractStepBuilder<TransactionExportRow, TransactionExportRow> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionExportStepBuilder.class);
+
+    public static final String PARAM_OUTPUT_DIR = "outputDir";
+    public static final String PARAM_STATUSES = "statuses";
+    public static final String PARAM_FROM_ID = "fromId";
+    public static final String PARAM_FORMAT = "format";
+    public static final String PARAM_COMPRESSION = "compression";
+    public static final String PARAM_MAX_FILE_MB = "maxFileMb";
+    public static final String PARAM_FETCH_SIZE = "fetchSize";
+
+    private static final String DEFAULT_STATUSES = "COMPLETED,ERROR";
+    private static final int DEFAULT_COMMIT_GROUP_SIZE = 10000;
+    private static final int DEFAULT_FETCH_SIZE = 10000;
+    private static final int DEFAULT_MAX_FILE_MB = 512;
+    private static final String FILE_BASE_NAME = "transactions";
+    private static final String CSV_HEADER = "id,branch,name,amount,create_date,status";
+
+    public enum Format {
+        NDJSON(".ndjson"),
+        CSV(".csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionStatusCounterRepository transactionStatusCounterRepository;
+
+    @Override
+    protected String getStepName() {
+        return "TRANSACTION_EXPORT_STEP";
+    }
+
+    @Override
+    protected int countTotalItems() {
+        if (getLongParameter(PARAM_FROM_ID, 0L) > 0) {
+            // Counter không biết số transaction theo khoảng id
+            return -1;
+        }
+        long total = 0;
+        for (String status : getStatuses()) {
+            total += transactionStatusCounterRepository.getCount(TransactionStatusCounterRepository.toStatusKey(status));
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected String getLogMessageAtStart() {
+        return "Starting transaction export step - exporting " + getStatuses() + " transactions to " + getOutputDir();
+    }
+
+    @Override
+    protected int getChunkSize() {
+        return Math.max(1, getIntParameter(PARAM_CHUNK_SIZE, DEFAULT_COMMIT_GROUP_SIZE));
+    }
+
+    @Override
+    protected int getThreads() {
+        return 1;
+    }
+
+    @Override
+    protected int getProcessorConcurrency() {
+        return 1;
+    }
+
+    @Override
+    protected ItemReader<TransactionExportRow> reader() {
+        int fetchSize = Math.max(1, getIntParameter(PARAM_FETCH_SIZE, DEFAULT_FETCH_SIZE));
+        return new TransactionExportReader(dataSource, getStatuses(), getLongParameter(PARAM_FROM_ID, 0L), fetchSize);
+    }
+
+    @Override
+    protected ItemProcessor<TransactionExportRow, TransactionExportRow> processor() {
+        return new PassThroughItemProcessor<>();
+    }
+
+    @Override
+    protected ItemWriter<TransactionExportRow> writer() {
+        Format format = getFormat();
+        RollingCompressedFileItemWriter.Compression compression = getCompression();
+        long maxFileBytes = Math.max(1, getIntParameter(PARAM_MAX_FILE_MB, DEFAULT_MAX_FILE_MB)) * 1024L * 1024L;
+        BiConsumer<TransactionExportRow, StringBuilder> formatter = format == Format.CSV
+            ? TransactionExportStepBuilder::appendCsv : TransactionExportStepBuilder::appendJson;
+        log.info("Exporting transactions as {} ({}) to {}, rolling files at {} MB",
+            format, compression, getOutputDir(), maxFileBytes / (1024 * 1024));
+        return new RollingCompressedFileItemWriter<>(getOutputDir(), FILE_BASE_NAME, format.extension, compression,
+            maxFileBytes, format == Format.CSV ? CSV_HEADER : null, formatter);
+    }
+
+    private static void appendJson(TransactionExportRow row, StringBuilder line) {
+        line.append("{\"id\":").append(row.id());
+        line.append(",\"branch\":");
+        appendJsonString(line, row.branch());
+        line.append(",\"name\":");
+        appendJsonString(line, row.name());
+        line.append(",\"amount\":").append(row.amount() != null ? row.amount().toPlainString() : "null");
+        line.append(",\"createDate\":");
+        appendJsonString(line, row.createDate() != null ? row.createDate().toInstant().toString() : null);
+        line.append(",\"status\":");
+        appendJsonString(line, row.status());
+        line.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private static void appendCsv(TransactionExportRow row, StringBuilder line) {
+        line.append(row.id()).append(',');
+        appendCsvValue(line, row.branch());
+        line.append(',');
+        appendCsvValue(line, row.name());
+        line.append(',');
+        if (row.amount() != null) {
+            line.append(row.amount().toPlainString());
+        }
+        line.append(',');
+        if (row.createDate() != null) {
+            line.append(row.createDate().toInstant());
+        }
+        line.append(',');
+        appendCsvValue(line, row.status());
+    }
+
+    private static void appendCsvValue(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private Path getOutputDir() {
+        String outputDir = getStringParameter(PARAM_OUTPUT_DIR);
+        if (outputDir == null) {
+            throw new IllegalStateException("Param " + PARAM_OUTPUT_DIR + " is required for step " + getStepName());
+        }
+        return Path.of(outputDir);
+    }
+
+    private List<String> getStatuses() {
+        String statuses = getStringParameter(PARAM_STATUSES);
+        List<String> values = Arrays.stream((statuses != null ? statuses : DEFAULT_STATUSES).split(","))
+            .map(String::trim)
+            .filter(status -> !status.isEmpty())
+            .map(status -> status.toUpperCase(Locale.ROOT))
+            .distinct()
+            .toList();
+        if (values.isEmpty()) {
+            throw new IllegalStateException("Param " + PARAM_STATUSES + " must contain at least one status");
+        }
+        return values;
+    }
+
+    private Format getFormat() {
+        String format = getStringParameter(PARAM_FORMAT);
+        return format != null ? Format.valueOf(format.toUpperCase(Locale.ROOT)) : Format.NDJSON;
+    }
+
+    private RollingCompressedFileItemWriter.Compression getCompression() {
+        String compression = getStringParameter(PARAM_COMPRESSION);
+        return compression != null
+            ? RollingCompressedFileItemWriter.Compression.valueOf(compression.toUpperCase(Locale.ROOT))
+            : RollingCompressedFileItemWriter.Compression.GZIP;
+    }
+
+    @Override
+    protected void beforeStep(StepExecution stepExecution) {
+        super.beforeStep(stepExecution);
+        setNoteResult("Output: " + getOutputDir());
+        addJobLog(LogTypeEnum.INFO,
+            "Transaction export step started",
+            "Exporting " + getStatuses() + " transactions after id " + getLongParameter(PARAM_FROM_ID, 0L)
+                + " as " + getFormat() + " (" + getCompression() + ") to " + getOutputDir());
+    }
+
+    @Override
+    protected void afterStep(StepExecution stepExecution) {
+        super.afterStep(stepExecution);
+        String summary = "Exported " + getNumberOfProcessed() + " transactions to " + getOutputDir() + " "
+            + formatThroughput();
+        log.info("{}: {}", getStepName(), summary);
+        setNoteResult(summary);
+        addJobLog(LogTypeEnum.INFO, "Transaction export step completed", summary);
+    }
+}
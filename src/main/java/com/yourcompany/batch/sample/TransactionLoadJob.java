@@ -0,0 +1,41 @@
+package com.yourcompany.batch.sample;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import com.yourcompany.batch.batch.AbstractJob;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Job bulk load transaction từ file vào bảng transaction (một step TRANSACTION_LOAD_STEP)
+ * Params của job (filePath, fileFormat, chunkSize, directPath...) được truyền xuống step
+ */
+@Component
+public class TransactionLoadJob extends AbstractJob {
+
+    public static final String JOB_NAME = "TRANSACTION_LOAD_JOB";
+
+    @Override
+    public String getJobName() {
+        return JOB_NAME;
+    }
+
+    @Override
+    protected Job job() {
+        return createJobBuilder(JOB_NAME)
+            .incrementer(new RunIdIncrementer())
+            .start(stepFactory.getStep(params, TransactionLoadStepBuilder.class))
+            .listener(jobCompletionListener)
+            .build();
+    }
+
+    /**
+     * Chạy job trên thread async (load file lớn mất nhiều thời gian)
+     */
+    @Async
+    public void runAsync(LinkedHashMap<String, Object> params) {
+        run(params);
+    }
+}
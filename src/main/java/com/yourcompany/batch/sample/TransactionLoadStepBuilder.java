@@ -0,0 +1,155 @@
+package com.yourcompany.batch.sample;
+
+import com.yourcompany.batch.batch.reader.TransactionFileReader;
+import com.yourcompany.batch.batch.step.AbstractStepBuilder;
+import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.LogTypeEnum;
+import com.yourcompany.batch.repository.TransactionBulkInsertRepository;
+import com.yourcompany.batch.repository.TransactionStatusCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.PassThroughItemProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Step Builder bulk load transaction mới từ file CSV / NDJSON vào bảng transaction (status IS NULL, vào hàng đợi)
+ *
+ * Params (JobSetting TRANSACTION_LOAD_STEP hoặc truyền khi chạy job):
+ * - filePath: đường dẫn file trên server (bắt buộc), fileFormat: CSV / NDJSON (mặc định theo phần mở rộng)
+ * - chunkSize: số rows mỗi commit group (mặc định 10000), mỗi chunk được insert bằng một JDBC batch
+ * - directPath: dùng direct-path insert (APPEND_VALUES, mặc định false); lock cả bảng transaction đến khi commit
+ *   nên chỉ bật khi không có job nào khác chạy trên bảng, xem TransactionBulkInsertRepository
+ * - readBufferKb: kích thước buffer đọc file (mặc định 1024 KB)
+ *
+ * File được đọc tuần tự nên step luôn chạy một thread (bỏ qua threads / gridSize / processorConcurrency).
+ * Dòng sai định dạng được skip theo skipLimit. Tốc độ load (rows/s) được ghi vào JobLog và kết quả của step.
+ */
+@Component
+public class TransactionLoadStepBuilder extends AbstractStepBuilder<Transaction, Transaction> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLoadStepBuilder.class);
+
+    public static final String PARAM_FILE_PATH = "filePath";
+    public static final String PARAM_FILE_FORMAT = "fileFormat";
+    public static final String PARAM_DIRECT_PATH = "directPath";
+    public static final String PARAM_READ_BUFFER_KB = "readBufferKb";
+
+    private static final int DEFAULT_COMMIT_GROUP_SIZE = 10000;
+
+    @Autowired
+    private TransactionBulkInsertRepository transactionBulkInsertRepository;
+
+    @Autowired
+    private TransactionStatusCounterRepository transactionStatusCounterRepository;
+
+    @Override
+    protected String getStepName() {
+        return "TRANSACTION_LOAD_STEP";
+    }
+
+    @Override
+    protected int countTotalItems() {
+        // Số dòng của file chưa biết trước (không đọc file hai lần)
+        return -1;
+    }
+
+    @Override
+    protected String getLogMessageAtStart() {
+        return "Starting transaction load step - loading transactions from " + getFilePath();
+    }
+
+    @Override
+    protected int getChunkSize() {
+        return Math.max(1, getIntParameter(PARAM_CHUNK_SIZE, DEFAULT_COMMIT_GROUP_SIZE));
+    }
+
+    @Override
+    protected int getThreads() {
+        return 1;
+    }
+
+    @Override
+    protected int getProcessorConcurrency() {
+        return 1;
+    }
+
+    @Override
+    protected ItemReader<Transaction> reader() {
+        Path file = getFilePath();
+        TransactionFileReader.Format format = TransactionFileReader.Format.of(getStringParameter(PARAM_FILE_FORMAT), file);
+        int bufferSize = getIntParameter(PARAM_READ_BUFFER_KB, TransactionFileReader.DEFAULT_BUFFER_SIZE / 1024) * 1024;
+        log.info("Loading {} transactions from {} with read buffer {} KB", format, file, bufferSize / 1024);
+        return new TransactionFileReader(file, format, bufferSize);
+    }
+
+    @Override
+    protected ItemProcessor<Transaction, Transaction> processor() {
+        return new PassThroughItemProcessor<>();
+    }
+
+    @Override
+    protected ItemWriter<Transaction> writer() {
+        boolean directPath = isDirectPath();
+        return transactions -> writeChunk(transactions, directPath);
+    }
+
+    /**
+     * Insert cả chunk bằng một JDBC batch và cộng số transaction mới vào counter NEW trong cùng transaction DB
+     */
+    private void writeChunk(Chunk<? extends Transaction> transactions, boolean directPath) {
+        transactionBulkInsertRepository.insertAll(transactions.getItems(), directPath);
+        transactionStatusCounterRepository.applyDeltas(
+            Map.of(TransactionStatusCounterRepository.NEW_STATUS_KEY, (long) transactions.size()));
+        log.debug("Inserted {} transactions (directPath: {})", transactions.size(), directPath);
+    }
+
+    private Path getFilePath() {
+        String filePath = getStringParameter(PARAM_FILE_PATH);
+        if (filePath == null) {
+            throw new IllegalStateException("Param " + PARAM_FILE_PATH + " is required for step " + getStepName());
+        }
+        return Path.of(filePath);
+    }
+
+    private boolean isDirectPath() {
+        return getBooleanParameter(PARAM_DIRECT_PATH, false);
+    }
+
+    @Override
+    protected void beforeStep(StepExecution stepExecution) {
+        super.beforeStep(stepExecution);
+        Path file = getFilePath();
+        String size;
+        try {
+            size = Files.size(file) + " bytes";
+        } catch (IOException e) {
+            size = "size unknown: " + e.getMessage();
+        }
+        setNoteResult("File: " + file + " (" + size + ")");
+        addJobLog(LogTypeEnum.INFO,
+            "Transaction load step started",
+            "Loading " + file + " (" + size + ") in commit groups of " + getChunkSize() + " rows"
+                + (isDirectPath() ? " with direct-path inserts" : ""));
+    }
+
+    @Override
+    protected void afterStep(StepExecution stepExecution) {
+        super.afterStep(stepExecution);
+        String summary = "Loaded " + getNumberOfProcessed() + " transactions " + formatThroughput() + ", "
+            + stepExecution.getReadSkipCount() + " invalid lines skipped";
+        log.info("{}: {}", getStepName(), summary);
+        setNoteResult(summary);
+        addJobLog(LogTypeEnum.INFO, "Transaction load step completed", summary);
+    }
+}
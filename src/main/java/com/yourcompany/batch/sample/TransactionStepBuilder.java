@@ -1,42 +1,90 @@
 package com.yourcompany.batch.sample;
 
+import com.yourcompany.batch.batch.reader.PrefetchingItemReader;
 import com.yourcompany.batch.batch.reader.TransactionReader;
 import com.yourcompany.batch.batch.step.AbstractStepBuilder;
+import com.yourcompany.batch.batch.step.GridPartitioner;
 import com.yourcompany.batch.domain.Transaction;
-import com.yourcompany.batch.domain.enumeration.TransactionStatus;
-import com.yourcompany.batch.repository.TransactionRepository;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
 import com.yourcompany.batch.service.ExternalApiService;
+import com.yourcompany.batch.service.TransactionIdempotencyService;
+import com.yourcompany.batch.service.TransactionOutcomeCollector;
+import com.yourcompany.batch.service.TransactionStatusCounterService;
+import com.yourcompany.batch.service.resilience.CallNotPermittedException;
+import com.yourcompany.batch.service.resilience.TransientApiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Step Builder để xử lý Transaction
- * Đọc 10 transactions mỗi lần từ database và xử lý
+ * Đọc pageSize transactions mỗi lần từ database và xử lý (mặc định 10, cấu hình qua JobSetting)
  * Sau khi xử lý thành công, cập nhật status = 'COMPLETED'
  * Nếu có lỗi, cập nhật status = 'ERROR'
+ * Kết quả của cả chunk được ghi xuống DB trong một câu lệnh khi chunk commit (TransactionOutcomeCollector)
+ *
+ * Với gridSize > 1 (JobSetting TRANSACTION_PROCESSING_STEP), step chạy dạng partitioned:
+ * transaction được chia theo MOD(id, gridSize) thành gridSize partition, mỗi partition một thread
+ * với TransactionReader riêng. Giới hạn maxRows được chia đều cho các partition.
+ *
+ * Với threads > 1, các chunk của step (hoặc của mỗi partition) chạy song song trên threads thread,
+ * cùng đọc từ một TransactionReader (các lần claim trang được đồng bộ).
+ *
+ * Với processorConcurrency > 1, các lời gọi external API của một chunk chạy song song trên virtual threads
+ * (tối đa processorConcurrency lời gọi cho mỗi partition). Processor chỉ gọi API, không truy cập DB.
+ *
+ * Với apiBatchMode = true, processor chỉ validate và writer gọi batch endpoint của API một lần cho cả chunk
+ * (chia sub-batch theo external.api.batch.*); kết quả từng transaction được ghi nhận COMPLETED / ERROR
+ * mà không rollback chunk, nên các transaction đã thành công không bị gọi lại.
+ *
+ * Khi lời gọi API bị circuit breaker / concurrency limiter từ chối, transaction được ghi nhận RETRY
+ * (trả về hàng đợi sau batch.outcome.retry-delay-seconds) thay vì ERROR.
+ *
+ * Transaction đã gọi API thành công (TransactionIdempotencyService) không được gọi lại khi chunk
+ * chạy lại hoặc transaction được claim lại, chỉ được ghi nhận COMPLETED. Ghi nhận idempotency được tra theo
+ * trang (reader nạp trước) và ghi xuống DB một lần cho mỗi chunk ở writer.
+ *
+ * Lỗi tạm thời của API (TransientApiException) được thử lại ngay trong processor theo retryMaxAttempts /
+ * retryBackoffMs / retryBudget khi processorConcurrency > 1 (backoff chạy trên virtual thread của item);
+ * với processorConcurrency = 1 không thử lại trên thread của chunk. Vẫn lỗi sau khi hết số lần thử thì
+ * transaction được ghi nhận RETRY (claim lại sau batch.outcome.retry-delay-seconds) thay vì ERROR.
  */
 @Component
 public class TransactionStepBuilder extends AbstractStepBuilder<Transaction, Transaction> {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionStepBuilder.class);
 
+    public static final String PARAM_API_BATCH_MODE = "apiBatchMode";
+
+    @Autowired
+    private ObjectProvider<TransactionReader> transactionReaderProvider;
+
     @Autowired
-    private TransactionReader transactionReader;
+    private TransactionOutcomeCollector transactionOutcomeCollector;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private TransactionIdempotencyService transactionIdempotencyService;
 
     @Autowired
     private ExternalApiService externalApiService;
 
+    @Autowired
+    private TransactionStatusCounterService transactionStatusCounterService;
+
     @Override
     protected String getStepName() {
         return "TRANSACTION_PROCESSING_STEP";
@@ -44,9 +92,13 @@ public class TransactionStepBuilder extends AbstractStepBuilder<Transaction, Tra
 
     @Override
     protected int countTotalItems() {
-        // Đếm tổng số transaction trong database
-        long totalCount = transactionReader.getTotalCount();
+        // Đọc số transaction đang chờ từ transaction_status_counter (O(1), không COUNT(*) bảng transaction)
+        long totalCount = transactionStatusCounterService.getQueuedCount();
         log.info("Total transactions to process: {}", totalCount);
+        long maxRows = getLongParameter(TransactionReader.PARAM_MAX_ROWS, 0);
+        if (isDrainMode() && maxRows > 0) {
+            totalCount = Math.min(totalCount, maxRows);
+        }
         return (int) totalCount;
     }
 
@@ -55,122 +107,242 @@ public class TransactionStepBuilder extends AbstractStepBuilder<Transaction, Tra
         return "Starting transaction processing step - processing transactions from database";
     }
 
+    @Override
+    protected Partitioner partitioner() {
+        return new GridPartitioner();
+    }
+
     @Override
     protected ItemReader<Transaction> reader() {
-        // Initialize reader - limit đã cấu hình trong reader (10 rows)
+        // Mỗi lần gọi tạo một reader mới (prototype), mỗi partition dùng reader riêng
+        TransactionReader transactionReader = transactionReaderProvider.getObject();
+
+        // Cấu hình reader từ params của step (JobSetting TRANSACTION_PROCESSING_STEP)
+        long maxRows = getLongParameter(TransactionReader.PARAM_MAX_ROWS, 0);
+        int gridSize = getGridSize();
+        if (maxRows > 0 && gridSize > 1) {
+            maxRows = (maxRows + gridSize - 1) / gridSize;
+        }
+        transactionReader.configure(
+            getIntParameter(TransactionReader.PARAM_PAGE_SIZE, 0),
+            isDrainMode(),
+            maxRows,
+            getLongParameter(TransactionReader.PARAM_MAX_DURATION_SECONDS, 0) * 1000L);
         transactionReader.initialize();
-        log.info("TransactionReader initialized for reading transactions from repository with limit: {}", 
-            transactionReader.getPageSize());
+        log.info("TransactionReader initialized for reading transactions from repository with limit: {}, drainMode: {}",
+            transactionReader.getPageSize(), transactionReader.isDrainMode());
+
+        // Claim trang tiếp theo trên background thread trong khi trang hiện tại đang được xử lý
+        int prefetchPages = getIntParameter(TransactionReader.PARAM_PREFETCH_PAGES, 0);
+        if (prefetchPages > 0) {
+            log.info("Prefetching up to {} pages of transactions", prefetchPages);
+            return new PrefetchingItemReader<>(transactionReader, prefetchPages, getStepName());
+        }
         return transactionReader;
     }
 
     @Override
     protected ItemProcessor<Transaction, Transaction> processor() {
-        return transaction -> {
-            try {
-                // Xử lý transaction
-                log.debug("Processing transaction: id={}, branch={}, name={}, amount={}", 
-                    transaction.getId(), transaction.getBranch(), transaction.getName(), transaction.getAmount());
-                
-                // Ví dụ: Tính toán hoặc validate transaction
-                // Có thể thêm logic xử lý ở đây
+        if (isApiBatchMode()) {
+            // API được gọi theo batch trong writer
+            return transaction -> {
                 if (transaction.getAmount() == null) {
                     log.warn("Transaction {} has null amount", transaction.getId());
                 }
-                
-                // Gọi API bên ngoài để xử lý transaction
-                boolean apiSuccess = externalApiService.processTransaction(
+                return transaction;
+            };
+        }
+        return transaction -> {
+            // Xử lý transaction
+            log.debug("Processing transaction: id={}, branch={}, name={}, amount={}", 
+                transaction.getId(), transaction.getBranch(), transaction.getName(), transaction.getAmount());
+            
+            // Ví dụ: Tính toán hoặc validate transaction
+            // Có thể thêm logic xử lý ở đây
+            if (transaction.getAmount() == null) {
+                log.warn("Transaction {} has null amount", transaction.getId());
+            }
+            
+            // Đã gọi API thành công trước đó (chunk chạy lại, claim lại): không gọi lần nữa
+            String idempotencyKey = transactionIdempotencyService.keyOf(transaction);
+            if (transactionIdempotencyService.isCompleted(transaction.getId(), idempotencyKey)) {
+                log.info("Transaction id={} was already processed by external API, skipping duplicate call",
+                    transaction.getId());
+                return transaction;
+            }
+
+            // Gọi API bên ngoài để xử lý transaction
+            boolean apiSuccess;
+            try {
+                apiSuccess = externalApiService.processTransaction(
                     transaction.getId(), 
-                    transaction.getBranch()
+                    transaction.getBranch(),
+                    idempotencyKey
                 );
-                
-                if (!apiSuccess) {
-                    // Nếu call API thất bại, cập nhật status = 'ERROR' và throw exception
-                    log.error("External API call failed for transaction id={}, branch={}", 
-                        transaction.getId(), transaction.getBranch());
-                    transactionRepository.updateTransactionStatus(
-                        transaction.getId(), 
-                        TransactionStatus.ERROR.getValue()
-                    );
-                    throw new RuntimeException("External API call failed for transaction id=" + transaction.getId());
-                }
-                
-                log.info("Successfully processed transaction via external API: id={}, branch={}", 
+            } catch (CallNotPermittedException e) {
+                // API đang quá tải / circuit breaker mở: lọc item, RETRY được ghi nhận ở onProcessFiltered
+                log.warn("External API call not permitted for transaction id={}, will retry: {}",
+                    transaction.getId(), e.getMessage());
+                return null;
+            }
+            
+            if (!apiSuccess) {
+                // Throw exception để Spring Batch skip item này, status ERROR được ghi nhận ở onSkipInProcess
+                // và ghi xuống DB cùng với các kết quả khác của chunk khi chunk commit
+                log.error("External API call failed for transaction id={}, branch={}", 
                     transaction.getId(), transaction.getBranch());
-                
-                // Có thể modify transaction nếu cần
-                // transaction.setProcessed(true);
-                
-                return transaction;
-            } catch (Exception e) {
-                // Nếu có lỗi trong processor, cập nhật status = 'ERROR'
-                log.error("Error processing transaction id={}: {}", transaction.getId(), e.getMessage(), e);
-                
-                // Đảm bảo status được cập nhật thành ERROR (nếu chưa được cập nhật)
-                try {
-                    transactionRepository.updateTransactionStatus(
-                        transaction.getId(), 
-                        TransactionStatus.ERROR.getValue()
-                    );
-                } catch (Exception updateError) {
-                    log.error("Error updating transaction status to ERROR: {}", updateError.getMessage(), updateError);
-                }
-                
-                throw e; // Re-throw để Spring Batch skip item này
+                throw new RuntimeException("External API call failed for transaction id=" + transaction.getId());
             }
+            
+            // Ghi nhận trong cache, writer ghi xuống DB cho cả chunk
+            transactionIdempotencyService.recordCompleted(transaction.getId(), idempotencyKey);
+            log.info("Successfully processed transaction via external API: id={}, branch={}", 
+                transaction.getId(), transaction.getBranch());
+            
+            // Có thể modify transaction nếu cần
+            // transaction.setProcessed(true);
+            
+            return transaction;
         };
     }
 
     @Override
     protected ItemWriter<Transaction> writer() {
+        if (isApiBatchMode()) {
+            return this::writeWithBatchApi;
+        }
         return transactions -> {
-            try {
-                // Ghi kết quả xử lý
-                List<Long> processedIds = new ArrayList<>();
-                
-                for (Transaction transaction : transactions) {
-                    log.info("Writing processed transaction: id={}, branch={}, name={}, amount={}", 
-                        transaction.getId(), transaction.getBranch(), transaction.getName(), transaction.getAmount());
-                    
-                    processedIds.add(transaction.getId());
-                }
-                
-                // Cập nhật status = 'COMPLETED' cho các transactions đã xử lý thành công
-                if (!processedIds.isEmpty()) {
-                    transactionRepository.updateTransactionsStatus(processedIds, TransactionStatus.COMPLETED.getValue());
-                    log.info("Updated {} transactions status to COMPLETED", processedIds.size());
-                }
-                
-                log.info("Written {} transactions successfully", transactions.size());
-            } catch (Exception e) {
-                log.error("Error writing transactions: {}", e.getMessage(), e);
-                
-                // Cập nhật status = 'ERROR' cho các transactions bị lỗi
-                List<Long> errorIds = new ArrayList<>();
-                for (Transaction transaction : transactions) {
-                    errorIds.add(transaction.getId());
-                }
-                
-                if (!errorIds.isEmpty()) {
-                    try {
-                        transactionRepository.updateTransactionsStatus(errorIds, TransactionStatus.ERROR.getValue());
-                        log.info("Updated {} transactions status to ERROR due to write failure", errorIds.size());
-                    } catch (Exception updateError) {
-                        log.error("Error updating transaction status to ERROR: {}", updateError.getMessage(), updateError);
-                    }
-                }
+            // Ghi kết quả xử lý
+            List<Long> processedIds = new ArrayList<>();
+            
+            for (Transaction transaction : transactions) {
+                log.info("Writing processed transaction: id={}, branch={}, name={}, amount={}", 
+                    transaction.getId(), transaction.getBranch(), transaction.getName(), transaction.getAmount());
                 
-                throw e; // Re-throw để Spring Batch xử lý lỗi
+                processedIds.add(transaction.getId());
             }
+            
+            // Ghi nhận idempotency của các lời gọi API thành công trong chunk (một JDBC batch, commit ngay)
+            transactionIdempotencyService.saveCompleted(transactions.getItems());
+
+            // Ghi nhận COMPLETED cho các transactions đã xử lý thành công,
+            // status được cập nhật trong một câu lệnh khi chunk commit
+            transactionOutcomeCollector.record(processedIds, TransactionOutcome.COMPLETED);
+            
+            log.info("Written {} transactions successfully", transactions.size());
         };
     }
 
+    /**
+     * Gọi batch endpoint cho cả chunk, ghi nhận COMPLETED / ERROR theo kết quả của từng transaction
+     */
+    private void writeWithBatchApi(Chunk<? extends Transaction> transactions) {
+        List<Transaction> items = new ArrayList<>(transactions.getItems());
+        List<Long> completedIds = new ArrayList<>();
+
+        // Bỏ qua các transaction đã gọi API thành công trước đó (tra cả chunk một lần)
+        Map<Long, String> idempotencyKeys = new HashMap<>();
+        for (Transaction transaction : items) {
+            idempotencyKeys.put(transaction.getId(), transactionIdempotencyService.keyOf(transaction));
+        }
+        Set<Long> alreadyCompleted = transactionIdempotencyService.findCompleted(idempotencyKeys);
+        List<Transaction> pending = new ArrayList<>(items.size());
+        for (Transaction transaction : items) {
+            if (alreadyCompleted.contains(transaction.getId())) {
+                completedIds.add(transaction.getId());
+            } else {
+                pending.add(transaction);
+            }
+        }
+        if (!completedIds.isEmpty()) {
+            log.info("{} transactions were already processed by external API, skipping duplicate calls", completedIds.size());
+        }
+
+        Map<Long, TransactionOutcome> results = externalApiService.processTransactions(pending, idempotencyKeys);
+
+        Map<Long, String> newlyCompleted = new LinkedHashMap<>();
+        List<Long> retryIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (Transaction transaction : pending) {
+            TransactionOutcome outcome = results.getOrDefault(transaction.getId(), TransactionOutcome.ERROR);
+            if (outcome == TransactionOutcome.COMPLETED) {
+                completedIds.add(transaction.getId());
+                newlyCompleted.put(transaction.getId(), idempotencyKeys.get(transaction.getId()));
+            } else if (outcome == TransactionOutcome.RETRY) {
+                retryIds.add(transaction.getId());
+            } else {
+                failedIds.add(transaction.getId());
+            }
+        }
+
+        transactionIdempotencyService.markCompleted(newlyCompleted);
+        transactionOutcomeCollector.record(completedIds, TransactionOutcome.COMPLETED);
+        transactionOutcomeCollector.record(retryIds, TransactionOutcome.RETRY);
+        if (!failedIds.isEmpty()) {
+            log.error("External batch API failed for {} of {} transactions: {}", failedIds.size(), items.size(), failedIds);
+            transactionOutcomeCollector.record(failedIds, TransactionOutcome.ERROR);
+            addNumberOfFailures(failedIds.size());
+        }
+
+        log.info("Written {} transactions via batch API, completed: {}, retry: {}, failed: {}",
+            items.size(), completedIds.size(), retryIds.size(), failedIds.size());
+    }
+
+    @Override
+    protected List<Class<? extends Throwable>> retryableExceptions() {
+        return List.of(TransientApiException.class);
+    }
+
+    @Override
+    protected Transaction onRetryExhausted(Transaction transaction, Exception e) throws Exception {
+        if (e instanceof TransientApiException) {
+            // Lọc item, RETRY được ghi nhận ở onProcessFiltered
+            log.warn("Transient external API error persisted for transaction id={}, will retry later: {}",
+                transaction.getId(), e.getMessage());
+            return null;
+        }
+        throw e;
+    }
+
+    @Override
+    protected void onProcessFiltered(Transaction transaction) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.RETRY);
+    }
+
+    @Override
+    protected void onSkipInProcess(Transaction transaction, Throwable t) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.ERROR);
+    }
+
+    @Override
+    protected void onSkipInWrite(Transaction transaction, Throwable t) {
+        transactionOutcomeCollector.record(transaction.getId(), TransactionOutcome.ERROR);
+    }
+
+    private int getPageSize() {
+        int pageSize = getIntParameter(TransactionReader.PARAM_PAGE_SIZE, 0);
+        return pageSize > 0 ? pageSize : TransactionReader.DEFAULT_PAGE_SIZE;
+    }
+
+    private boolean isApiBatchMode() {
+        return getBooleanParameter(PARAM_API_BATCH_MODE, false);
+    }
+
+    private boolean isDrainMode() {
+        return getBooleanParameter(TransactionReader.PARAM_DRAIN_MODE, false);
+    }
+
     @Override
     protected void beforeStep(org.springframework.batch.core.StepExecution stepExecution) {
         super.beforeStep(stepExecution);
         addJobLog(com.yourcompany.batch.domain.enumeration.LogTypeEnum.INFO, 
             "Transaction processing step started", 
-            "Will process transactions from repository in batches of 10 (status is set to PENDING when fetched)");
+            "Will process transactions from repository in batches of " + getPageSize()
+                + (isDrainMode() ? " until the queue is drained or the budget runs out" : "")
+                + (getGridSize() > 1 ? " across " + getGridSize() + " partitions by id" : "")
+                + (isApiBatchMode() ? " calling the external batch API once per chunk" : "")
+                + (getProcessorConcurrency() > 1 ? " with up to " + getProcessorConcurrency() + " concurrent API calls" : "")
+                + " (status is set to PENDING when fetched)");
     }
 
     @Override
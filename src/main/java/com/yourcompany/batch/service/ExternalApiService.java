@@ -1,79 +1,334 @@
 package com.yourcompany.batch.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.yourcompany.batch.config.ApplicationProperties;
+import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
+import com.yourcompany.batch.service.dto.TransactionApiRequest;
+import com.yourcompany.batch.service.dto.TransactionBatchApiRequest;
+import com.yourcompany.batch.service.dto.TransactionBatchApiResponse;
+import com.yourcompany.batch.service.resilience.AdaptiveConcurrencyLimiter;
+import com.yourcompany.batch.service.resilience.CallNotPermittedException;
+import com.yourcompany.batch.service.resilience.CircuitBreaker;
+import com.yourcompany.batch.service.resilience.HedgingPolicy;
+import com.yourcompany.batch.service.resilience.KeyedRateLimiter;
+import com.yourcompany.batch.service.resilience.TransientApiException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service để gọi API bên ngoài
+ *
+ * Mọi lời gọi đi qua AdaptiveConcurrencyLimiter (giới hạn số lời gọi đồng thời theo latency)
+ * và CircuitBreaker (fail fast khi downstream lỗi liên tục). Lời gọi bị từ chối ném CallNotPermittedException
+ * để caller trả item về hàng đợi thay vì đánh dấu ERROR.
+ *
+ * Khi application.rate-limit.enabled = true, mỗi branch có quota riêng (KeyedRateLimiter):
+ * transaction của branch đã hết quota cũng bị từ chối (CallNotPermittedException / RETRY)
+ * để các branch khác không bị một branch nhiều transaction chiếm hết quota.
+ *
+ * Khi external.api.hedging.enabled = true, lời gọi cho một transaction chậm hơn percentile latency gần đây
+ * được gửi thêm một request trùng (cùng Idempotency-Key), lấy kết quả về trước (HedgingPolicy).
  */
 @Service
 public class ExternalApiService {
 
     private static final Logger log = LoggerFactory.getLogger(ExternalApiService.class);
 
+    /**
+     * Accept header dùng chung cho mọi request (read-only, không tạo lại mỗi lần gọi)
+     * Có thể thêm authentication header trong requestCallback của exchange nếu cần
+     */
+    private static final List<MediaType> ACCEPT_JSON = List.of(MediaType.APPLICATION_JSON);
+
+    // Kích thước phần bao {"items":[]} của request batch
+    private static final int BATCH_ENVELOPE_BYTES = 12;
+    // Kích thước phần cố định {"id":,"branch":} và ,"idempotencyKey": của một item batch
+    private static final int BATCH_ITEM_ENVELOPE_BYTES = 17;
+    private static final int BATCH_ITEM_KEY_FIELD_BYTES = 18;
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    /**
+     * Status và body (đã parse, hoặc null) của một response
+     */
+    private record ApiResponse<T>(HttpStatusCode status, T body) {}
+
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter externalApiConcurrencyLimiter;
+
+    @Autowired
+    private CircuitBreaker externalApiCircuitBreaker;
+
+    @Autowired
+    private KeyedRateLimiter branchRateLimiter;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private TransactionIdempotencyService transactionIdempotencyService;
+
+    @Autowired
+    private HedgingPolicy externalApiHedgingPolicy;
+
+    @Value("${external.api.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    // Chạy request gốc và hedge, chỉ được tạo khi bật hedging
+    private ExecutorService hedgeExecutor;
+
+    @Value("${external.api.limiter.acquire-timeout-ms:30000}")
+    private long limiterAcquireTimeoutMillis;
+
     @Value("${external.api.url:http://localhost:8080/api/transaction}")
     private String externalApiUrl;
 
     @Value("${external.api.timeout:30000}")
     private int timeout;
 
+    @Value("${external.api.batch.url:${external.api.url:http://localhost:8080/api/transaction}/batch}")
+    private String externalApiBatchUrl;
+
+    @Value("${external.api.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${external.api.batch.max-bytes:1048576}")
+    private int batchMaxBytes;
+
+    // Writer / reader Jackson cho từng kiểu request / response (immutable, thread-safe, tạo một lần)
+    private ObjectWriter transactionRequestWriter;
+    private ObjectWriter batchRequestWriter;
+    private ObjectReader batchResponseReader;
+    private ObjectWriter mapWriter;
+    private ObjectReader mapResponseReader;
+
+    @PostConstruct
+    public void init() {
+        // Không đóng output stream của request sau khi ghi body
+        transactionRequestWriter = objectMapper.writerFor(TransactionApiRequest.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        batchRequestWriter = objectMapper.writerFor(TransactionBatchApiRequest.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        batchResponseReader = objectMapper.readerFor(TransactionBatchApiResponse.class);
+        mapWriter = objectMapper.writerFor(MAP_TYPE).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        mapResponseReader = objectMapper.readerFor(MAP_TYPE);
+        if (hedgingEnabled) {
+            hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
     /**
      * Gọi API bên ngoài để xử lý transaction
      * 
      * @param transactionId ID của transaction
      * @param branch Branch của transaction
-     * @return true nếu call API thành công, false nếu thất bại
+     * @return true nếu call API thành công, false nếu thất bại (lỗi không thử lại được, ví dụ HTTP 4xx)
+     * @throws CallNotPermittedException nếu lời gọi bị circuit breaker / concurrency limiter từ chối
+     * @throws TransientApiException nếu lỗi tạm thời (I/O, timeout, HTTP 5xx, 429)
      */
     public boolean processTransaction(Long transactionId, String branch) {
+        return processTransaction(transactionId, branch, null);
+    }
+
+    /**
+     * Gọi API bên ngoài để xử lý transaction, kèm header Idempotency-Key để downstream bỏ qua request trùng
+     *
+     * @param idempotencyKey Idempotency key của request (null = không gửi header)
+     */
+    public boolean processTransaction(Long transactionId, String branch, String idempotencyKey) {
+        acquireBranchPermit(branch);
+        if (!hedgingEnabled) {
+            return callTransactionApi(transactionId, branch, idempotencyKey);
+        }
+        return callTransactionApiHedged(transactionId, branch, idempotencyKey);
+    }
+
+    /**
+     * Gọi API cho một transaction có hedging: request gốc chưa có kết quả sau delay của HedgingPolicy
+     * (percentile latency gần đây) thì gửi thêm một request cùng idempotency key, lấy kết quả về trước.
+     * Request bị lỗi (exception) thì chờ request còn lại; cả hai lỗi thì ném lỗi của request lỗi sau cùng.
+     * Quota hedge (max-hedge-percent) và permit rate limit của branch chỉ được lấy ngay trước khi hedge thực sự
+     * được gửi, nên hedge không gửi (request gốc đã xong, hết quota...) không bị tính. Request thua không bị
+     * interrupt mà chạy đến hết (kết quả bị bỏ qua) để latency của nó vẫn được ghi nhận và không bị tính là lỗi
+     * của downstream.
+     */
+    private boolean callTransactionApiHedged(Long transactionId, String branch, String idempotencyKey) {
+        externalApiHedgingPolicy.onCall();
+        HedgedCall call = new HedgedCall();
+        List<Future<?>> attempts = new ArrayList<>(2);
+        attempts.add(hedgeExecutor.submit(() -> runAttempt(transactionId, branch, idempotencyKey, false, call)));
+
         try {
-            log.info("Calling external API for transaction id={}, branch={}", transactionId, branch);
+            long hedgeDelayNanos = externalApiHedgingPolicy.getHedgeDelayNanos();
+            if (hedgeDelayNanos >= 0) {
+                try {
+                    return call.result.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Request gốc chậm hơn percentile: hedge tự lấy quota khi được gửi
+                    if (!call.result.isDone()) {
+                        call.pendingAttempts.incrementAndGet();
+                        attempts.add(hedgeExecutor.submit(
+                            () -> runAttempt(transactionId, branch, idempotencyKey, true, call)));
+                    }
+                }
+            }
+            return call.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallNotPermittedException("Interrupted while waiting for external API response");
+        } finally {
+            // Request còn lại không cần nữa: chỉ huỷ nếu chưa chạy (downstream bỏ qua request trùng theo
+            // idempotency key). Không interrupt request đang chạy: socket read bị ngắt sẽ bị tính là lỗi
+            // của downstream và latency của request chậm không được ghi nhận.
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(false);
+            }
+        }
+    }
 
-            // Tạo request body
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("id", transactionId);
-            requestBody.put("branch", branch);
+    private void runAttempt(Long transactionId, String branch, String idempotencyKey, boolean hedge, HedgedCall call) {
+        if (hedge && !trySendHedge(transactionId, branch, call)) {
+            // Hedge không được gửi: request gốc quyết định kết quả
+            call.onAttemptFinished(null);
+            return;
+        }
+        try {
+            boolean success = callTransactionApi(transactionId, branch, idempotencyKey);
+            if (call.result.complete(success) && hedge) {
+                externalApiHedgingPolicy.onHedgeWin();
+                log.debug("Hedged external API call won for transaction id={}", transactionId);
+            }
+        } catch (RuntimeException e) {
+            call.onAttemptFinished(e);
+        }
+    }
 
-            // Tạo headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            // Có thể thêm authentication header nếu cần
-            // headers.set("Authorization", "Bearer " + token);
+    /**
+     * Lấy quota hedge và permit rate limit của branch cho hedge sắp gửi
+     *
+     * @return false nếu không gửi hedge (request gốc đã có kết quả, hết quota hoặc vượt rate limit của branch)
+     */
+    private boolean trySendHedge(Long transactionId, String branch, HedgedCall call) {
+        if (call.result.isDone() || !externalApiHedgingPolicy.tryAcquireHedge()) {
+            return false;
+        }
+        if (call.result.isDone() || !tryAcquireBranchPermit(branch)) {
+            externalApiHedgingPolicy.releaseHedge();
+            return false;
+        }
+        log.debug("Hedging external API call for transaction id={}", transactionId);
+        return true;
+    }
 
-            // Tạo HttpEntity
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
+    /**
+     * Kết quả chung của request gốc và hedge của một lời gọi
+     */
+    private static final class HedgedCall {
 
-            // Gọi API
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                externalApiUrl,
-                HttpMethod.POST,
-                requestEntity,
-                new ParameterizedTypeReference<Map<String, Object>>() {}
-            );
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final AtomicInteger pendingAttempts = new AtomicInteger(1);
+        private final AtomicReference<RuntimeException> lastError = new AtomicReference<>();
+
+        /**
+         * Request kết thúc không có kết quả (lỗi, hoặc hedge không được gửi khi error = null);
+         * request cuối cùng kết thúc thì ném lỗi gần nhất
+         */
+        private void onAttemptFinished(RuntimeException error) {
+            if (error != null) {
+                lastError.set(error);
+            }
+            if (pendingAttempts.decrementAndGet() == 0) {
+                RuntimeException cause = lastError.get();
+                result.completeExceptionally(cause != null ? cause
+                    : new CallNotPermittedException("External API call was not sent"));
+            }
+        }
+    }
+
+    /**
+     * Một request tới API cho một transaction (không retry, không hedging)
+     */
+    private boolean callTransactionApi(Long transactionId, String branch, String idempotencyKey) {
+        try {
+            log.info("Calling external API for transaction id={}, branch={}", transactionId, branch);
+
+            // Gọi API, chỉ cần status nên response body không được parse
+            long startNanos = System.nanoTime();
+            ApiResponse<Void> response = exchange(externalApiUrl, transactionRequestWriter,
+                new TransactionApiRequest(transactionId, branch), idempotencyKey, null);
+            if (hedgingEnabled) {
+                externalApiHedgingPolicy.recordLatency(System.nanoTime() - startNanos);
+            }
 
             // Kiểm tra response
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("Successfully called external API for transaction id={}, branch={}, response={}", 
-                    transactionId, branch, response.getBody());
+            if (response.status().is2xxSuccessful()) {
+                log.info("Successfully called external API for transaction id={}, branch={}, status={}", 
+                    transactionId, branch, response.status());
                 return true;
+            } else if (isTransientStatus(response.status())) {
+                log.warn("External API returned transient error status for transaction id={}, branch={}, status={}",
+                    transactionId, branch, response.status());
+                throw new TransientApiException("External API returned status " + response.status().value()
+                    + " for transaction id=" + transactionId, response.status().value());
             } else {
                 log.warn("External API returned non-success status for transaction id={}, branch={}, status={}", 
-                    transactionId, branch, response.getStatusCode());
+                    transactionId, branch, response.status());
                 return false;
             }
 
+        } catch (CallNotPermittedException | TransientApiException e) {
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.warn("I/O error calling external API for transaction id={}, branch={}: {}",
+                transactionId, branch, e.getMessage());
+            throw new TransientApiException("I/O error calling external API for transaction id=" + transactionId, e);
         } catch (RestClientException e) {
             log.error("Error calling external API for transaction id={}, branch={}: {}", 
                 transactionId, branch, e.getMessage(), e);
@@ -85,6 +340,313 @@ public class ExternalApiService {
         }
     }
 
+    /**
+     * Gọi batch endpoint của API bên ngoài để xử lý nhiều transaction trong ít HTTP call.
+     * Danh sách được chia thành các sub-batch tối đa external.api.batch.max-size item
+     * và external.api.batch.max-bytes byte (ước lượng theo JSON của từng item).
+     *
+     * Request: {"items": [{"id": 1, "branch": "HN001", "idempotencyKey": "..."}, ...]}
+     * Response: {"results": [{"id": 1, "success": true}, ...]}
+     * Transaction không có trong results, hoặc thuộc sub-batch bị lỗi (HTTP lỗi, timeout...), là ERROR.
+     * Sub-batch bị circuit breaker / concurrency limiter từ chối (và các sub-batch sau đó) là RETRY.
+     *
+     * @param transactions Các transaction cần xử lý
+     * @return Kết quả theo ID transaction (COMPLETED / ERROR / RETRY), đủ tất cả transaction đầu vào
+     */
+    public Map<Long, TransactionOutcome> processTransactions(List<Transaction> transactions) {
+        Map<Long, String> idempotencyKeys = new HashMap<>();
+        if (transactions != null) {
+            for (Transaction transaction : transactions) {
+                idempotencyKeys.put(transaction.getId(), transactionIdempotencyService.keyOf(transaction));
+            }
+        }
+        return processTransactions(transactions, idempotencyKeys);
+    }
+
+    /**
+     * Như processTransactions(transactions), với idempotency key đã tính sẵn (transaction id -> key)
+     */
+    public Map<Long, TransactionOutcome> processTransactions(List<Transaction> transactions, Map<Long, String> idempotencyKeys) {
+        Map<Long, TransactionOutcome> results = new LinkedHashMap<>();
+        if (transactions == null || transactions.isEmpty()) {
+            return results;
+        }
+
+        List<List<TransactionApiRequest>> batches = new ArrayList<>();
+        List<TransactionApiRequest> batch = new ArrayList<>();
+        int batchBytes = BATCH_ENVELOPE_BYTES;
+        for (Transaction transaction : transactions) {
+            if (!tryAcquireBranchPermit(transaction.getBranch())) {
+                results.put(transaction.getId(), TransactionOutcome.RETRY);
+                continue;
+            }
+            TransactionApiRequest item = new TransactionApiRequest(transaction.getId(), transaction.getBranch(),
+                idempotencyKeys.get(transaction.getId()));
+            int itemBytes = estimateSize(item) + 1;
+
+            if (!batch.isEmpty() && (batch.size() >= batchMaxSize || batchBytes + itemBytes > batchMaxBytes)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchBytes = BATCH_ENVELOPE_BYTES;
+            }
+            batch.add(item);
+            batchBytes += itemBytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        if (!results.isEmpty()) {
+            log.warn("{} transactions throttled by branch rate limit, will be retried", results.size());
+        }
+
+        boolean permitted = true;
+        for (List<TransactionApiRequest> items : batches) {
+            if (permitted) {
+                try {
+                    results.putAll(callBatchEndpoint(items));
+                    continue;
+                } catch (CallNotPermittedException e) {
+                    log.warn("External batch API call not permitted, {} transactions will be retried: {}",
+                        items.size(), e.getMessage());
+                    permitted = false;
+                }
+            }
+            for (TransactionApiRequest item : items) {
+                results.put(item.id(), TransactionOutcome.RETRY);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gọi batch endpoint cho một sub-batch, lỗi của cả request được tính là ERROR cho mọi item,
+     * trừ lỗi tạm thời (I/O, timeout, HTTP 5xx, 429) được tính là RETRY
+     */
+    private Map<Long, TransactionOutcome> callBatchEndpoint(List<TransactionApiRequest> items) {
+        Map<Long, TransactionOutcome> results = new LinkedHashMap<>();
+        for (TransactionApiRequest item : items) {
+            results.put(item.id(), TransactionOutcome.ERROR);
+        }
+
+        try {
+            log.info("Calling external batch API for {} transactions", items.size());
+
+            ApiResponse<TransactionBatchApiResponse> response = exchange(externalApiBatchUrl, batchRequestWriter,
+                new TransactionBatchApiRequest(items), null, batchResponseReader);
+
+            if (!response.status().is2xxSuccessful() || response.body() == null) {
+                log.warn("External batch API returned non-success status for {} transactions, status={}",
+                    items.size(), response.status());
+                if (isTransientStatus(response.status())) {
+                    results.replaceAll((id, outcome) -> TransactionOutcome.RETRY);
+                }
+                return results;
+            }
+
+            int succeeded = 0;
+            if (response.body().results() != null) {
+                for (TransactionBatchApiResponse.Result itemResult : response.body().results()) {
+                    // Chỉ nhận kết quả của các transaction đã gửi
+                    if (itemResult != null && itemResult.id() != null && results.containsKey(itemResult.id())) {
+                        results.put(itemResult.id(), itemResult.success() ? TransactionOutcome.COMPLETED : TransactionOutcome.ERROR);
+                        if (itemResult.success()) {
+                            succeeded++;
+                        }
+                    }
+                }
+            }
+            if (succeeded < items.size()) {
+                log.warn("External batch API processed {}/{} transactions successfully", succeeded, items.size());
+            } else {
+                log.info("Successfully called external batch API for {} transactions", items.size());
+            }
+            return results;
+
+        } catch (CallNotPermittedException e) {
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.warn("I/O error calling external batch API for {} transactions, will retry: {}", items.size(), e.getMessage());
+            results.replaceAll((id, outcome) -> TransactionOutcome.RETRY);
+            return results;
+        } catch (RestClientException e) {
+            log.error("Error calling external batch API for {} transactions: {}", items.size(), e.getMessage(), e);
+            return results;
+        } catch (Exception e) {
+            log.error("Unexpected error calling external batch API for {} transactions: {}",
+                items.size(), e.getMessage(), e);
+            return results;
+        }
+    }
+
+    /**
+     * Lấy quota của branch, chờ tối đa application.rate-limit.max-wait-ms
+     *
+     * @throws CallNotPermittedException nếu branch đã hết quota
+     */
+    private void acquireBranchPermit(String branch) {
+        if (!tryAcquireBranchPermit(branch)) {
+            throw new CallNotPermittedException("Rate limit of branch " + branch + " exceeded");
+        }
+    }
+
+    private boolean tryAcquireBranchPermit(String branch) {
+        ApplicationProperties.RateLimit rateLimit = applicationProperties.getRateLimit();
+        if (!rateLimit.isEnabled()) {
+            return true;
+        }
+        long waitNanos = branchRateLimiter.tryAcquire(branch != null ? branch : "", rateLimit.getMaxWaitMs());
+        if (waitNanos < 0) {
+            log.debug("Rate limit of branch {} exceeded", branch);
+            return false;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * POST tới API qua circuit breaker và concurrency limiter.
+     * Exception, HTTP 5xx và 429 được tính là lỗi của downstream (giảm limit, tính vào tỉ lệ lỗi của breaker).
+     * Lời gọi bị huỷ do thread bị interrupt không được tính (permit được trả, không có mẫu latency).
+     *
+     * Request body được Jackson ghi thẳng vào body của HTTP request (không tạo Map / byte[] trung gian),
+     * header được ghi vào request thay vì tạo HttpHeaders mới. Response body chỉ được parse khi 2xx
+     * và có bodyReader; ngược lại body bị bỏ qua (connection vẫn được trả về pool).
+     *
+     * @param bodyReader reader của response body (null = không parse body)
+     */
+    private <B, T> ApiResponse<T> exchange(String url, ObjectWriter bodyWriter, B requestBody,
+                                           String idempotencyKey, ObjectReader bodyReader) {
+        if (!externalApiCircuitBreaker.tryAcquirePermission()) {
+            throw new CallNotPermittedException("Circuit breaker " + externalApiCircuitBreaker.getName() + " is open");
+        }
+        try {
+            if (!externalApiConcurrencyLimiter.acquire(limiterAcquireTimeoutMillis)) {
+                externalApiCircuitBreaker.releasePermission();
+                throw new CallNotPermittedException("No concurrency permit for " + externalApiConcurrencyLimiter.getName()
+                    + " within " + limiterAcquireTimeoutMillis + " ms (limit=" + externalApiConcurrencyLimiter.getLimit() + ")");
+            }
+        } catch (InterruptedException e) {
+            externalApiCircuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new CallNotPermittedException("Interrupted while waiting for a concurrency permit");
+        }
+
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        boolean cancelled = false;
+        try {
+            RequestCallback requestCallback = request -> {
+                HttpHeaders headers = request.getHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                headers.setAccept(ACCEPT_JSON);
+                if (idempotencyKey != null) {
+                    headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+                }
+                if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                    streamingRequest.setBody(outputStream -> bodyWriter.writeValue(outputStream, requestBody));
+                } else {
+                    bodyWriter.writeValue(request.getBody(), requestBody);
+                }
+            };
+            ResponseExtractor<ApiResponse<T>> responseExtractor = response -> {
+                HttpStatusCode status = response.getStatusCode();
+                if (bodyReader == null || !status.is2xxSuccessful()) {
+                    return new ApiResponse<>(status, null);
+                }
+                return new ApiResponse<>(status, bodyReader.readValue(response.getBody()));
+            };
+            ApiResponse<T> response = restTemplate.execute(url, HttpMethod.POST, requestCallback, responseExtractor);
+            failed = response == null || isTransientStatus(response.status());
+            return response;
+        } catch (RuntimeException e) {
+            cancelled = isInterruption(e);
+            throw e;
+        } finally {
+            if (cancelled) {
+                log.debug("External API call to {} was cancelled", url);
+                externalApiConcurrencyLimiter.releaseCancelled();
+                externalApiCircuitBreaker.releasePermission();
+            } else {
+                externalApiConcurrencyLimiter.release(System.nanoTime() - startNanos, failed);
+                if (failed) {
+                    externalApiCircuitBreaker.onFailure();
+                } else {
+                    externalApiCircuitBreaker.onSuccess();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lỗi do thread bị interrupt (huỷ lời gọi), không phải do downstream. SocketTimeoutException cũng là
+     * InterruptedIOException nhưng là timeout của downstream nên không tính.
+     */
+    private static boolean isInterruption(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof ClosedByInterruptException
+                || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTransientStatus(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Kích thước JSON của một item batch: {"id":1,"branch":"...","idempotencyKey":"..."}
+     * tính trực tiếp, không serialize
+     */
+    private static int estimateSize(TransactionApiRequest item) {
+        int size = BATCH_ITEM_ENVELOPE_BYTES + (item.id() != null ? Long.toString(item.id()).length() : 4);
+        size += item.branch() != null ? jsonStringBytes(item.branch()) : 4;
+        if (item.idempotencyKey() != null) {
+            size += BATCH_ITEM_KEY_FIELD_BYTES + jsonStringBytes(item.idempotencyKey());
+        }
+        return size;
+    }
+
+    /**
+     * Số byte UTF-8 tối đa của một chuỗi JSON (kể cả dấu nháy, ký tự cần escape tính 6 byte)
+     */
+    private static int jsonStringBytes(String value) {
+        int bytes = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20) {
+                bytes += 6;
+            } else if (c == '"' || c == '\\') {
+                bytes += 2;
+            } else if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
     /**
      * Gọi API bên ngoài với custom request body
      * 
@@ -95,32 +657,21 @@ public class ExternalApiService {
         try {
             log.debug("Calling external API with request body: {}", requestBody);
 
-            // Tạo headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            // Có thể thêm authentication header nếu cần
-            // headers.set("Authorization", "Bearer " + token);
-
-            // Tạo HttpEntity
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
-
             // Gọi API
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                externalApiUrl,
-                HttpMethod.POST,
-                requestEntity,
-                new ParameterizedTypeReference<Map<String, Object>>() {}
-            );
+            ApiResponse<Map<String, Object>> response = exchange(externalApiUrl, mapWriter, requestBody, null, mapResponseReader);
 
             // Kiểm tra response
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.debug("Successfully called external API, response: {}", response.getBody());
-                return response.getBody();
+            if (response.status().is2xxSuccessful()) {
+                log.debug("Successfully called external API, response: {}", response.body());
+                return response.body();
             } else {
-                log.warn("External API returned non-success status: {}", response.getStatusCode());
+                log.warn("External API returned non-success status: {}", response.status());
                 return null;
             }
 
+        } catch (CallNotPermittedException e) {
+            log.warn("External API call not permitted: {}", e.getMessage());
+            return null;
         } catch (RestClientException e) {
             log.error("Error calling external API: {}", e.getMessage(), e);
             return null;
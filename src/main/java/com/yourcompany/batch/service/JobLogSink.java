@@ -0,0 +1,223 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.domain.JobLog;
+import com.yourcompany.batch.repository.JobLogBatchRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ghi JobLog bất đồng bộ: log được đưa vào hàng đợi (không lock, giới hạn queueCapacity entry)
+ * và một background thread ghi xuống DB theo lô (JDBC batch insert) khi đủ batchSize entry
+ * hoặc sau mỗi flushIntervalMillis, nên chunk / skip listener không chờ insert.
+ *
+ * - Hàng đợi đầy: OverflowPolicy.CALLER_RUNS thì thread gọi tự ghi hàng đợi và log của nó xuống DB
+ *   (chậm lại nhưng không mất log), OverflowPolicy.DROP thì log bị bỏ và được đếm (batch.job-log.dropped).
+ * - flush() ghi hết các log đã đưa vào trước lời gọi, AbstractStepBuilder gọi khi step kết thúc
+ *   để log của step có trong DB trước khi job trả kết quả.
+ * - Lô bị lỗi khi ghi thì bị bỏ (log error), không chặn các lô sau.
+ */
+@Service
+public class JobLogSink {
+
+    private static final Logger log = LoggerFactory.getLogger(JobLogSink.class);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+    public enum OverflowPolicy {
+        CALLER_RUNS,
+        DROP
+    }
+
+    @Autowired
+    private JobLogBatchRepository jobLogBatchRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${batch.job-log.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    @Value("${batch.job-log.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${batch.job-log.async.batch-size:200}")
+    private int batchSize;
+
+    @Value("${batch.job-log.async.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${batch.job-log.async.overflow-policy:CALLER_RUNS}")
+    private OverflowPolicy overflowPolicy;
+
+    private final ConcurrentLinkedQueue<JobLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    // Chỉ một thread ghi tại một thời điểm, để flush() chờ được lô đang ghi dở của flusher
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread flusherThread;
+
+    @PostConstruct
+    public void init() {
+        batchSize = Math.max(1, batchSize);
+        queueCapacity = Math.max(batchSize, queueCapacity);
+        Gauge.builder("batch.job-log.queue.size", queueSize, AtomicInteger::get)
+            .description("JobLog entries waiting to be written")
+            .register(meterRegistry);
+        FunctionCounter.builder("batch.job-log.written", written, LongAdder::sum)
+            .register(meterRegistry);
+        FunctionCounter.builder("batch.job-log.dropped", dropped, LongAdder::sum)
+            .description("JobLog entries dropped because the queue was full")
+            .register(meterRegistry);
+        FunctionCounter.builder("batch.job-log.failed", failed, LongAdder::sum)
+            .description("JobLog entries lost because the batch insert failed")
+            .register(meterRegistry);
+        if (!asyncEnabled) {
+            log.info("JobLogSink runs synchronously");
+            return;
+        }
+        running = true;
+        flusherThread = Thread.ofPlatform().name("job-log-sink").daemon(true).start(this::runFlusher);
+        log.info("JobLogSink started - queueCapacity: {}, batchSize: {}, flushIntervalMillis: {}, overflowPolicy: {}",
+            queueCapacity, batchSize, flushIntervalMillis, overflowPolicy);
+    }
+
+    /**
+     * Đưa một JobLog vào hàng đợi ghi
+     */
+    public void add(JobLog jobLog) {
+        if (!running) {
+            // Sink không chạy (tắt async hoặc đang shutdown): ghi ngay
+            write(List.of(jobLog));
+            return;
+        }
+        if (tryReserve()) {
+            queue.add(jobLog);
+            if (queueSize.get() >= batchSize) {
+                LockSupport.unpark(flusherThread);
+            }
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            dropped.increment();
+            if (dropped.sum() % 1000 == 1) {
+                log.warn("JobLog queue is full ({} entries), dropped {} entries so far", queueCapacity, dropped.sum());
+            }
+            return;
+        }
+        writeLock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+            write(List.of(jobLog));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Ghi xuống DB tất cả JobLog đã được đưa vào trước lời gọi này
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusherThread);
+        try {
+            flusherThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("JobLogSink stopped - written: {}, dropped: {}, failed: {}", written.sum(), dropped.sum(), failed.sum());
+    }
+
+    private boolean tryReserve() {
+        while (true) {
+            int size = queueSize.get();
+            if (size >= queueCapacity) {
+                return false;
+            }
+            if (queueSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void runFlusher() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        while (running) {
+            if (queueSize.get() < batchSize) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            writeLock.lock();
+            try {
+                // Sau mỗi khoảng flushIntervalMillis ghi hết hàng đợi, khi được đánh thức vì đủ lô thì ghi các lô đầy
+                drain(queueSize.get() >= batchSize ? queueSize.get() / batchSize * batchSize : Integer.MAX_VALUE);
+            } catch (Exception e) {
+                log.error("Error flushing job logs: {}", e.getMessage(), e);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lấy tối đa maxEntries entry khỏi hàng đợi và ghi theo lô batchSize (gọi khi giữ writeLock)
+     */
+    private void drain(int maxEntries) {
+        int remaining = maxEntries;
+        while (remaining > 0) {
+            List<JobLog> batch = new ArrayList<>(Math.min(batchSize, remaining));
+            JobLog jobLog;
+            while (batch.size() < batchSize && batch.size() < remaining && (jobLog = queue.poll()) != null) {
+                batch.add(jobLog);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            queueSize.addAndGet(-batch.size());
+            remaining -= batch.size();
+            write(batch);
+        }
+    }
+
+    private void write(List<JobLog> batch) {
+        try {
+            jobLogBatchRepository.insertAll(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("Error writing {} job logs: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+}
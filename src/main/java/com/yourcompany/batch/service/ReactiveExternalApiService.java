@@ -0,0 +1,124 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.config.ApplicationProperties;
+import com.yourcompany.batch.service.dto.TransactionApiRequest;
+import com.yourcompany.batch.service.resilience.CallNotPermittedException;
+import com.yourcompany.batch.service.resilience.CircuitBreaker;
+import com.yourcompany.batch.service.resilience.KeyedRateLimiter;
+import com.yourcompany.batch.service.resilience.TransientApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Service gọi API bên ngoài non-blocking qua WebClient (dùng cho step reactive)
+ *
+ * Dùng chung circuit breaker và rate limiter theo branch với ExternalApiService. Số lời gọi đồng thời
+ * do flatMap concurrency của step quyết định nên không qua AdaptiveConcurrencyLimiter (blocking).
+ * Kết quả giống ExternalApiService.processTransaction: true / false, lỗi tạm thời là TransientApiException,
+ * lời gọi bị từ chối là CallNotPermittedException.
+ */
+@Service
+public class ReactiveExternalApiService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveExternalApiService.class);
+
+    @Autowired
+    private WebClient externalApiWebClient;
+
+    @Autowired
+    private CircuitBreaker externalApiCircuitBreaker;
+
+    @Autowired
+    private KeyedRateLimiter branchRateLimiter;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Value("${external.api.url:http://localhost:8080/api/transaction}")
+    private String externalApiUrl;
+
+    /**
+     * Gọi API bên ngoài để xử lý transaction
+     *
+     * @param idempotencyKey Idempotency key của request (null = không gửi header)
+     * @return Mono true nếu call API thành công, false nếu thất bại (lỗi không thử lại được)
+     */
+    public Mono<Boolean> processTransaction(Long transactionId, String branch, String idempotencyKey) {
+        return Mono.defer(() -> {
+            long waitNanos = acquireBranchPermit(branch);
+            if (waitNanos < 0) {
+                return Mono.error(new CallNotPermittedException("Rate limit of branch " + branch + " exceeded"));
+            }
+            Mono<Boolean> call = Mono.defer(() -> call(transactionId, branch, idempotencyKey));
+            return waitNanos > 0 ? Mono.delay(Duration.ofNanos(waitNanos)).then(call) : call;
+        });
+    }
+
+    private Mono<Boolean> call(Long transactionId, String branch, String idempotencyKey) {
+        if (!externalApiCircuitBreaker.tryAcquirePermission()) {
+            return Mono.error(new CallNotPermittedException("Circuit breaker " + externalApiCircuitBreaker.getName() + " is open"));
+        }
+        log.debug("Calling external API reactively for transaction id={}, branch={}", transactionId, branch);
+
+        return externalApiWebClient.post()
+            .uri(externalApiUrl)
+            .headers(headers -> {
+                if (idempotencyKey != null) {
+                    headers.set(ExternalApiService.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+                }
+            })
+            .bodyValue(new TransactionApiRequest(transactionId, branch))
+            .exchangeToMono(response -> {
+                HttpStatusCode status = response.statusCode();
+                if (status.is2xxSuccessful()) {
+                    return response.releaseBody().thenReturn(Boolean.TRUE);
+                }
+                if (isTransientStatus(status)) {
+                    return response.releaseBody().then(Mono.error(new TransientApiException(
+                        "External API returned status " + status.value() + " for transaction id=" + transactionId,
+                        status.value())));
+                }
+                log.warn("External API returned non-success status for transaction id={}, branch={}, status={}",
+                    transactionId, branch, status);
+                return response.releaseBody().thenReturn(Boolean.FALSE);
+            })
+            .onErrorMap(WebClientRequestException.class,
+                e -> new TransientApiException("I/O error calling external API for transaction id=" + transactionId, e))
+            .doOnSuccess(result -> externalApiCircuitBreaker.onSuccess())
+            .doOnError(e -> {
+                if (e instanceof TransientApiException) {
+                    externalApiCircuitBreaker.onFailure();
+                } else {
+                    externalApiCircuitBreaker.onSuccess();
+                }
+            })
+            .doOnCancel(externalApiCircuitBreaker::releasePermission);
+    }
+
+    /**
+     * Lấy quota của branch (không block)
+     *
+     * @return số nanosecond cần chờ trước khi gọi, -1 nếu branch đã hết quota
+     */
+    private long acquireBranchPermit(String branch) {
+        ApplicationProperties.RateLimit rateLimit = applicationProperties.getRateLimit();
+        if (!rateLimit.isEnabled()) {
+            return 0;
+        }
+        return branchRateLimiter.tryAcquire(branch != null ? branch : "", rateLimit.getMaxWaitMs());
+    }
+
+    private static boolean isTransientStatus(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+}
@@ -0,0 +1,266 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.domain.Transaction;
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
+import com.yourcompany.batch.repository.TransactionApiIdempotencyRepository;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service idempotency cho lời gọi external API theo transaction
+ *
+ * - Idempotency key = SHA-256 của nội dung request (id, branch, amount), gửi kèm header Idempotency-Key.
+ * - Sau khi API thành công, (transaction id, key) được ghi vào cache LRU trong bộ nhớ ngay, và vào bảng
+ *   transaction_api_idempotency ngoài transaction của chunk theo lô (một JDBC batch cho mỗi chunk, ở writer).
+ * - Khi reader claim một trang, ghi nhận của cả trang được nạp vào cache bằng một query (preload), kể cả
+ *   các transaction chưa có ghi nhận, nên kiểm tra từng item trong processor thường không truy cập DB.
+ * - Trước khi gọi API, processor kiểm tra cache rồi tới DB: transaction đã thành công với cùng key
+ *   (chunk rollback rồi chạy lại, transaction được claim lại sau khi lease hết hạn...) không gọi API lần nữa.
+ */
+@Service
+public class TransactionIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionIdempotencyService.class);
+
+    @Autowired
+    private TransactionApiIdempotencyRepository transactionApiIdempotencyRepository;
+
+    @Value("${batch.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${batch.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${batch.idempotency.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${batch.idempotency.purge.batch-size:1000}")
+    private int purgeBatchSize;
+
+    // Giá trị trong cache của transaction đã kiểm tra nhưng chưa có ghi nhận thành công
+    private static final String NOT_COMPLETED = "";
+
+    // transaction id -> idempotency key đã thành công (hoặc NOT_COMPLETED), LRU theo thứ tự truy cập
+    private final Map<Long, String> completedCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // transaction id -> idempotency key của các transaction đã thành công nhưng chưa được ghi xuống DB
+    // (giữ riêng key để không mất ghi nhận khi entry bị đẩy khỏi cache LRU trước khi writer ghi)
+    private final Map<Long, String> unsavedCompletions = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Idempotency key của lời gọi API cho transaction (thay đổi khi nội dung request thay đổi)
+     */
+    public String keyOf(Transaction transaction) {
+        String payload = transaction.getId() + "|" + transaction.getBranch() + "|"
+            + (transaction.getAmount() != null ? transaction.getAmount().toPlainString() : "");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Transaction đã gọi API thành công với key này chưa
+     */
+    public boolean isCompleted(Long transactionId, String idempotencyKey) {
+        if (!enabled || transactionId == null) {
+            return false;
+        }
+        String unsavedKey = unsavedCompletions.get(transactionId);
+        if (unsavedKey != null) {
+            return idempotencyKey.equals(unsavedKey);
+        }
+        synchronized (completedCache) {
+            String cachedKey = completedCache.get(transactionId);
+            if (cachedKey != null) {
+                return idempotencyKey.equals(cachedKey);
+            }
+        }
+        String storedKey = transactionApiIdempotencyRepository
+            .findKey(transactionId, TransactionOutcome.COMPLETED.getValue())
+            .orElse(NOT_COMPLETED);
+        cache(transactionId, storedKey);
+        return idempotencyKey.equals(storedKey);
+    }
+
+    /**
+     * Các transaction đã gọi API thành công với đúng key (transaction id -> key), tra cache trước,
+     * các transaction còn lại được tra trong một query
+     */
+    public Set<Long> findCompleted(Map<Long, String> idempotencyKeys) {
+        Set<Long> completed = new HashSet<>();
+        if (!enabled || idempotencyKeys.isEmpty()) {
+            return completed;
+        }
+        List<Long> uncached = new ArrayList<>();
+        synchronized (completedCache) {
+            for (Map.Entry<Long, String> entry : idempotencyKeys.entrySet()) {
+                String cachedKey = unsavedCompletions.get(entry.getKey());
+                if (cachedKey == null) {
+                    cachedKey = completedCache.get(entry.getKey());
+                }
+                if (cachedKey == null) {
+                    uncached.add(entry.getKey());
+                } else if (cachedKey.equals(entry.getValue())) {
+                    completed.add(entry.getKey());
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Map<Long, String> storedKeys = transactionApiIdempotencyRepository.findKeys(uncached,
+                TransactionOutcome.COMPLETED.getValue());
+            for (Long transactionId : uncached) {
+                String storedKey = storedKeys.getOrDefault(transactionId, NOT_COMPLETED);
+                cache(transactionId, storedKey);
+                if (storedKey.equals(idempotencyKeys.get(transactionId))) {
+                    completed.add(transactionId);
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Nạp ghi nhận của các transaction vừa claim vào cache bằng một query, để isCompleted của từng item
+     * không phải truy cập DB. Lỗi chỉ được log (isCompleted sẽ tra DB như bình thường).
+     */
+    public void preload(List<Transaction> transactions) {
+        if (!enabled || transactions.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+        try {
+            Map<Long, String> storedKeys = transactionApiIdempotencyRepository.findKeys(ids,
+                TransactionOutcome.COMPLETED.getValue());
+            synchronized (completedCache) {
+                for (Long transactionId : ids) {
+                    // Ghi nhận của node này chưa xuống DB thì giữ nguyên
+                    if (!unsavedCompletions.containsKey(transactionId)) {
+                        completedCache.put(transactionId, storedKeys.getOrDefault(transactionId, NOT_COMPLETED));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error preloading idempotency records for {} transactions: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi nhận transaction đã gọi API thành công trong cache (không truy cập DB, gọi được từ processor
+     * chạy song song); được ghi xuống DB khi writer gọi saveCompleted cho chunk
+     */
+    public void recordCompleted(Long transactionId, String idempotencyKey) {
+        if (!enabled || transactionId == null) {
+            return;
+        }
+        unsavedCompletions.put(transactionId, idempotencyKey);
+        cache(transactionId, idempotencyKey);
+    }
+
+    /**
+     * Ghi xuống DB (một JDBC batch, commit ngay) các ghi nhận recordCompleted của các transaction trong chunk
+     */
+    public void saveCompleted(List<? extends Transaction> transactions) {
+        if (!enabled || transactions.isEmpty()) {
+            return;
+        }
+        Map<Long, String> idempotencyKeys = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            String unsavedKey = unsavedCompletions.get(transaction.getId());
+            if (unsavedKey != null) {
+                idempotencyKeys.put(transaction.getId(), unsavedKey);
+            }
+        }
+        markCompleted(idempotencyKeys);
+    }
+
+    /**
+     * Ghi nhận nhiều transaction đã gọi API thành công (transaction id -> key) trong một lần ghi
+     */
+    public void markCompleted(Map<Long, String> idempotencyKeys) {
+        if (!enabled || idempotencyKeys.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(idempotencyKeys.keySet());
+        List<String> keys = new ArrayList<>(idempotencyKeys.values());
+        try {
+            transactionApiIdempotencyRepository.saveAll(ids, keys, TransactionOutcome.COMPLETED.getValue());
+            for (int i = 0; i < ids.size(); i++) {
+                cache(ids.get(i), keys.get(i));
+            }
+        } catch (Exception e) {
+            // Không ghi được thì lần xử lý lại ở node khác sẽ gọi API lần nữa (server dedupe theo header Idempotency-Key)
+            log.error("Error saving idempotency records for {} transactions: {}", ids.size(), e.getMessage(), e);
+        } finally {
+            for (int i = 0; i < ids.size(); i++) {
+                unsavedCompletions.remove(ids.get(i), keys.get(i));
+            }
+        }
+    }
+
+    /**
+     * Xóa các ghi nhận idempotency quá batch.idempotency.retention-days
+     */
+    @Scheduled(cron = "${batch.idempotency.purge.cron:0 30 2 * * *}")
+    @SchedulerLock(
+        name = "TRANSACTION_API_IDEMPOTENCY_PURGE_LOCK",
+        lockAtMostFor = "30m",
+        lockAtLeastFor = "1m"
+    )
+    public void purgeExpired() {
+        if (!enabled) {
+            return;
+        }
+        Instant before = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = transactionApiIdempotencyRepository.purgeOlderThan(before, purgeBatchSize);
+                total += deleted;
+            } while (deleted >= purgeBatchSize);
+            log.info("Purged {} idempotency records created before {}", total, before);
+        } catch (Exception e) {
+            log.error("Error purging idempotency records: {}", e.getMessage(), e);
+        }
+    }
+
+    private void cache(Long transactionId, String idempotencyKey) {
+        synchronized (completedCache) {
+            completedCache.put(transactionId, idempotencyKey);
+        }
+    }
+}
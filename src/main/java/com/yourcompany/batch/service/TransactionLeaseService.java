@@ -0,0 +1,163 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service quản lý lease của các transaction đã claim (status = 'PENDING')
+ *
+ * - Mỗi reader đăng ký một owner (host:pid:stepExecutionId) khi mở và hủy đăng ký khi đóng.
+ * - Heartbeat định kỳ gia hạn lease cho tất cả owner còn đang chạy trên node này, trên thread riêng
+ *   (không dùng scheduler chung của @Scheduled, để sweeper / reconcile chạy lâu không làm lease hết hạn).
+ * - Sweeper (chỉ một node chạy tại một thời điểm nhờ ShedLock) trả các transaction có lease
+ *   đã hết hạn (node chết, bị kill...) về lại hàng đợi theo từng batch.
+ */
+@Service
+public class TransactionLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLeaseService.class);
+    private static final int MAX_OWNER_LENGTH = 100;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${batch.lease.duration-seconds:300}")
+    private int leaseSeconds;
+
+    @Value("${batch.lease.renew-interval-ms:60000}")
+    private long renewIntervalMillis;
+
+    @Value("${batch.lease.sweep.enabled:true}")
+    private boolean sweepEnabled;
+
+    @Value("${batch.lease.sweep.batch-size:1000}")
+    private int sweepBatchSize;
+
+    private final Set<String> activeOwners = ConcurrentHashMap.newKeySet();
+    private String nodeId;
+    private ScheduledExecutorService renewalExecutor;
+
+    @PostConstruct
+    public void init() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        nodeId = host + ":" + ProcessHandle.current().pid();
+        if (renewIntervalMillis >= leaseSeconds * 1000L) {
+            log.warn("Lease renew interval ({} ms) is not shorter than lease duration ({} s), leases may expire while still in use",
+                renewIntervalMillis, leaseSeconds);
+        }
+        renewalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewalExecutor.scheduleWithFixedDelay(this::renewLeases, renewIntervalMillis, renewIntervalMillis,
+            TimeUnit.MILLISECONDS);
+        log.info("TransactionLeaseService initialized - nodeId: {}, leaseSeconds: {}, renewIntervalMillis: {}",
+            nodeId, leaseSeconds, renewIntervalMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tạo owner mới cho một step execution (hoặc ngẫu nhiên nếu không có step execution)
+     */
+    public String newOwner(Long stepExecutionId) {
+        String suffix = stepExecutionId != null
+            ? String.valueOf(stepExecutionId)
+            : UUID.randomUUID().toString().substring(0, 8);
+        String owner = nodeId + ":" + suffix;
+        if (owner.length() > MAX_OWNER_LENGTH) {
+            owner = owner.substring(owner.length() - MAX_OWNER_LENGTH);
+        }
+        return owner;
+    }
+
+    /**
+     * Đăng ký owner để heartbeat gia hạn lease
+     */
+    public void register(String owner) {
+        activeOwners.add(owner);
+        log.debug("Registered lease owner {}", owner);
+    }
+
+    /**
+     * Hủy đăng ký owner, lease của các transaction còn giữ sẽ tự hết hạn nếu không được release
+     */
+    public void unregister(String owner) {
+        activeOwners.remove(owner);
+        log.debug("Unregistered lease owner {}", owner);
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * Heartbeat: gia hạn lease cho các owner còn đang chạy trên node này (mỗi batch.lease.renew-interval-ms)
+     */
+    public void renewLeases() {
+        for (String owner : activeOwners) {
+            try {
+                int renewed = transactionRepository.renewLeases(owner, leaseSeconds);
+                log.debug("Renewed lease of {} transactions for owner {}", renewed, owner);
+            } catch (Exception e) {
+                log.error("Error renewing leases for owner {}: {}", owner, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Sweeper: trả các transaction có lease hết hạn về lại hàng đợi, mỗi batch một transaction DB
+     */
+    @Scheduled(fixedDelayString = "${batch.lease.sweep.interval-ms:60000}")
+    @SchedulerLock(
+        name = "TRANSACTION_LEASE_SWEEPER_LOCK",
+        lockAtMostFor = "5m",
+        lockAtLeastFor = "10s"
+    )
+    public void sweepExpiredLeases() {
+        if (!sweepEnabled) {
+            return;
+        }
+        try {
+            int total = 0;
+            int reclaimed;
+            do {
+                reclaimed = transactionRepository.reclaimExpiredLeases(sweepBatchSize);
+                total += reclaimed;
+            } while (reclaimed >= sweepBatchSize);
+
+            if (total > 0) {
+                log.warn("Reclaimed {} transactions with expired lease back to the queue", total);
+            }
+        } catch (Exception e) {
+            log.error("Error sweeping expired leases: {}", e.getMessage(), e);
+        }
+    }
+}
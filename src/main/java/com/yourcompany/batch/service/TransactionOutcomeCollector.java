@@ -0,0 +1,102 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
+import com.yourcompany.batch.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thu thập kết quả xử lý (COMPLETED / ERROR / RETRY) của các transaction trong chunk
+ * và ghi xuống DB trong một câu lệnh ngay trước khi transaction của chunk commit.
+ *
+ * Kết quả được gắn với transaction DB đang chạy: nếu chunk rollback (ví dụ Spring Batch
+ * chạy lại chunk / scan từng item khi có skip) thì các kết quả đã ghi nhận bị bỏ đi
+ * và được ghi nhận lại ở lần chạy sau, nên không có status nào bị ghi sai.
+ * Gọi ngoài transaction thì kết quả được ghi ngay.
+ */
+@Service
+public class TransactionOutcomeCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionOutcomeCollector.class);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${batch.outcome.retry-delay-seconds:60}")
+    private int retryDelaySeconds;
+
+    /**
+     * Ghi nhận kết quả của một transaction (ghi đè kết quả trước đó trong cùng transaction DB)
+     */
+    public void record(Long transactionId, TransactionOutcome outcome) {
+        if (transactionId == null) {
+            return;
+        }
+        record(List.of(transactionId), outcome);
+    }
+
+    /**
+     * Ghi nhận cùng một kết quả cho nhiều transaction
+     */
+    public void record(List<Long> transactionIds, TransactionOutcome outcome) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(transactionIds, new ArrayList<>(Collections.nCopies(transactionIds.size(), outcome)));
+            return;
+        }
+
+        OutcomeBuffer buffer = (OutcomeBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new OutcomeBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        for (Long transactionId : transactionIds) {
+            buffer.outcomes.put(transactionId, outcome);
+        }
+    }
+
+    private void apply(List<Long> transactionIds, List<TransactionOutcome> outcomes) {
+        int updated = transactionRepository.applyTransactionOutcomes(transactionIds, outcomes, retryDelaySeconds);
+        log.debug("Applied {} transaction outcomes, affectedRows={}", transactionIds.size(), updated);
+    }
+
+    /**
+     * Kết quả của transaction DB hiện tại, ghi xuống DB khi beforeCommit
+     */
+    private class OutcomeBuffer implements TransactionSynchronization {
+
+        private final Map<Long, TransactionOutcome> outcomes = new LinkedHashMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (outcomes.isEmpty()) {
+                return;
+            }
+            apply(new ArrayList<>(outcomes.keySet()), new ArrayList<>(outcomes.values()));
+            outcomes.clear();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && !outcomes.isEmpty()) {
+                log.debug("Discarded {} transaction outcomes of a rolled back transaction", outcomes.size());
+            }
+            outcomes.clear();
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionOutcomeCollector.this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.domain.enumeration.TransactionStatus;
+import com.yourcompany.batch.repository.TransactionStatusCounterRepository;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service đọc số transaction theo status từ transaction_status_counter (O(1), không COUNT(*) bảng transaction)
+ * và định kỳ đối chiếu counter với số thực tế để sửa các sai lệch (insert ngoài app, update tay...).
+ */
+@Service
+public class TransactionStatusCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionStatusCounterService.class);
+
+    @Autowired
+    private TransactionStatusCounterRepository transactionStatusCounterRepository;
+
+    @Value("${batch.status-counter.reconcile.enabled:true}")
+    private boolean reconcileEnabled;
+
+    /**
+     * Số transaction đang chờ xử lý (status IS NULL)
+     */
+    public long getQueuedCount() {
+        return transactionStatusCounterRepository.getCount(TransactionStatusCounterRepository.NEW_STATUS_KEY);
+    }
+
+    /**
+     * Số transaction theo tất cả status key, luôn có đủ các status đã biết (mặc định 0)
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String statusKey : getStatusKeys()) {
+            counts.put(statusKey, 0L);
+        }
+        counts.putAll(transactionStatusCounterRepository.getCounts());
+        return counts;
+    }
+
+    /**
+     * Đối chiếu counter với số thực tế, mỗi status key trong một transaction riêng
+     * (không lock counter, các worker không phải chờ)
+     */
+    @Scheduled(fixedDelayString = "${batch.status-counter.reconcile.interval-ms:900000}",
+        initialDelayString = "${batch.status-counter.reconcile.initial-delay-ms:60000}")
+    @SchedulerLock(
+        name = "TRANSACTION_STATUS_COUNTER_RECONCILE_LOCK",
+        lockAtMostFor = "30m",
+        lockAtLeastFor = "1m"
+    )
+    public void scheduledReconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        reconcile();
+    }
+
+    /**
+     * Đối chiếu counter với số thực tế ngay lập tức
+     *
+     * @return số transaction thực tế theo status key
+     */
+    public Map<String, Long> reconcile() {
+        Map<String, Long> actual = new LinkedHashMap<>();
+        for (String statusKey : getStatusKeys()) {
+            try {
+                actual.put(statusKey, transactionStatusCounterRepository.reconcile(statusKey));
+            } catch (Exception e) {
+                log.error("Error reconciling status counter {}: {}", statusKey, e.getMessage(), e);
+            }
+        }
+        log.info("Reconciled transaction status counters: {}", actual);
+        return actual;
+    }
+
+    private static List<String> getStatusKeys() {
+        List<String> statusKeys = new ArrayList<>();
+        statusKeys.add(TransactionStatusCounterRepository.NEW_STATUS_KEY);
+        for (TransactionStatus status : TransactionStatus.values()) {
+            if (status.getValue() != null) {
+                statusKeys.add(status.getValue());
+            }
+        }
+        return statusKeys;
+    }
+}
@@ -0,0 +1,16 @@
+package com.yourcompany.batch.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Request xử lý một transaction gửi tới API bên ngoài (một item của request batch)
+ *
+ * @param idempotencyKey chỉ gửi trong request batch, request đơn dùng header Idempotency-Key (null = bỏ qua)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransactionApiRequest(Long id, String branch, String idempotencyKey) {
+
+    public TransactionApiRequest(Long id, String branch) {
+        this(id, branch, null);
+    }
+}
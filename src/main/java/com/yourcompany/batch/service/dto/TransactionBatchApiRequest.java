@@ -0,0 +1,8 @@
+package com.yourcompany.batch.service.dto;
+
+import java.util.List;
+
+/**
+ * Request gửi tới batch endpoint của API bên ngoài: {"items": [...]}
+ */
+public record TransactionBatchApiRequest(List<TransactionApiRequest> items) {}
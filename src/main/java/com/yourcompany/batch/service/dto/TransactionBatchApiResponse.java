@@ -0,0 +1,16 @@
+package com.yourcompany.batch.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Response của batch endpoint: {"results": [{"id": 1, "success": true}, ...]}
+ * Các field khác trong response được bỏ qua.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TransactionBatchApiResponse(List<Result> results) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Result(Long id, boolean success) {}
+}
@@ -0,0 +1,130 @@
+package com.yourcompany.batch.service.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giới hạn số lời gọi đồng thời tới một downstream, tự điều chỉnh theo AIMD:
+ * - Lời gọi thành công với latency <= latencyThreshold khi limit đang được dùng hết: limit + 1
+ * - Lời gọi lỗi (timeout, 5xx, 429...) hoặc latency > latencyThreshold: limit * backoffRatio,
+ *   tối đa một lần giảm mỗi decreaseInterval để một đợt lỗi đồng loạt không kéo limit về min ngay.
+ *
+ * Khi downstream chậm đi, số lời gọi đồng thời giảm theo nên hàng đợi phía downstream không phình ra;
+ * khi downstream hồi phục, limit tăng dần trở lại tới maxLimit.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long decreaseIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    // Truy cập trong lock, đọc không lock chỉ để expose metrics
+    private volatile int limit;
+    private volatile int inFlight;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio, long decreaseIntervalMillis) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.decreaseIntervalNanos = TimeUnit.MILLISECONDS.toNanos(decreaseIntervalMillis);
+        this.lastDecreaseNanos = System.nanoTime() - this.decreaseIntervalNanos;
+    }
+
+    /**
+     * Chờ permit tối đa timeoutMillis
+     *
+     * @return true nếu lấy được permit (phải gọi release sau khi lời gọi kết thúc)
+     */
+    public boolean acquire(long timeoutMillis) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = permitReleased.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Trả permit và điều chỉnh limit theo kết quả của lời gọi
+     *
+     * @param latencyNanos thời gian của lời gọi
+     * @param dropped true nếu lời gọi lỗi do downstream (timeout, 5xx, 429...)
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= limit;
+            inFlight--;
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseNanos >= decreaseIntervalNanos && limit > minLimit) {
+                    int newLimit = Math.max(minLimit, (int) (limit * backoffRatio));
+                    if (newLimit == limit) {
+                        newLimit = limit - 1;
+                    }
+                    log.info("Concurrency limit of {} decreased {} -> {} (dropped={}, latency={} ms)",
+                        name, limit, newLimit, dropped, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                    limit = newLimit;
+                    lastDecreaseNanos = now;
+                }
+            } else if (saturated && limit < maxLimit) {
+                limit++;
+                log.debug("Concurrency limit of {} increased to {}", name, limit);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Trả permit của lời gọi bị huỷ giữa chừng (thread bị interrupt), không điều chỉnh limit
+     * vì lời gọi không cho biết gì về downstream
+     */
+    public void releaseCancelled() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,13 @@
+package com.yourcompany.batch.service.resilience;
+
+/**
+ * Lời gọi external API bị từ chối trước khi gửi đi (circuit breaker đang mở
+ * hoặc không lấy được permit của concurrency limiter trong thời gian cho phép).
+ * Item tương ứng chưa được xử lý và có thể thử lại sau.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
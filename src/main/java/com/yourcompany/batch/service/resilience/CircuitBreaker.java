@@ -0,0 +1,191 @@
+package com.yourcompany.batch.service.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker theo tỉ lệ lỗi trên cửa sổ slidingWindowSize lời gọi gần nhất.
+ *
+ * - CLOSED: cho phép gọi; khi có ít nhất minimumCalls lời gọi và tỉ lệ lỗi >= failureRateThreshold (%) thì chuyển OPEN.
+ * - OPEN: từ chối mọi lời gọi (fail fast) trong openDuration, sau đó chuyển HALF_OPEN.
+ * - HALF_OPEN: cho phép tối đa halfOpenPermittedCalls lời gọi thử; tất cả thành công thì CLOSED,
+ *   có một lời gọi lỗi thì OPEN lại.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED(0),
+        OPEN(1),
+        HALF_OPEN(2);
+
+        private final int value;
+
+        State(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenPermittedCalls;
+
+    // Kết quả các lời gọi gần nhất (true = lỗi), vòng tròn
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAtMillis;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public CircuitBreaker(String name, int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          long openDurationMillis, int halfOpenPermittedCalls) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[Math.max(1, slidingWindowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), window.length);
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermittedCalls = Math.max(1, halfOpenPermittedCalls);
+    }
+
+    /**
+     * Xin phép thực hiện một lời gọi
+     *
+     * @return false nếu breaker đang mở (hoặc đã đủ lời gọi thử ở HALF_OPEN)
+     */
+    public synchronized boolean tryAcquirePermission() {
+        State current = currentState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && halfOpenInFlight < halfOpenPermittedCalls) {
+            halfOpenInFlight++;
+            return true;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Trả lại permission khi lời gọi không được thực hiện
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (++halfOpenSuccesses >= halfOpenPermittedCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                log.warn("Circuit breaker {} failure rate {}% ({}/{}) reached threshold {}%", name,
+                    windowFailures * 100 / windowCount, windowFailures, windowCount, failureRateThreshold);
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Breaker có cho phép gọi tại thời điểm hiện tại không (CLOSED hoặc đã hết thời gian OPEN)
+     */
+    public synchronized boolean isCallPermitted() {
+        return currentState() != State.OPEN;
+    }
+
+    /**
+     * Thời gian còn lại trước khi breaker cho phép gọi thử (0 nếu không mở)
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (currentState() != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAtMillis + openDurationMillis - System.currentTimeMillis());
+    }
+
+    public synchronized State getState() {
+        return currentState();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAtMillis >= openDurationMillis) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        State oldState = state;
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAtMillis = System.currentTimeMillis();
+        }
+        if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        if (newState == State.OPEN) {
+            log.warn("Circuit breaker {} changed state {} -> {}, calls are rejected for {} ms",
+                name, oldState, newState, openDurationMillis);
+        } else {
+            log.info("Circuit breaker {} changed state {} -> {}", name, oldState, newState);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.yourcompany.batch.service.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chính sách hedged request: lời gọi chưa có kết quả sau percentile latency gần đây
+ * thì được gửi thêm một request trùng (cùng idempotency key), lấy kết quả về trước.
+ *
+ * - Latency của windowSize lời gọi gần nhất được giữ trong ring buffer; delay hedge là percentile
+ *   của các mẫu này (không nhỏ hơn minDelayMillis), tính lại sau mỗi windowSize / 10 mẫu.
+ *   Chưa đủ minSamples mẫu thì không hedge.
+ * - Số hedge bị giới hạn bởi token bucket: mỗi lời gọi nạp maxHedgePercent / 100 token
+ *   (tối đa MAX_TOKENS), mỗi hedge tiêu 1 token, nên hedge không vượt quá maxHedgePercent % lưu lượng
+ *   và không dồn thành burst khi downstream chậm toàn bộ.
+ */
+public class HedgingPolicy {
+
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final String name;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long tokensPerCall;
+    private final int minSamples;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong computedAtCount = new AtomicLong(-1);
+    private final int recomputeEvery;
+    private volatile long hedgeDelayNanos = -1;
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param percentile percentile latency (0 - 100) dùng làm delay hedge
+     * @param minDelayMillis delay hedge tối thiểu
+     * @param maxHedgePercent số hedge tối đa, tính theo % số lời gọi
+     * @param windowSize số mẫu latency gần nhất được giữ
+     * @param minSamples số mẫu tối thiểu trước khi hedge
+     */
+    public HedgingPolicy(String name, double percentile, long minDelayMillis, double maxHedgePercent,
+                         int windowSize, int minSamples) {
+        this.name = name;
+        this.percentile = Math.min(100, Math.max(0, percentile));
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelayMillis));
+        this.tokensPerCall = Math.round(Math.max(0, maxHedgePercent) / 100 * TOKEN);
+        this.samples = new AtomicLongArray(Math.max(1, windowSize));
+        this.minSamples = Math.max(1, Math.min(minSamples, samples.length()));
+        this.recomputeEvery = Math.max(1, samples.length() / 10);
+    }
+
+    /**
+     * Ghi nhận một lời gọi mới (nạp token cho hedge)
+     */
+    public void onCall() {
+        calls.increment();
+        tokens.accumulateAndGet(tokensPerCall, (current, added) -> Math.min(MAX_TOKENS, current + added));
+    }
+
+    /**
+     * Ghi nhận latency của một request đã có response
+     */
+    public void recordLatency(long latencyNanos) {
+        long index = sampleCount.getAndIncrement();
+        samples.set((int) (index % samples.length()), latencyNanos);
+    }
+
+    /**
+     * Thời gian chờ trước khi gửi hedge
+     *
+     * @return số nanosecond, -1 nếu chưa đủ mẫu latency (không hedge)
+     */
+    public long getHedgeDelayNanos() {
+        long count = sampleCount.get();
+        if (count < minSamples) {
+            return -1;
+        }
+        long computedAt = computedAtCount.get();
+        if ((computedAt < 0 || count - computedAt >= recomputeEvery) && computedAtCount.compareAndSet(computedAt, count)) {
+            hedgeDelayNanos = Math.max(minDelayNanos, computePercentile(count));
+        }
+        return hedgeDelayNanos;
+    }
+
+    /**
+     * Lấy quota cho một hedge
+     *
+     * @return false nếu đã vượt maxHedgePercent
+     */
+    public boolean tryAcquireHedge() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                hedges.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Trả lại quota của hedge đã lấy nhưng không được gửi
+     */
+    public void releaseHedge() {
+        hedges.decrement();
+        tokens.accumulateAndGet(TOKEN, (current, added) -> Math.min(MAX_TOKENS, current + added));
+    }
+
+    /**
+     * Ghi nhận hedge có kết quả về trước request gốc
+     */
+    public void onHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    private long computePercentile(long count) {
+        int size = (int) Math.min(count, samples.length());
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.min(size - 1, Math.max(0, index))];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * Delay hedge hiện tại (millisecond), -1 nếu chưa đủ mẫu
+     */
+    public double getHedgeDelayMillis() {
+        long delayNanos = hedgeDelayNanos;
+        return delayNanos < 0 ? -1 : delayNanos / 1_000_000.0;
+    }
+}
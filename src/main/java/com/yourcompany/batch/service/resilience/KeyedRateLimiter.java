@@ -0,0 +1,98 @@
+package com.yourcompany.batch.service.resilience;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Rate limiter theo key (ví dụ branch) dùng thuật toán GCRA, tương đương token bucket
+ * với tốc độ permitsPerSecond và dung lượng burst.
+ *
+ * Mỗi key chỉ có một AtomicLong (thời điểm đến lý thuyết - TAT) được cập nhật bằng CAS,
+ * nên các thread xử lý khác nhau dùng chung limiter mà không phải chờ lock,
+ * và các key khác nhau không ảnh hưởng nhau.
+ */
+public class KeyedRateLimiter {
+
+    /**
+     * Giới hạn của một key, permitsPerSecond <= 0 = không giới hạn
+     */
+    public record Limit(double permitsPerSecond, int burst) {}
+
+    private final Function<String, Limit> limitResolver;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param limitResolver giới hạn theo key, được gọi một lần cho mỗi key mới
+     */
+    public KeyedRateLimiter(Function<String, Limit> limitResolver) {
+        this.limitResolver = limitResolver;
+    }
+
+    /**
+     * Lấy một permit của key, chấp nhận chờ tối đa maxWaitMillis
+     *
+     * @return số nanosecond caller phải chờ trước khi gọi (0 = gọi ngay), -1 nếu bị throttle
+     *         (chờ lâu hơn maxWaitMillis, permit không bị trừ)
+     */
+    public long tryAcquire(String key, long maxWaitMillis) {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(limitResolver.apply(k)));
+        return bucket.tryAcquire(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+    }
+
+    private static final class Bucket {
+
+        private final boolean unlimited;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        // TAT tính từ originNanos (không âm), để các phép cộng bão hòa không bị tràn khi so với System.nanoTime()
+        private final long originNanos = System.nanoTime();
+        private final AtomicLong theoreticalArrivalNanos = new AtomicLong();
+
+        private Bucket(Limit limit) {
+            // permitsPerSecond <= 0 (hoặc NaN) không có emission interval hợp lệ: coi như không giới hạn
+            this.unlimited = !(limit.permitsPerSecond() > 0);
+            this.emissionIntervalNanos = unlimited ? 0L
+                : Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / limit.permitsPerSecond()));
+            // Tràn số thì bão hòa ở Long.MAX_VALUE: burst lớn hơn mức biểu diễn được coi như không giới hạn
+            this.burstToleranceNanos = saturatedMultiply(emissionIntervalNanos, Math.max(0, limit.burst() - 1));
+        }
+
+        private long tryAcquire(long nowNanos, long maxWaitNanos) {
+            if (unlimited) {
+                return 0;
+            }
+            long elapsedNanos = nowNanos - originNanos;
+            while (true) {
+                long tat = theoreticalArrivalNanos.get();
+                long start = Math.max(tat, elapsedNanos);
+                // 0 <= start - elapsedNanos nên phép trừ burstToleranceNanos không tràn số
+                long waitNanos = Math.max(0, (start - elapsedNanos) - burstToleranceNanos);
+                if (waitNanos > maxWaitNanos) {
+                    return -1;
+                }
+                if (theoreticalArrivalNanos.compareAndSet(tat, saturatedAdd(start, emissionIntervalNanos))) {
+                    return waitNanos;
+                }
+            }
+        }
+
+        private static long saturatedMultiply(long a, long b) {
+            try {
+                return Math.multiplyExact(a, b);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+
+        private static long saturatedAdd(long a, long b) {
+            try {
+                return Math.addExact(a, b);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.yourcompany.batch.service.resilience;
+
+/**
+ * Lỗi tạm thời khi gọi external API (I/O, timeout, HTTP 5xx, 429): lời gọi có thể thành công nếu thử lại.
+ */
+public class TransientApiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public TransientApiException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public TransientApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    /**
+     * HTTP status của response, 0 nếu không nhận được response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,19 @@
+-- ============================================================================
+-- Bảng idempotency của lời gọi external API (TransactionApiIdempotencyRepository)
+-- Mỗi transaction đã gọi API thành công có một dòng, được writer ghi theo lô cho cả chunk (một JDBC batch)
+-- trong transaction DB riêng (không rollback cùng chunk), để khi chunk chạy lại hoặc transaction
+-- được claim lại thì không gọi API lần nữa.
+-- idempotency_key: SHA-256 của nội dung request (id, branch, amount), cũng được gửi trong header Idempotency-Key;
+--                  nội dung transaction thay đổi thì key khác và API được gọi lại.
+-- Các dòng cũ hơn batch.idempotency.retention-days được xóa định kỳ.
+-- ============================================================================
+
+CREATE TABLE transaction_api_idempotency (
+    transaction_id NUMBER(19) NOT NULL,
+    idempotency_key VARCHAR2(64) NOT NULL,
+    outcome VARCHAR2(50) NOT NULL,
+    created_date TIMESTAMP NOT NULL,
+    CONSTRAINT pk_transaction_api_idempotency PRIMARY KEY (transaction_id)
+);
+
+CREATE INDEX idx_api_idempotency_created ON transaction_api_idempotency(created_date);
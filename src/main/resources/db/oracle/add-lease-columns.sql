@@ -0,0 +1,20 @@
+-- ============================================================================
+-- Add lease columns to transaction table (if table already exists)
+-- claimed_by: owner đang giữ transaction (host:pid:stepExecutionId)
+-- lease_expires_at: thời điểm hết hạn lease (giờ của DB server), quá hạn thì sweeper trả về hàng đợi
+-- ============================================================================
+
+ALTER TABLE transaction ADD (
+    claimed_by VARCHAR2(100) DEFAULT NULL,
+    lease_expires_at TIMESTAMP DEFAULT NULL
+);
+
+-- Chỉ các transaction đang được giữ (PENDING) mới có giá trị, nên index nhỏ
+CREATE INDEX idx_transaction_claimed_by ON transaction(claimed_by);
+CREATE INDEX idx_transaction_lease_expires ON transaction(lease_expires_at);
+
+-- Các transaction PENDING đã bị bỏ lại trước khi có lease: gán lease hết hạn ngay
+-- để sweeper trả về hàng đợi (chỉ chạy khi chắc chắn không còn job nào đang chạy)
+-- UPDATE transaction SET lease_expires_at = CAST(SYSTIMESTAMP AS TIMESTAMP) WHERE status = 'PENDING';
+
+COMMIT;
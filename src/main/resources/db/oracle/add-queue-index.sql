@@ -0,0 +1,26 @@
+-- ============================================================================
+-- Work-queue index cho bảng transaction
+-- Oracle không lưu key NULL trong index một cột nên idx_transaction_status không dùng được
+-- cho điều kiện status IS NULL (claim và count đều full scan bảng).
+-- Function-based index dưới đây chỉ chứa các transaction đang chờ (status IS NULL):
+-- rows đã xử lý có cả hai key NULL nên không nằm trong index, index luôn nhỏ dù bảng lớn dần.
+-- Các query claim / count dùng đúng các biểu thức CASE này (xem TransactionRepositoryImpl).
+-- ============================================================================
+
+CREATE INDEX idx_transaction_queue ON transaction (
+    CASE WHEN status IS NULL THEN create_date END,
+    CASE WHEN status IS NULL THEN id END
+) ONLINE;
+
+-- Thu thập statistics cho index mới (bao gồm hidden columns của function-based index)
+BEGIN
+    DBMS_STATS.GATHER_TABLE_STATS(
+        ownname    => USER,
+        tabname    => 'TRANSACTION',
+        method_opt => 'FOR ALL HIDDEN COLUMNS SIZE AUTO',
+        cascade    => TRUE
+    );
+END;
+/
+
+COMMIT;
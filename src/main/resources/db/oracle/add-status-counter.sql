@@ -0,0 +1,41 @@
+-- ============================================================================
+-- Bảng counter số transaction theo status (TransactionStatusCounterRepository)
+-- status_key: status của transaction, 'NEW' cho các transaction đang chờ (status IS NULL)
+-- slot: mỗi status có 16 slot (0..15), app cộng delta vào một slot ngẫu nhiên để tránh tranh chấp lock,
+--       số transaction của status = SUM(cnt) các slot
+-- Counter được cập nhật cùng transaction với thao tác đổi status và định kỳ đối chiếu với số thực tế.
+-- ============================================================================
+
+CREATE TABLE transaction_status_counter (
+    status_key VARCHAR2(50) NOT NULL,
+    slot NUMBER(3) NOT NULL,
+    cnt NUMBER(19) DEFAULT 0 NOT NULL,
+    updated_date TIMESTAMP,
+    CONSTRAINT pk_transaction_status_counter PRIMARY KEY (status_key, slot)
+);
+
+-- Tạo sẵn tất cả slot cho các status đã biết
+INSERT INTO transaction_status_counter (status_key, slot, cnt, updated_date)
+SELECT k.status_key, s.slot, 0, SYSTIMESTAMP
+FROM (
+    SELECT 'NEW' AS status_key FROM dual UNION ALL
+    SELECT 'JOB_PROCESSING' FROM dual UNION ALL
+    SELECT 'PENDING' FROM dual UNION ALL
+    SELECT 'COMPLETED' FROM dual UNION ALL
+    SELECT 'ERROR' FROM dual
+) k
+CROSS JOIN (SELECT LEVEL - 1 AS slot FROM dual CONNECT BY LEVEL <= 16) s;
+
+-- Khởi tạo slot 0 bằng số thực tế hiện tại
+MERGE INTO transaction_status_counter c
+USING (
+    SELECT NVL(status, 'NEW') AS status_key, COUNT(*) AS cnt
+    FROM transaction
+    GROUP BY status
+) d
+ON (c.status_key = d.status_key AND c.slot = 0)
+WHEN MATCHED THEN UPDATE SET c.cnt = d.cnt, c.updated_date = SYSTIMESTAMP
+WHEN NOT MATCHED THEN INSERT (status_key, slot, cnt, updated_date)
+    VALUES (d.status_key, 0, d.cnt, SYSTIMESTAMP);
+
+COMMIT;
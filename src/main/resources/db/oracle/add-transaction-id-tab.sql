@@ -0,0 +1,9 @@
+-- ============================================================================
+-- Collection type để bind danh sách transaction id từ JDBC (OracleConnection.createOracleArray)
+-- Dùng cho cập nhật status / release theo chunk: một SQL text cố định cho mọi kích thước chunk,
+-- không bị giới hạn 1000 phần tử của IN-list và không làm đầy shared pool.
+-- Nested table không giới hạn số phần tử (khác với SYS.ODCINUMBERLIST là VARRAY tối đa 32767).
+-- ============================================================================
+
+CREATE OR REPLACE TYPE transaction_id_tab AS TABLE OF NUMBER(19);
+/
@@ -0,0 +1,7 @@
+-- ============================================================================
+-- Collection type để bind status mới tương ứng từng transaction id (song song với transaction_id_tab)
+-- Dùng khi ghi kết quả xử lý của cả chunk (COMPLETED / ERROR / RETRY) trong một câu lệnh.
+-- ============================================================================
+
+CREATE OR REPLACE TYPE transaction_status_tab AS TABLE OF VARCHAR2(50);
+/
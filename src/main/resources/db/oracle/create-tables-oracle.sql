@@ -10,31 +10,54 @@ CREATE TABLE transaction (
     name VARCHAR2(255),
     amount NUMBER(19, 2),
     create_date TIMESTAMP,
-    status VARCHAR2(50) DEFAULT NULL
+    status VARCHAR2(50) DEFAULT NULL,
+    claimed_by VARCHAR2(100) DEFAULT NULL,
+    lease_expires_at TIMESTAMP DEFAULT NULL
 );
 
--- Tạo sequence cho transaction id
+-- Sequence cấp id (pooled-lo, allocationSize = 50 trong entity): mỗi giá trị là id đầu tiên của một block 50 id
 CREATE SEQUENCE transaction_seq
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE
+    INCREMENT BY 50
+    CACHE 20
     NOCYCLE;
 
--- Tạo trigger để auto increment id
-CREATE OR REPLACE TRIGGER transaction_trigger
-    BEFORE INSERT ON transaction
-    FOR EACH ROW
-BEGIN
-    IF :NEW.id IS NULL THEN
-        SELECT transaction_seq.NEXTVAL INTO :NEW.id FROM DUAL;
-    END IF;
-END;
-/
-
 -- Tạo index cho performance
 CREATE INDEX idx_transaction_branch ON transaction(branch);
 CREATE INDEX idx_transaction_create_date ON transaction(create_date);
 CREATE INDEX idx_transaction_status ON transaction(status);
+CREATE INDEX idx_transaction_claimed_by ON transaction(claimed_by);
+CREATE INDEX idx_transaction_lease_expires ON transaction(lease_expires_at);
+-- Work-queue index: chỉ chứa các transaction đang chờ (status IS NULL), dùng cho claim và count
+CREATE INDEX idx_transaction_queue ON transaction (
+    CASE WHEN status IS NULL THEN create_date END,
+    CASE WHEN status IS NULL THEN id END
+);
+
+-- Collection type để bind danh sách transaction id (cập nhật status theo chunk)
+CREATE OR REPLACE TYPE transaction_id_tab AS TABLE OF NUMBER(19);
+/
+CREATE OR REPLACE TYPE transaction_status_tab AS TABLE OF VARCHAR2(50);
+/
+
+-- Counter số transaction theo status ('NEW' = status IS NULL), 16 slot mỗi status
+CREATE TABLE transaction_status_counter (
+    status_key VARCHAR2(50) NOT NULL,
+    slot NUMBER(3) NOT NULL,
+    cnt NUMBER(19) DEFAULT 0 NOT NULL,
+    updated_date TIMESTAMP,
+    CONSTRAINT pk_transaction_status_counter PRIMARY KEY (status_key, slot)
+);
+
+-- Idempotency của lời gọi external API: transaction đã gọi API thành công (không gọi lại khi chunk chạy lại)
+CREATE TABLE transaction_api_idempotency (
+    transaction_id NUMBER(19) NOT NULL,
+    idempotency_key VARCHAR2(64) NOT NULL,
+    outcome VARCHAR2(50) NOT NULL,
+    created_date TIMESTAMP NOT NULL,
+    CONSTRAINT pk_transaction_api_idempotency PRIMARY KEY (transaction_id)
+);
+CREATE INDEX idx_api_idempotency_created ON transaction_api_idempotency(created_date);
 
 -- 2. Tạo bảng BATCH_JOB_SETTING (nếu chưa có)
 CREATE TABLE batch_job_setting (
@@ -67,20 +90,10 @@ CREATE TABLE job_log (
 
 CREATE SEQUENCE job_log_seq
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE
+    INCREMENT BY 50
+    CACHE 20
     NOCYCLE;
 
-CREATE OR REPLACE TRIGGER job_log_trigger
-    BEFORE INSERT ON job_log
-    FOR EACH ROW
-BEGIN
-    IF :NEW.id IS NULL THEN
-        SELECT job_log_seq.NEXTVAL INTO :NEW.id FROM DUAL;
-    END IF;
-END;
-/
-
 -- 4. Tạo bảng JOB_LOG_RESULT (nếu chưa có)
 CREATE TABLE job_log_result (
     id NUMBER(19) PRIMARY KEY,
@@ -105,20 +118,10 @@ CREATE TABLE job_log_result (
 
 CREATE SEQUENCE job_log_result_seq
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE
+    INCREMENT BY 50
+    CACHE 20
     NOCYCLE;
 
-CREATE OR REPLACE TRIGGER job_log_result_trigger
-    BEFORE INSERT ON job_log_result
-    FOR EACH ROW
-BEGIN
-    IF :NEW.id IS NULL THEN
-        SELECT job_log_result_seq.NEXTVAL INTO :NEW.id FROM DUAL;
-    END IF;
-END;
-/
-
 -- 5. Tạo bảng SHEDLOCK (cho ShedLock distributed locking)
 CREATE TABLE shedlock (
     name VARCHAR2(64) NOT NULL,
@@ -129,10 +132,10 @@ CREATE TABLE shedlock (
 );
 
 -- 6. Insert sample data cho transaction (optional)
--- INSERT INTO transaction (branch, name, amount, create_date) VALUES
--- ('HN001', 'Transaction 1', 1000.50, CURRENT_TIMESTAMP);
--- INSERT INTO transaction (branch, name, amount, create_date) VALUES
--- ('HN001', 'Transaction 2', 2000.75, CURRENT_TIMESTAMP);
+-- INSERT INTO transaction (id, branch, name, amount, create_date) VALUES
+-- (transaction_seq.NEXTVAL, 'HN001', 'Transaction 1', 1000.50, CURRENT_TIMESTAMP);
+-- INSERT INTO transaction (id, branch, name, amount, create_date) VALUES
+-- (transaction_seq.NEXTVAL, 'HN001', 'Transaction 2', 2000.75, CURRENT_TIMESTAMP);
 -- ... (thêm nhiều records nếu cần)
 
 -- 7. Commit changes
@@ -143,6 +146,8 @@ COMMIT;
 -- ============================================================================
 SELECT table_name FROM user_tables WHERE table_name IN (
     'TRANSACTION', 
+    'TRANSACTION_STATUS_COUNTER',
+    'TRANSACTION_API_IDEMPOTENCY',
     'BATCH_JOB_SETTING', 
     'JOB_LOG', 
     'JOB_LOG_RESULT', 
@@ -0,0 +1,43 @@
+-- ============================================================================
+-- Chuyển id của transaction, job_log, job_log_result sang sequence pooled-lo
+-- Entity dùng @SequenceGenerator(allocationSize = 50) với optimizer pooled-lo
+-- (hibernate.id.optimizer.pooled.preferred): mỗi giá trị sequence là id đầu tiên của một block 50 id,
+-- app chỉ gọi NEXTVAL một lần cho 50 rows và Hibernate gom được insert thành JDBC batch.
+-- Trigger BEFORE INSERT không còn cần (id luôn do app cấp) nên bị xóa.
+-- Chạy khi app đã dừng: các giá trị sequence đã cấp trước đó đều <= giá trị hiện tại,
+-- nên các block mới (bắt đầu từ giá trị hiện tại + 50) không trùng id đã có.
+-- ============================================================================
+
+-- Đảm bảo sequence không nhỏ hơn id lớn nhất đang có (ví dụ rows được insert với id tự đặt)
+DECLARE
+    PROCEDURE sync_sequence(p_sequence VARCHAR2, p_table VARCHAR2) IS
+        v_max_id NUMBER;
+        v_last   NUMBER;
+    BEGIN
+        EXECUTE IMMEDIATE 'SELECT NVL(MAX(id), 0) FROM ' || p_table INTO v_max_id;
+        EXECUTE IMMEDIATE 'SELECT ' || p_sequence || '.NEXTVAL FROM dual' INTO v_last;
+        IF v_max_id > v_last THEN
+            EXECUTE IMMEDIATE 'ALTER SEQUENCE ' || p_sequence || ' INCREMENT BY ' || (v_max_id - v_last);
+            EXECUTE IMMEDIATE 'SELECT ' || p_sequence || '.NEXTVAL FROM dual' INTO v_last;
+        END IF;
+    END;
+BEGIN
+    sync_sequence('transaction_seq', 'transaction');
+    sync_sequence('job_log_seq', 'job_log');
+    sync_sequence('job_log_result_seq', 'job_log_result');
+END;
+/
+
+ALTER SEQUENCE transaction_seq INCREMENT BY 50 CACHE 20;
+ALTER SEQUENCE job_log_seq INCREMENT BY 50 CACHE 20;
+ALTER SEQUENCE job_log_result_seq INCREMENT BY 50 CACHE 20;
+
+DROP TRIGGER transaction_trigger;
+DROP TRIGGER job_log_trigger;
+DROP TRIGGER job_log_result_trigger;
+
+-- Kiểm tra
+SELECT sequence_name, increment_by, cache_size, last_number
+FROM user_sequences
+WHERE sequence_name IN ('TRANSACTION_SEQ', 'JOB_LOG_SEQ', 'JOB_LOG_RESULT_SEQ')
+ORDER BY sequence_name;
@@ -0,0 +1,123 @@
+package com.yourcompany.batch.batch.processor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ConcurrentItemProcessorTest {
+
+    private final StepExecution stepExecution = new StepExecution("step", new JobExecution(1L));
+    private ConcurrentItemProcessor<Item, String> processor;
+
+    @AfterEach
+    void tearDown() {
+        if (processor != null) {
+            processor.afterStep(stepExecution);
+        }
+    }
+
+    @Test
+    void returnsTheResultOfEachItemInstanceEvenForEqualItems() throws Exception {
+        processor = start(item -> item.tag, 4);
+        Item first = new Item("same", "first");
+        Item second = new Item("same", "second");
+
+        processor.afterRead(first);
+        processor.afterRead(second);
+
+        assertThat(processor.process(second)).isEqualTo("second");
+        assertThat(processor.process(first)).isEqualTo("first");
+    }
+
+    @Test
+    void processesItemsOfAChunkConcurrently() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        processor = start(item -> {
+            allStarted.countDown();
+            // Chỉ xong khi cả 3 item chạy cùng lúc
+            if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("items were not processed concurrently");
+            }
+            return item.tag;
+        }, 3);
+        Item[] items = {new Item("a", "a"), new Item("b", "b"), new Item("c", "c")};
+
+        for (Item item : items) {
+            processor.afterRead(item);
+        }
+
+        for (Item item : items) {
+            assertThat(processor.process(item)).isEqualTo(item.tag);
+        }
+    }
+
+    @Test
+    void rethrowsTheDelegateExceptionAndReleasesItsPermit() throws Exception {
+        IllegalStateException failure = new IllegalStateException("api failed");
+        processor = start(item -> {
+            if (item.tag.equals("bad")) {
+                throw failure;
+            }
+            return item.tag;
+        }, 1);
+        Item bad = new Item("bad", "bad");
+        Item good = new Item("good", "good");
+
+        processor.afterRead(bad);
+        assertThatThrownBy(() -> processor.process(bad)).isSameAs(failure);
+
+        // Với concurrency = 1, afterRead chỉ không bị chặn nếu permit của item lỗi đã được trả
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> processor.afterRead(good));
+        assertThat(processor.process(good)).isEqualTo("good");
+    }
+
+    @Test
+    void processesAnItemThatWasNotReadOnTheCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        processor = start(item -> Thread.currentThread() == caller ? "sequential" : "concurrent", 2);
+
+        // Item được xử lý lại (scan sau rollback) không đi qua afterRead
+        assertThat(processor.process(new Item("retry", "retry"))).isEqualTo("sequential");
+    }
+
+    private ConcurrentItemProcessor<Item, String> start(ItemProcessor<Item, String> delegate, int concurrency) {
+        ConcurrentItemProcessor<Item, String> concurrentProcessor = new ConcurrentItemProcessor<>(delegate, concurrency, "test");
+        concurrentProcessor.beforeStep(stepExecution);
+        return concurrentProcessor;
+    }
+
+    /**
+     * Item so sánh bằng key, tag phân biệt các instance bằng nhau
+     */
+    private static final class Item {
+
+        private final String key;
+        private final String tag;
+
+        private Item(String key, String tag) {
+            this.key = key;
+            this.tag = tag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Item other && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.yourcompany.batch.batch.processor;
+
+import com.yourcompany.batch.service.resilience.TransientApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryingItemProcessorTest {
+
+    private final List<Exception> recovered = new ArrayList<>();
+
+    @Test
+    void retriesTransientFailuresUntilSuccess() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingItemProcessor<String, String> processor = processor(item -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new TransientApiException("HTTP 503", 503);
+            }
+            return item.toUpperCase();
+        }, 3, 10);
+
+        assertThat(processor.process("a")).isEqualTo("A");
+        assertThat(calls).hasValue(3);
+        assertThat(processor.getRemainingBudget()).isEqualTo(8);
+        assertThat(recovered).isEmpty();
+    }
+
+    @Test
+    void recoversAfterMaxAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingItemProcessor<String, String> processor = processor(failing(calls), 3, 10);
+
+        assertThat(processor.process("a")).isNull();
+        assertThat(calls).hasValue(3);
+        assertThat(recovered).hasSize(1).first().isInstanceOf(TransientApiException.class);
+    }
+
+    @Test
+    void stopsRetryingWhenTheStepBudgetIsExhausted() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingItemProcessor<String, String> processor = processor(failing(calls), 5, 1);
+
+        // Lần thử lại duy nhất của budget được dùng cho item đầu
+        assertThat(processor.process("a")).isNull();
+        assertThat(calls).hasValue(2);
+        assertThat(processor.getRemainingBudget()).isZero();
+
+        // Item sau không còn budget: chỉ gọi một lần rồi recover
+        assertThat(processor.process("b")).isNull();
+        assertThat(calls).hasValue(3);
+        assertThat(recovered).hasSize(2);
+        assertThat(processor.getRemainingBudget()).isZero();
+    }
+
+    @Test
+    void rethrowsNonRetryableExceptionsWithoutRetrying() {
+        AtomicInteger calls = new AtomicInteger();
+        IllegalArgumentException failure = new IllegalArgumentException("HTTP 400");
+        RetryingItemProcessor<String, String> processor = processor(item -> {
+            calls.incrementAndGet();
+            throw failure;
+        }, 3, 10);
+
+        assertThatThrownBy(() -> processor.process("a")).isSameAs(failure);
+        assertThat(calls).hasValue(1);
+        assertThat(processor.getRemainingBudget()).isEqualTo(10);
+        assertThat(recovered).isEmpty();
+    }
+
+    @Test
+    void detectsRetryableExceptionsInTheCauseChain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingItemProcessor<String, String> processor = processor(item -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("wrapped", new TransientApiException("timeout", 504));
+            }
+            return item;
+        }, 2, 10);
+
+        assertThat(processor.process("a")).isEqualTo("a");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void recovererCanRethrowToSkipTheItem() {
+        TransientApiException failure = new TransientApiException("HTTP 503", 503);
+        RetryingItemProcessor<String, String> processor = new RetryingItemProcessor<>(item -> {
+            throw failure;
+        }, List.of(TransientApiException.class), 2, 0, 0, 10, (item, e) -> {
+            throw e;
+        }, "test");
+
+        assertThatThrownBy(() -> processor.process("a")).isSameAs(failure);
+    }
+
+    private RetryingItemProcessor<String, String> processor(ItemProcessor<String, String> delegate, int maxAttempts,
+                                                            int retryBudget) {
+        return new RetryingItemProcessor<>(delegate, List.of(TransientApiException.class), maxAttempts, 0, 0,
+            retryBudget, (item, e) -> {
+                recovered.add(e);
+                return null;
+            }, "test");
+    }
+
+    private static ItemProcessor<String, String> failing(AtomicInteger calls) {
+        return item -> {
+            calls.incrementAndGet();
+            throw new TransientApiException("HTTP 503", 503);
+        };
+    }
+}
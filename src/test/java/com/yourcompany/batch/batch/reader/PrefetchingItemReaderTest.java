@@ -0,0 +1,155 @@
+package com.yourcompany.batch.batch.reader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.NonTransientResourceException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrefetchingItemReaderTest {
+
+    private PrefetchingItemReader<Integer> reader;
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    @Test
+    void readsItemsOfAllPagesInOrder() throws Exception {
+        FakePageSource source = new FakePageSource(List.of(1, 2), List.of(3), List.of(4, 5));
+        reader = open(source, 1);
+
+        assertThat(readAll(reader)).containsExactly(1, 2, 3, 4, 5);
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test
+    void doesNotClaimMorePagesThanTheLimitAheadOfTheStep() throws Exception {
+        FakePageSource source = new FakePageSource(List.of(1), List.of(2), List.of(3), List.of(4));
+        reader = open(source, 2);
+
+        awaitTrue(() -> source.claims.get() == 2);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(source.claims.get()).isEqualTo(2);
+
+        // Lấy trang đầu ra để đọc thì được claim thêm một trang
+        assertThat(reader.read()).isEqualTo(1);
+        awaitTrue(() -> source.claims.get() == 3);
+    }
+
+    @Test
+    void closeReleasesUncommittedAndPrefetchedItems() throws Exception {
+        FakePageSource source = new FakePageSource(List.of(1, 2, 3), List.of(4, 5));
+        reader = open(source, 1);
+
+        assertThat(reader.read()).isEqualTo(1);
+        assertThat(reader.read()).isEqualTo(2);
+        // Chunk chứa 1, 2 commit
+        reader.update(new ExecutionContext());
+        assertThat(reader.read()).isEqualTo(3);
+        awaitTrue(() -> source.claims.get() >= 2);
+
+        reader.close();
+        reader = null;
+
+        assertThat(source.released).containsExactlyInAnyOrder(3, 4, 5);
+    }
+
+    @Test
+    void closeReleasesTheUnreadRestOfTheCurrentPage() throws Exception {
+        FakePageSource source = new FakePageSource(List.of(1, 2, 3));
+        reader = open(source, 1);
+
+        assertThat(reader.read()).isEqualTo(1);
+        reader.update(new ExecutionContext());
+
+        reader.close();
+        reader = null;
+
+        assertThat(source.released).containsExactlyInAnyOrder(2, 3);
+    }
+
+    @Test
+    void prefetchFailureIsReportedOnceAfterThePagesAlreadyClaimed() throws Exception {
+        FakePageSource source = new FakePageSource(List.of(1, 2));
+        source.failure = new IllegalStateException("claim failed");
+        reader = open(source, 1);
+
+        assertThat(reader.read()).isEqualTo(1);
+        assertThat(reader.read()).isEqualTo(2);
+        assertThatThrownBy(reader::read)
+            .isInstanceOf(NonTransientResourceException.class)
+            .hasCause(source.failure);
+        assertThat(reader.read()).isNull();
+    }
+
+    private static PrefetchingItemReader<Integer> open(FakePageSource source, int maxPrefetchPages) {
+        PrefetchingItemReader<Integer> prefetchingReader = new PrefetchingItemReader<>(source, maxPrefetchPages, "test");
+        prefetchingReader.open(new ExecutionContext());
+        return prefetchingReader;
+    }
+
+    private static List<Integer> readAll(PrefetchingItemReader<Integer> reader) throws Exception {
+        List<Integer> items = new ArrayList<>();
+        Integer item;
+        while ((item = reader.read()) != null) {
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    /**
+     * PageSource trả về các trang cho trước, sau đó trang rỗng (hoặc ném failure nếu có)
+     */
+    private static final class FakePageSource implements PageSource<Integer> {
+
+        private final Deque<List<Integer>> pages = new ArrayDeque<>();
+        private final AtomicInteger claims = new AtomicInteger();
+        private final List<Integer> released = new CopyOnWriteArrayList<>();
+        private volatile RuntimeException failure;
+
+        @SafeVarargs
+        private FakePageSource(List<Integer>... pages) {
+            this.pages.addAll(List.of(pages));
+        }
+
+        @Override
+        public synchronized List<Integer> nextPage() {
+            claims.incrementAndGet();
+            List<Integer> page = pages.poll();
+            if (page == null && failure != null) {
+                throw failure;
+            }
+            return page != null ? page : List.of();
+        }
+
+        @Override
+        public void release(List<Integer> items) {
+            released.addAll(items);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.yourcompany.batch.batch.reader;
+
+import com.yourcompany.batch.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionFileReader reader;
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    @Test
+    void readsCsvSkippingHeaderAndBlankLines() throws Exception {
+        Path file = write("transactions.csv",
+            "branch,name,amount,create_date\r\n"
+                + "HN01,Nguyen Van A,123.45,2024-01-02T03:04:05Z\r\n"
+                + "\r\n"
+                + "HCM02,\"Tran, \"\"B\"\"\",-7,2024-01-02 03:04:05.5+07:00\n"
+                + "HN01,Le C,1000,");
+        reader = open(file, TransactionFileReader.Format.CSV, new ExecutionContext());
+
+        List<Transaction> transactions = readAll();
+
+        assertThat(transactions).hasSize(3);
+        Transaction first = transactions.get(0);
+        assertThat(first.getBranch()).isEqualTo("HN01");
+        assertThat(first.getName()).isEqualTo("Nguyen Van A");
+        assertThat(first.getAmount()).isEqualTo(new BigDecimal("123.45"));
+        assertThat(first.getCreateDate()).isEqualTo(Instant.parse("2024-01-02T03:04:05Z"));
+
+        Transaction second = transactions.get(1);
+        assertThat(second.getName()).isEqualTo("Tran, \"B\"");
+        assertThat(second.getAmount()).isEqualTo(new BigDecimal("-7"));
+        assertThat(second.getCreateDate()).isEqualTo(Instant.parse("2024-01-01T20:04:05.5Z"));
+
+        // create_date để trống thì lấy thời điểm mở file, các dòng cùng branch dùng chung String
+        Transaction third = transactions.get(2);
+        assertThat(third.getCreateDate()).isNotNull();
+        assertThat(third.getBranch()).isSameAs(first.getBranch());
+    }
+
+    @Test
+    void readsNdjsonIgnoringUnknownKeys() throws Exception {
+        Path file = write("transactions.ndjson",
+            "{\"branch\":\"HN01\",\"name\":\"A\\\"1\\u0041\",\"amount\":12.5,\"extra\":{\"x\":[1,2]},"
+                + "\"createDate\":\"2024-05-06T07:08:09Z\"}\n"
+                + "{ \"create_date\" : null, \"amount\" : \"99.99\", \"branch\" : \"HCM02\" }\n");
+        reader = open(file, TransactionFileReader.Format.of(null, file), new ExecutionContext());
+
+        List<Transaction> transactions = readAll();
+
+        assertThat(transactions).hasSize(2);
+        assertThat(transactions.get(0).getName()).isEqualTo("A\"1A");
+        assertThat(transactions.get(0).getAmount()).isEqualTo(new BigDecimal("12.5"));
+        assertThat(transactions.get(0).getCreateDate()).isEqualTo(Instant.parse("2024-05-06T07:08:09Z"));
+        assertThat(transactions.get(1).getBranch()).isEqualTo("HCM02");
+        assertThat(transactions.get(1).getName()).isNull();
+        assertThat(transactions.get(1).getAmount()).isEqualTo(new BigDecimal("99.99"));
+    }
+
+    @Test
+    void invalidLineThrowsParseExceptionAndReadingContinues() throws Exception {
+        Path file = write("transactions.csv",
+            "HN01,A,1,2024-01-01T00:00:00Z\n"
+                + "HN01,B,not-a-number,2024-01-01T00:00:00Z\n"
+                + "HN01,C,3,2024-01-01T00:00:00Z\n");
+        reader = open(file, TransactionFileReader.Format.CSV, new ExecutionContext());
+
+        assertThat(reader.read().getName()).isEqualTo("A");
+        assertThatThrownBy(reader::read)
+            .isInstanceOf(FlatFileParseException.class)
+            .satisfies(e -> assertThat(((FlatFileParseException) e).getLineNumber()).isEqualTo(2));
+        assertThat(reader.read().getName()).isEqualTo("C");
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test
+    void overLongLineIsSkippedAndReadingResumesAtNextLine() throws Exception {
+        Path file = tempDir.resolve("transactions.csv");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write("HN01,A,1,2024-01-01T00:00:00Z\nHN01,".getBytes(StandardCharsets.US_ASCII));
+            byte[] block = new byte[1 << 20];
+            Arrays.fill(block, (byte) 'x');
+            for (int i = 0; i < 17; i++) {
+                out.write(block);
+            }
+            out.write(",2,2024-01-01T00:00:00Z\nHN01,C,3,2024-01-01T00:00:00Z\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        reader = open(file, TransactionFileReader.Format.CSV, new ExecutionContext());
+
+        assertThat(reader.read().getName()).isEqualTo("A");
+        assertThatThrownBy(reader::read).isInstanceOf(FlatFileParseException.class);
+        Transaction next = reader.read();
+        assertThat(next.getName()).isEqualTo("C");
+        assertThat(next.getAmount()).isEqualTo(new BigDecimal("3"));
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test
+    void resumesFromPositionSavedInExecutionContext() throws Exception {
+        Path file = write("transactions.csv",
+            "HN01,A,1,2024-01-01T00:00:00Z\nHN01,B,2,2024-01-01T00:00:00Z\nHN01,C,3,2024-01-01T00:00:00Z\n");
+        ExecutionContext executionContext = new ExecutionContext();
+        reader = open(file, TransactionFileReader.Format.CSV, executionContext);
+        assertThat(reader.read().getName()).isEqualTo("A");
+        reader.update(executionContext);
+        reader.close();
+
+        reader = open(file, TransactionFileReader.Format.CSV, executionContext);
+
+        assertThat(readAll()).extracting(Transaction::getName).containsExactly("B", "C");
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(fileName), content, StandardCharsets.UTF_8);
+    }
+
+    private static TransactionFileReader open(Path file, TransactionFileReader.Format format,
+                                              ExecutionContext executionContext) {
+        TransactionFileReader reader = new TransactionFileReader(file, format, 4096);
+        reader.open(executionContext);
+        return reader;
+    }
+
+    private List<Transaction> readAll() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction transaction;
+        while ((transaction = reader.read()) != null) {
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,164 @@
+package com.yourcompany.batch.batch.step;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveChunkSizePolicyTest {
+
+    private final StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 1L);
+    private final List<Integer> reportedSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        StepSynchronizationManager.register(stepExecution);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StepSynchronizationManager.close();
+    }
+
+    @Test
+    void clampsTheInitialSizeToTheBounds() {
+        AdaptiveChunkSizePolicy policy = policy(5000, 10, 100, 1000);
+        policy.beforeStep(stepExecution);
+
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(100);
+        assertThat(reportedSizes).containsExactly(100);
+    }
+
+    @Test
+    void completesTheChunkAfterTheCurrentSize() {
+        AdaptiveChunkSizePolicy policy = policy(3, 1, 100, 1000);
+        policy.beforeStep(stepExecution);
+
+        RepeatContext context = policy.start(new RepeatContextSupport(null));
+        for (int i = 0; i < 3; i++) {
+            assertThat(policy.isComplete(context)).isFalse();
+            ((RepeatContextSupport) context).increment();
+        }
+
+        assertThat(policy.isComplete(context)).isTrue();
+    }
+
+    @Test
+    void growsAtMostTwofoldPerChunkAndNotAboveTheMaximum() {
+        // Item gần như không tốn thời gian so với target: chunk size muốn tăng rất nhiều
+        AdaptiveChunkSizePolicy policy = policy(10, 1, 50, 10000);
+        policy.beforeStep(stepExecution);
+
+        runChunk(policy, 10, 0);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(20);
+        runChunk(policy, 20, 0);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(40);
+        runChunk(policy, 40, 0);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(50);
+    }
+
+    @Test
+    void shrinksSlowChunksButNotBelowTheMinimum() {
+        // Mỗi item 2 ms với target 1 ms: chunk size muốn giảm về 0
+        AdaptiveChunkSizePolicy policy = policy(8, 3, 100, 1);
+        policy.beforeStep(stepExecution);
+
+        runChunk(policy, 8, 2);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(4);
+        runChunk(policy, 4, 2);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(3);
+    }
+
+    @Test
+    void halvesOnWriteFailureDownToTheMinimum() {
+        AdaptiveChunkSizePolicy policy = policy(40, 15, 100, 10000);
+        policy.beforeStep(stepExecution);
+
+        failChunkOnWrite(policy);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(20);
+        failChunkOnWrite(policy);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(15);
+    }
+
+    @Test
+    void doesNotGrowDuringTheCooldownAfterAWriteFailure() {
+        AdaptiveChunkSizePolicy policy = policy(40, 1, 100, 10000);
+        policy.beforeStep(stepExecution);
+
+        failChunkOnWrite(policy);
+        runChunk(policy, 20, 0);
+
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(20);
+    }
+
+    @Test
+    void keepsTheSizeWhenAChunkRollsBackOnAnItemProcessingError() {
+        AdaptiveChunkSizePolicy policy = policy(40, 1, 100, 10000);
+        policy.beforeStep(stepExecution);
+
+        policy.beforeChunk(null);
+        policy.afterRead("item");
+        policy.beforeProcess("item");
+        policy.onProcessError("item", new IllegalStateException("HTTP 400"));
+        policy.afterChunkError(null);
+
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(40);
+        // Không tính là rollback: chunk tiếp theo vẫn được tăng
+        runChunk(policy, 40, 0);
+        assertThat(policy.getChunkSize(stepExecution)).isEqualTo(80);
+    }
+
+    private AdaptiveChunkSizePolicy policy(int initialSize, int minSize, int maxSize, long targetMillis) {
+        return new AdaptiveChunkSizePolicy("test", initialSize, minSize, maxSize, targetMillis, reportedSizes::add);
+    }
+
+    private static void runChunk(AdaptiveChunkSizePolicy policy, int items, long processMillis) {
+        policy.beforeChunk(null);
+        List<Object> chunk = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Object item = "item" + i;
+            policy.beforeRead();
+            policy.afterRead(item);
+            policy.beforeProcess(item);
+            sleep(processMillis);
+            policy.afterProcess(item, item);
+            chunk.add(item);
+        }
+        Chunk<Object> written = new Chunk<>(chunk);
+        policy.beforeWrite(written);
+        policy.afterWrite(written);
+        policy.afterChunk(null);
+    }
+
+    private static void failChunkOnWrite(AdaptiveChunkSizePolicy policy) {
+        policy.beforeChunk(null);
+        policy.beforeRead();
+        policy.afterRead("item");
+        Chunk<Object> chunk = new Chunk<>(List.of("item"));
+        policy.beforeWrite(chunk);
+        policy.onWriteError(new IllegalStateException("ORA-00060"), chunk);
+        policy.afterChunkError(null);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
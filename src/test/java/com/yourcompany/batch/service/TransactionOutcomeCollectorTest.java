@@ -0,0 +1,94 @@
+package com.yourcompany.batch.service;
+
+import com.yourcompany.batch.domain.enumeration.TransactionOutcome;
+import com.yourcompany.batch.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionOutcomeCollectorTest {
+
+    private static final int RETRY_DELAY_SECONDS = 60;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private TransactionOutcomeCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(collector, "retryDelaySeconds", RETRY_DELAY_SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void appliesImmediatelyOutsideATransaction() {
+        collector.record(1L, TransactionOutcome.ERROR);
+
+        verify(transactionRepository).applyTransactionOutcomes(List.of(1L), List.of(TransactionOutcome.ERROR),
+            RETRY_DELAY_SECONDS);
+    }
+
+    @Test
+    void appliesTheLastOutcomePerTransactionOnceBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        collector.record(1L, TransactionOutcome.COMPLETED);
+        collector.record(List.of(2L, 3L), TransactionOutcome.ERROR);
+        collector.record(1L, TransactionOutcome.RETRY);
+        verify(transactionRepository, never()).applyTransactionOutcomes(any(), any(), anyInt());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(transactionRepository).applyTransactionOutcomes(List.of(1L, 2L, 3L),
+            List.of(TransactionOutcome.RETRY, TransactionOutcome.ERROR, TransactionOutcome.ERROR), RETRY_DELAY_SECONDS);
+        verifyNoMoreInteractions(transactionRepository);
+    }
+
+    @Test
+    void discardsOutcomesOfARolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        collector.record(1L, TransactionOutcome.COMPLETED);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Chunk chạy lại trong transaction mới chỉ ghi kết quả của lần chạy lại
+        TransactionSynchronizationManager.initSynchronization();
+        collector.record(2L, TransactionOutcome.COMPLETED);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(transactionRepository).applyTransactionOutcomes(List.of(2L), List.of(TransactionOutcome.COMPLETED),
+            RETRY_DELAY_SECONDS);
+        verifyNoMoreInteractions(transactionRepository);
+    }
+
+    private static void complete(int status) {
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), status);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,104 @@
+package com.yourcompany.batch.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5000);
+
+    @Test
+    void increasesTheLimitByOneOnFastSuccessWhenSaturated() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 3, 0);
+
+        assertThat(limiter.acquire(0)).isTrue();
+        assertThat(limiter.acquire(0)).isTrue();
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotIncreaseTheLimitWhenNotSaturatedOrAtMax() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 2, 0);
+
+        assertThat(limiter.acquire(0)).isTrue();
+        limiter.release(FAST, false);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.acquire(0);
+        limiter.acquire(0);
+        limiter.release(FAST, false);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void decreasesTheLimitMultiplicativelyOnDropOrSlowCall() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(16, 1, 32, 0);
+
+        limiter.acquire(0);
+        limiter.release(FAST, true);
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        limiter.acquire(0);
+        limiter.release(SLOW, false);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void decreasesAtMostOncePerInterval() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(16, 1, 32, 60000);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(0);
+            limiter.release(FAST, true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void neverDecreasesBelowTheMinimum() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(3, 2, 8, 0);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(0);
+            limiter.release(FAST, true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void acquireTimesOutWhenTheLimitIsInUse() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0);
+
+        assertThat(limiter.acquire(0)).isTrue();
+        assertThat(limiter.acquire(50)).isFalse();
+
+        limiter.releaseCancelled();
+        assertThat(limiter.acquire(0)).isTrue();
+    }
+
+    @Test
+    void cancelledCallsReleaseThePermitWithoutChangingTheLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 8, 0);
+
+        limiter.acquire(0);
+        limiter.releaseCancelled();
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit,
+                                                      long decreaseIntervalMillis) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, minLimit, maxLimit, 1000, 0.5,
+            decreaseIntervalMillis);
+    }
+}
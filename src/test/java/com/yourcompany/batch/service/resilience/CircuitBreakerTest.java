@@ -0,0 +1,111 @@
+package com.yourcompany.batch.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker(50, 10, 4, 60000, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void opensAtTheFailureRateThresholdAndRejectsCalls() {
+        CircuitBreaker breaker = breaker(50, 10, 4, 60000, 1);
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.isCallPermitted()).isFalse();
+        assertThat(breaker.getRemainingOpenMillis()).isPositive();
+        assertThat(breaker.getRejectedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyCountsTheLastCallsOfTheSlidingWindow() {
+        CircuitBreaker breaker = breaker(40, 4, 4, 60000, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        // Hai lỗi đầu đã rời khỏi cửa sổ: 1 lỗi / 4 lời gọi (tính cả lịch sử sẽ là 3 / 7 > 40%)
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenPermitsLimitedTrialCallsAndClosesWhenAllSucceed() throws Exception {
+        CircuitBreaker breaker = trippedBreaker(100, 2);
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void halfOpenReopensOnATrialFailure() throws Exception {
+        CircuitBreaker breaker = trippedBreaker(100, 2);
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void releasedHalfOpenPermissionCanBeTakenAgain() throws Exception {
+        CircuitBreaker breaker = trippedBreaker(100, 1);
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        breaker.releasePermission();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private static CircuitBreaker trippedBreaker(long openDurationMillis, int halfOpenPermittedCalls) {
+        CircuitBreaker breaker = breaker(50, 2, 2, openDurationMillis, halfOpenPermittedCalls);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static CircuitBreaker breaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                                          long openDurationMillis, int halfOpenPermittedCalls) {
+        return new CircuitBreaker("test", failureRateThreshold, slidingWindowSize, minimumCalls, openDurationMillis,
+            halfOpenPermittedCalls);
+    }
+}
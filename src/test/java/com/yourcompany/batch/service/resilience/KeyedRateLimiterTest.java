@@ -0,0 +1,90 @@
+package com.yourcompany.batch.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyedRateLimiterTest {
+
+    @Test
+    void allowsABurstThenThrottles() {
+        KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(1, 3));
+
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        assertThat(limiter.tryAcquire("HN001", 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void returnsTheWaitForTheNextEmissionWithinMaxWait() {
+        KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(10, 1));
+
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        long waitNanos = limiter.tryAcquire("HN001", 1000);
+
+        assertThat(waitNanos).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void throttledCallsDoNotConsumePermits() {
+        KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(10, 1));
+
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("HN001", 0)).isEqualTo(-1);
+        }
+
+        // Chỉ phải chờ một emission interval, không cộng dồn các lần bị throttle
+        assertThat(limiter.tryAcquire("HN001", 1000)).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void keysAreLimitedIndependently() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(Map.of(
+            "HN001", new KeyedRateLimiter.Limit(1, 1),
+            "HCM001", new KeyedRateLimiter.Limit(1, 1))::get);
+
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        assertThat(limiter.tryAcquire("HN001", 0)).isEqualTo(-1);
+        assertThat(limiter.tryAcquire("HCM001", 0)).isZero();
+    }
+
+    @Test
+    void nonPositiveOrNaNRatesAreUnlimited() {
+        for (double permitsPerSecond : new double[] {0, -5, Double.NaN}) {
+            KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(permitsPerSecond, 50));
+            for (int i = 0; i < 1000; i++) {
+                assertThat(limiter.tryAcquire("HN001", 0)).as("rate %s, call %d", permitsPerSecond, i).isZero();
+            }
+        }
+    }
+
+    @Test
+    void hugeBurstToleranceSaturatesInsteadOfOverflowing() {
+        // emission interval 10 s * (burst - 1) vượt Long.MAX_VALUE nanosecond
+        KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(0.1, Integer.MAX_VALUE));
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.tryAcquire("HN001", 0)).as("call %d", i).isZero();
+        }
+    }
+
+    @Test
+    void tinyRatesThrottleInsteadOfOverflowing() {
+        // emission interval bị giới hạn ở Long.MAX_VALUE nanosecond
+        KeyedRateLimiter limiter = limiter(new KeyedRateLimiter.Limit(1e-12, 1));
+
+        assertThat(limiter.tryAcquire("HN001", 0)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("HN001", Long.MAX_VALUE / 1_000_000)).as("call %d", i).isEqualTo(-1);
+        }
+    }
+
+    private static KeyedRateLimiter limiter(KeyedRateLimiter.Limit limit) {
+        return new KeyedRateLimiter(key -> limit);
+    }
+}